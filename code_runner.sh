@@ -1,5 +1,7 @@
 #!/usr/bin/env bash
 
+# Any arguments given to this script (e.g. --queue=spsc) are passed on to the application
+
 #fresh initialization
 mvn clean install
 
@@ -12,14 +14,11 @@ echo "You entered: $input"
 # Validate the input
 if [[ "$input" == "1" ]]; then
     echo "Single Process Communication within a single PID"
-    java -jar target/player-0.0.1-SNAPSHOT.jar "$input" &
+    java -jar target/player-0.0.1-SNAPSHOT.jar "$input" "$@" &
 elif [[ "$input" == "2" ]]; then
     echo "Separate Process Communication with different PIDs"
-    java -jar target/player-0.0.1-SNAPSHOT.jar "$input" &
-    echo "Server started with PID $!"
-    sleep 2
-    java -jar target/player-0.0.1-SNAPSHOT.jar "$input" &
-    echo "Initiator started with PID $!"
+    # The launcher starts the server and the initiator and waits until the server is ready in between
+    java -jar target/player-0.0.1-SNAPSHOT.jar 7 "$@"
 else
     echo "Invalid input. Please enter only 1 or 2."
 fi
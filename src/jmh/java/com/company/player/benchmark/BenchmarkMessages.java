@@ -0,0 +1,28 @@
+package com.company.player.benchmark;
+
+/**
+ * Builds deterministic initial messages of a requested length for the benchmarks,
+ * so that every run starts its conversation from the same payload.
+ *
+ * @author priyanshu
+ */
+final class BenchmarkMessages {
+
+    private BenchmarkMessages() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Returns a message made of repeated printable characters.
+     *
+     * @param length The number of characters in the message.
+     * @return The generated message.
+     */
+    static String ofLength(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.company.player.benchmark;
+
+import com.company.player.separatepid.Player;
+import com.company.player.separatepid.transport.MessageTransport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+
+/**
+ * The original wire protocol, kept as a baseline for the benchmarks: every hop resets the
+ * {@link ObjectOutputStream} and serializes the whole {@link Player} object graph.
+ *
+ * @author priyanshu
+ */
+final class ObjectStreamTransport implements MessageTransport {
+
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+
+    ObjectStreamTransport(Socket socket) throws IOException {
+        this.out = new ObjectOutputStream(socket.getOutputStream());
+        this.in = new ObjectInputStream(socket.getInputStream());
+    }
+
+    @Override
+    public void send(Player player) throws IOException {
+        out.reset();
+        out.writeObject(player);
+    }
+
+    @Override
+    public boolean receive(Player target) throws IOException {
+        Player received;
+        try {
+            received = (Player) in.readObject();
+        } catch (EOFException e) {
+            return false;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        target.getMessageCount().set(received.getMessageCount().get());
+        target.setId(received.getId());
+        target.setMessage(received.getMessage());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+}
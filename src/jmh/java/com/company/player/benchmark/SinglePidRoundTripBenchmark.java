@@ -0,0 +1,88 @@
+package com.company.player.benchmark;
+
+import com.company.player.singlepid.Player;
+import com.company.player.singlepid.QueueType;
+import com.company.player.singlepid.WaitStrategy;
+import com.company.player.util.Constants;
+import com.company.player.util.Logger;
+import com.company.player.util.ProtocolMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete single process conversations: two {@link Player} threads exchanging messages
+ * through their {@link java.util.concurrent.BlockingQueue} hand-off until the stop condition is reached.
+ * The {@code queue} parameter compares the {@link QueueType#LINKED} queue with the {@link QueueType#SPSC}
+ * ring buffer under each {@link WaitStrategy}; the {@code protocol} parameter compares full messages
+ * with {@link ProtocolMode#DELTA} suffixes.
+ * One benchmark operation is one session, so the reported time divided by {@code sessionLength}
+ * approximates the round trip latency of a single hop pair.
+ *
+ * @author priyanshu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SinglePidRoundTripBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sessionLength;
+
+    @Param({"16", "256", "4096"})
+    private int messageLength;
+
+    @Param({"LINKED", "SPSC_BUSY_SPIN", "SPSC_YIELD", "SPSC_PARK"})
+    private String queue;
+
+    @Param({"FULL", "DELTA"})
+    private ProtocolMode protocol;
+
+    private String initialMessage;
+    private QueueType queueType;
+    private WaitStrategy waitStrategy;
+
+    @Setup
+    public void setUp() {
+        Logger.setMessageLoggingEnabled(false);
+        initialMessage = BenchmarkMessages.ofLength(messageLength);
+        if (queue.equals("LINKED")) {
+            queueType = QueueType.LINKED;
+            waitStrategy = WaitStrategy.PARK;
+        } else {
+            queueType = QueueType.SPSC;
+            waitStrategy = WaitStrategy.valueOf(queue.substring("SPSC_".length()));
+        }
+    }
+
+    @Benchmark
+    public void session() throws InterruptedException {
+        Player initiator = new Player("initiator", sessionLength, queueType.create(Constants.QUEUE_CAPACITY, waitStrategy));
+        Player receiver = new Player("receiver", sessionLength, queueType.create(Constants.QUEUE_CAPACITY, waitStrategy));
+        initiator.setOutgoingQueue(receiver.getIncomingQueue());
+        receiver.setOutgoingQueue(initiator.getIncomingQueue());
+        initiator.setProtocolMode(protocol);
+        receiver.setProtocolMode(protocol);
+
+        Thread t1 = new Thread(initiator);
+        Thread t2 = new Thread(receiver);
+        t1.start();
+        t2.start();
+        initiator.sendMessage(initialMessage);
+        t1.join();
+        t2.join();
+    }
+}
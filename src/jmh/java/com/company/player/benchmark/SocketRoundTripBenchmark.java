@@ -0,0 +1,154 @@
+package com.company.player.benchmark;
+
+import com.company.player.separatepid.Player;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MessageTransport;
+import com.company.player.separatepid.transport.StreamTransport;
+import com.company.player.util.Constants;
+import com.company.player.util.ProtocolMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete separate process style conversations over a loopback TCP socket.
+ * The responder thread mirrors {@code ServerNode.handleMessaging} and the benchmark thread mirrors
+ * {@code InitiatorNode.handleMessaging}. Both ends live in the benchmark JVM so the numbers isolate the
+ * socket and encoding cost from process start-up.
+ * <p>
+ * The {@code codec} parameter compares the binary frames of {@link StreamTransport} ({@code BINARY}),
+ * the same frames carrying only the appended suffix ({@code BINARY_DELTA}) and the original Java
+ * serialization of the whole {@link Player} ({@code SERIALIZATION}).
+ *
+ * @author priyanshu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SocketRoundTripBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sessionLength;
+
+    @Param({"16", "256", "4096"})
+    private int messageLength;
+
+    @Param({"BINARY", "BINARY_DELTA", "SERIALIZATION"})
+    private String codec;
+
+    private String initialMessage;
+    private ServerSocket serverSocket;
+    private Thread responder;
+    private Socket socket;
+    private MessageTransport transport;
+
+    @Setup
+    public void setUp() throws IOException {
+        initialMessage = BenchmarkMessages.ofLength(messageLength);
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        responder = new Thread(this::respond, "socket-benchmark-responder");
+        responder.setDaemon(true);
+        responder.start();
+
+        socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        transport = open(socket);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        socket.close();
+        serverSocket.close();
+        responder.join();
+    }
+
+    @Benchmark
+    public Player session() throws IOException {
+        Player player = new Player();
+        player.setMessage(initialMessage);
+        player.generateResponseFor(player);
+        transport.send(player);
+
+        Player reply = new Player();
+        while (transport.receive(reply)) {
+            if (reply.getMessageCount().intValue() == sessionLength && player.getMessageCount().intValue() == sessionLength) {
+                resetConversation(transport);
+                return reply;
+            }
+            respond(player, reply);
+            transport.send(player);
+        }
+        throw new EOFException("Responder closed the connection mid-session");
+    }
+
+    private MessageTransport open(Socket connected) throws IOException {
+        switch (codec) {
+            case "BINARY":
+                return StreamTransport.of(connected);
+            case "BINARY_DELTA":
+                return StreamTransport.of(connected, new FrameCodec(ProtocolMode.DELTA, Constants.CHECKSUM_INTERVAL));
+            default:
+                return new ObjectStreamTransport(connected);
+        }
+    }
+
+    private void respond(Player player, Player sender) {
+        if (codec.equals("BINARY_DELTA")) {
+            player.generateReplySuffix();
+        } else {
+            player.generateResponseFor(sender);
+        }
+    }
+
+    /**
+     * Lets both ends start the next session with an empty conversation, as a fresh connection would.
+     */
+    private static void resetConversation(MessageTransport link) {
+        if (link instanceof StreamTransport) {
+            ((StreamTransport) link).getCodec().resetConversation();
+        }
+    }
+
+    /**
+     * Server side of the conversation. Once the stop condition is reached the responder starts over
+     * with a fresh player and conversation, just as the benchmark thread does for its next session.
+     */
+    private void respond() {
+        try (Socket accepted = serverSocket.accept();
+             MessageTransport link = open(accepted)) {
+            Player player = new Player();
+            Player incoming = new Player();
+            while (link.receive(incoming)) {
+                respond(player, incoming);
+                link.send(player);
+                if (incoming.getMessageCount().intValue() == sessionLength && player.getMessageCount().intValue() == sessionLength) {
+                    player = new Player();
+                    resetConversation(link);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Benchmark tear down closed the connection
+        } catch (IOException e) {
+            throw new IllegalStateException("Responder failed", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.company.player.benchmark;
+
+import com.company.player.separatepid.Player;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MessageTransport;
+import com.company.player.separatepid.transport.TransportConfig;
+import com.company.player.separatepid.transport.TransportType;
+import com.company.player.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the separate process transports side by side. One operation is a single round trip:
+ * the benchmark thread sends a message of fixed size and a responder thread echoes it back over the
+ * same kind of link. Average time is therefore the latency of two hops and throughput the number of
+ * round trips per second.
+ * <p>
+ * Both ends are opened through {@link TransportConfig}, exactly as {@code ServerNode} and
+ * {@code InitiatorNode} open them, but they live in the benchmark JVM so that process start-up does
+ * not blur the numbers.
+ *
+ * @author priyanshu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportRoundTripBenchmark {
+
+    private static final long CONNECT_RETRY_MILLIS = 10;
+
+    @Param({"TCP", "UDS", "SHM", "UDP"})
+    private TransportType transport;
+
+    @Param({"16", "256", "4096"})
+    private int messageLength;
+
+    private Path directory;
+    private Thread responder;
+    private MessageTransport link;
+    private Player player;
+    private Player reply;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("transport-benchmark");
+        TransportConfig config = TransportConfig.builder()
+                .type(transport)
+                .port(freePort())
+                .udsPath(directory.resolve("session.sock"))
+                .shmFile(directory.resolve("session.shm"))
+                .build();
+        responder = new Thread(() -> respond(config), "transport-benchmark-responder");
+        responder.setDaemon(true);
+        responder.start();
+        link = connect(config);
+
+        player = new Player();
+        player.setName(Constants.PLAYER_1);
+        player.setId(Constants.PLAYER_1_ID);
+        player.setMessage(BenchmarkMessages.ofLength(messageLength));
+        reply = new Player();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        link.close();
+        responder.join();
+        Files.deleteIfExists(directory.resolve("session.sock"));
+        Files.deleteIfExists(directory.resolve("session.shm"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Player roundTrip() throws IOException {
+        link.send(player);
+        if (!link.receive(reply)) {
+            throw new EOFException("Responder closed the link");
+        }
+        return reply;
+    }
+
+    /**
+     * Retries until the responder thread has bound its end of the link.
+     */
+    private static MessageTransport connect(TransportConfig config) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                return config.connect(new FrameCodec());
+            } catch (IOException e) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Server side: echoes every message until the benchmark thread closes the link.
+     */
+    private static void respond(TransportConfig config) {
+        try (MessageTransport accepted = config.accept(new FrameCodec())) {
+            Player incoming = new Player();
+            while (accepted.receive(incoming)) {
+                accepted.send(incoming);
+            }
+        } catch (IOException e) {
+            // Benchmark tear down closed the link
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
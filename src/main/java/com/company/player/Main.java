@@ -1,12 +1,49 @@
 package com.company.player;
 
+import com.company.player.engine.SessionEngine;
+import com.company.player.engine.SessionResult;
+import com.company.player.flow.FlowPair;
+import com.company.player.jfr.PlayerEvents;
+import com.company.player.journal.Journal;
+import com.company.player.journal.JournalReader;
+import com.company.player.journal.JournalReplay;
+import com.company.player.journal.JournalSettings;
+import com.company.player.load.LoadGenerator;
+import com.company.player.load.LoadSettings;
+import com.company.player.load.LoadTarget;
 import com.company.player.separatepid.InitiatorNode;
+import com.company.player.separatepid.MultiplexedInitiatorNode;
+import com.company.player.separatepid.NioServerNode;
+import com.company.player.separatepid.NodeRole;
+import com.company.player.separatepid.SeparateProcessLauncher;
 import com.company.player.separatepid.ServerNode;
+import com.company.player.separatepid.SessionSettings;
+import com.company.player.separatepid.transport.TransportType;
+import com.company.player.singlepid.PairsSimulation;
 import com.company.player.singlepid.Player;
+import com.company.player.singlepid.QueueType;
+import com.company.player.singlepid.Topology;
+import com.company.player.singlepid.TopologySimulation;
+import com.company.player.singlepid.WaitStrategy;
+import com.company.player.util.Constants;
+import com.company.player.util.ConversationBuffer;
+import com.company.player.util.LogLevel;
 import com.company.player.util.Logger;
+import com.company.player.util.MetricsReporter;
+import com.company.player.util.MetricsSettings;
+import com.company.player.util.Options;
+import com.company.player.util.ProtocolMode;
+import com.company.player.util.SessionMetrics;
+import com.company.player.util.VirtualThreads;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Entry point for the messaging application.
@@ -17,42 +54,131 @@ import java.net.ConnectException;
  * For single process requirement, this class creates two threads within a single process.
  * <p>
  * The application defaults to running as a client and only initializes as a server
- * if a {@link ConnectException} occurs during the connection attempt.
+ * if a {@link ConnectException} occurs during the connection attempt. {@code --role} assigns the role
+ * explicitly, which is what the launcher of mode {@code 7} does for the two processes it starts.
+ * <p>
+ * Optional {@code --key=value} arguments after the mode tune the run, see {@link Options}.
+ * {@code --log-messages=false} mutes the per-message trace, e.g. for long sessions; {@code --log-level}
+ * and {@code --log-file} configure the {@link Logger} in general. {@code --jfr-events=true} makes the players
+ * emit flight recorder events, see {@link PlayerEvents}.
  * </p>
  *
  * @author priyanshu
  */
 public class Main {
 
-    public static void main(String[] args) throws IOException, ClassNotFoundException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         if (args.length > 0) {
             String input = args[0];
-            switch (input) {
-                case "1":
-                    singleProcessRunner();
-                    break;
-                case "2":
-                    separateProcessRunner();
-                    break;
-                default:
-                    Logger.log("Invalid input. Please enter 1 or 2.");
-                    break;
+            try {
+                Options options = Options.parse(args);
+                configureLogging(options, "1".equals(input) || "2".equals(input) || "3".equals(input));
+                PlayerEvents.setEnabled(options.getBoolean("jfr-events", false));
+                switch (input) {
+                    case "1":
+                        singleProcessRunner(options);
+                        break;
+                    case "2":
+                        separateProcessRunner(options);
+                        break;
+                    case "3":
+                        multiSessionServerRunner(options);
+                        break;
+                    case "4":
+                        concurrentPairsRunner(options);
+                        break;
+                    case "5":
+                        loadGeneratorRunner(options);
+                        break;
+                    case "6":
+                        topologyRunner(options);
+                        break;
+                    case "7":
+                        launcherRunner(args, options);
+                        break;
+                    case "8":
+                        replayRunner(options);
+                        break;
+                    case "9":
+                        engineRunner(options);
+                        break;
+                    default:
+                        Logger.log("Invalid input. Please enter 1, 2, 3, 4, 5, 6, 7, 8 or 9.");
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                Logger.log(LogLevel.ERROR, "Invalid option: " + e.getMessage());
             }
         } else {
             Logger.log("Please run the code only using the provided shell script.");
         }
     }
 
+    /**
+     * Applies the logging options: {@code --log-level=debug|info|warn|error|off} sets the threshold,
+     * {@code --log-messages=true|false} is a shorthand for {@code debug} and {@code info}, and
+     * {@code --log-file=<path>} appends the log to a file instead of printing it.
+     *
+     * @param options        The command line options.
+     * @param traceByDefault  Whether the per-message trace is written when neither level option is given.
+     * @throws IOException If the log file cannot be opened.
+     */
+    private static void configureLogging(Options options, boolean traceByDefault) throws IOException {
+        boolean trace = options.getBoolean("log-messages", traceByDefault);
+        Logger.setLevel(options.getEnum("log-level", trace ? LogLevel.DEBUG : LogLevel.INFO));
+        if (options.has("log-file")) {
+            Logger.setFile(Paths.get(options.get("log-file", null)));
+        }
+    }
+
     /**
      * Initiates the application in single process mode.
      * Creates two Player instances, sets up communication channels,
      * and starts them in separate threads. Sends an initial message
      * to start the conversation and waits for both threads to complete.
+     * <p>
+     * Supported options: {@code --queue=linked|spsc}, {@code --capacity=<slots>} and
+     * {@code --wait=busy-spin|yield|park} (the latter two apply to {@code spsc} only), as well as
+     * {@code --messages=<n>}, {@code --protocol=full|delta}, {@code --checksum-interval=<messages>}, the
+     * metrics options of {@link MetricsSettings#from(Options)} and the journal options of
+     * {@link JournalSettings#from(Options)}; both players record into the journal {@code single-process}.
+     * <p>
+     * {@code --flow-credits=<n>} runs a {@link FlowPair} instead, which streams the messages under credit
+     * based backpressure; {@code --consumer-work-micros=<micros>} slows its responder down per message.
+     *
+     * @param options The command line options.
+     * @throws IOException If the journal cannot be created.
      */
-    private static void singleProcessRunner() {
+    private static void singleProcessRunner(Options options) throws IOException {
+        if (options.getInt("flow-credits", 0) > 0) {
+            flowPairRunner(options);
+            return;
+        }
+        QueueType queueType = options.getEnum("queue", QueueType.LINKED);
+        int capacity = options.getInt("capacity", Constants.QUEUE_CAPACITY);
+        WaitStrategy waitStrategy = options.getEnum("wait", WaitStrategy.PARK);
+        int maxMessages = options.getInt("messages", Constants.MAX_MESSAGES);
+        ProtocolMode protocolMode = options.getEnum("protocol", ProtocolMode.FULL);
+        int checksumInterval = options.getInt("checksum-interval", Constants.CHECKSUM_INTERVAL);
+
         // Create player instances
-        Player initiator = new Player("initiator");
-        Player receiver = new Player("receiver");
+        Player initiator = new Player("initiator", maxMessages, queueType.create(capacity, waitStrategy));
+        Player receiver = new Player("receiver", maxMessages, queueType.create(capacity, waitStrategy));
+        MetricsSettings metricsSettings = MetricsSettings.from(options);
+        SessionMetrics initiatorMetrics = new SessionMetrics("initiator", metricsSettings.isEnabled());
+        SessionMetrics receiverMetrics = new SessionMetrics("receiver", metricsSettings.isEnabled());
+        initiator.setMetrics(initiatorMetrics);
+        receiver.setMetrics(receiverMetrics);
+        for (Player player : new Player[]{initiator, receiver}) {
+            player.setProtocolMode(protocolMode);
+            player.setChecksumInterval(checksumInterval);
+            player.setSession("single-process");
+        }
+        JournalSettings journalSettings = JournalSettings.from(options);
+        Journal journal = journalSettings.open("single-process", protocolMode);
+        initiator.setJournal(journal, Constants.PLAYER_1_ID);
+        receiver.setJournal(journal, Constants.PLAYER_2_ID);
+        MetricsReporter reporter = new MetricsReporter(metricsSettings, initiatorMetrics, receiverMetrics);
 
         // Establish communication channels
         initiator.setOutgoingQueue(receiver.getIncomingQueue());
@@ -76,24 +202,312 @@ public class Main {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Restore interrupted status
         }
+        reporter.close();
+        if (journal != null) {
+            journal.close();
+            Logger.log("Recorded " + journal.getRecordCount() + " messages in " + journalSettings.getDirectory());
+        }
+
+        if (protocolMode == ProtocolMode.DELTA) {
+            ConversationBuffer conversation = initiator.getConversation();
+            Logger.log("Conversation rebuilt by the initiator: " + conversation.length()
+                    + " characters, checksum " + Integer.toHexString(conversation.checksum()));
+            if (Logger.isEnabled(LogLevel.DEBUG)) {
+                Logger.logWithPid("Conversation: ", conversation.toString());
+            }
+        }
 
         // Log program termination
         Logger.log("Ending program: stop condition achieved.");
     }
 
     /**
-     * Initiates the application in separate process mode.
-     * Attempts to connect as a client using {@link InitiatorNode}.
-     * If the connection fails, starts the application as a server using {@link ServerNode}.
+     * Runs a flow controlled player pair in this process and logs its throughput and backpressure counters.
      *
+     * @param options The command line options.
+     */
+    private static void flowPairRunner(Options options) {
+        FlowPair pair = new FlowPair(options.getInt("messages", Constants.MAX_MESSAGES),
+                options.getInt("flow-credits", 0), options.getLong("consumer-work-micros", 0) * 1000);
+        try {
+            Logger.log("Flow pair finished: " + pair.run());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore interrupted status
+        }
+        Logger.log("Ending program: stop condition achieved.");
+    }
+
+    /**
+     * Initiates the application in separate process mode in the role given by {@code --role}:
+     * {@code server} runs a {@link ServerNode}, {@code initiator} an {@link InitiatorNode}. Without a role
+     * the process attempts to connect as a client using {@link InitiatorNode} and, if the connection
+     * fails, starts as a server using {@link ServerNode}.
+     * <p>
+     * The session is configured through {@link SessionSettings#from(Options)};
+     * both processes must be started with the same values. With {@code --streams} greater than one the
+     * conversations are multiplexed over one connection by a {@link MultiplexedInitiatorNode}; only the
+     * multi-session server demultiplexes them, so there is no server to fall back to.
+     *
+     * @param options The command line options.
      * @throws IOException If an I/O error occurs during connection.
-     * @throws ClassNotFoundException If a class cannot be found during deserialization.
      */
-    private static void separateProcessRunner() throws IOException, ClassNotFoundException {
+    private static void separateProcessRunner(Options options) throws IOException {
+        SessionSettings settings = SessionSettings.from(options);
+        NodeRole role = options.getEnum("role", NodeRole.AUTO);
+        if (settings.getStreams() > 1) {
+            if (role == NodeRole.SERVER) {
+                throw new IllegalArgumentException("multiplexed streams are served by the multi-session server, mode 3");
+            }
+            try (MultiplexedInitiatorNode initiator = new MultiplexedInitiatorNode(settings)) {
+                initiator.run();
+            }
+            return;
+        }
+        switch (role) {
+            case SERVER:
+                new ServerNode(settings);
+                break;
+            case INITIATOR:
+                new InitiatorNode(settings);
+                break;
+            default:
+                try {
+                    new InitiatorNode(settings); // Attempt to start initiator connection
+                } catch (Exception e) {
+                    new ServerNode(settings); // Start server on connection failure
+                }
+                break;
+        }
+    }
+
+    /**
+     * Runs a separate process session from a single command: a {@link SeparateProcessLauncher} starts the
+     * server and the initiator as child processes with explicit roles, starts the initiator as soon as the
+     * server signals that it is ready and reports the startup latency.
+     * <p>
+     * Supported options: {@code --ready-timeout=<millis>} (default 10000); all other options are passed on
+     * to both processes.
+     *
+     * @param args    The command line arguments, the mode first.
+     * @param options The command line options.
+     * @throws IOException          If a process cannot be started or the server does not become ready.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the processes.
+     */
+    private static void launcherRunner(String[] args, Options options) throws IOException, InterruptedException {
+        // Rejects invalid session options before any process is started
+        if (SessionSettings.from(options).getStreams() > 1) {
+            throw new IllegalArgumentException("the launcher runs one conversation; multiplexed streams need the "
+                    + "multi-session server, mode 3");
+        }
+        List<String> passedOn = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--ready-timeout")) {
+                passedOn.add(args[i]);
+            }
+        }
+        SeparateProcessLauncher launcher = new SeparateProcessLauncher(Main.class.getName(), passedOn,
+                options.getLong("ready-timeout", Constants.READY_TIMEOUT_MILLIS));
+        if (!launcher.run()) {
+            Logger.log(LogLevel.ERROR, "The separate process session did not finish cleanly");
+        }
+    }
+
+    /**
+     * Runs a multi-session server in this process. Any number of initiators started in
+     * separate process mode ({@code 2}) can connect to it concurrently; the server keeps running
+     * until the process is terminated and then reports its session counts.
+     * <p>
+     * Supported options: {@code --reactors=<threads>} (default: number of cores) plus the
+     * session options of {@link SessionSettings#from(Options)}; a {@code --ready-file} is created once the
+     * server listens.
+     *
+     * @param options The command line options.
+     * @throws IOException          If the server cannot be bound.
+     * @throws InterruptedException If the main thread is interrupted while serving.
+     */
+    private static void multiSessionServerRunner(Options options) throws IOException, InterruptedException {
+        int reactors = options.getInt("reactors", Runtime.getRuntime().availableProcessors());
+        SessionSettings settings = SessionSettings.from(options);
+        if (settings.getTransport().getType() != TransportType.TCP) {
+            throw new IllegalArgumentException("the multi-session server only supports --transport=tcp");
+        }
+        NioServerNode server = new NioServerNode(settings, settings.getTransport().getPort(), reactors);
+        settings.getTransport().signalReady();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            Logger.log("Server stopped: " + server.getCompletedSessions() + " sessions completed, "
+                    + server.getFailedSessions() + " failed, " + server.getOpenedSessions() + " accepted."
+                    + (settings.getCompression().isEnabled() ? " Server " + server.getCompressionStats() : ""));
+        }));
+        Logger.log("Multi-session server listening on port " + server.getPort() + " with " + reactors + " reactor threads");
+        server.awaitTermination();
+    }
+
+    /**
+     * Runs many single process player pairs concurrently, one virtual thread per player when the
+     * JVM supports it (Java 21+), and reports aggregate throughput and per-pair completion latency.
+     * The per-message trace is off unless {@code --log-messages=true} is given.
+     * <p>
+     * Supported options: {@code --pairs=<n>} (default 10000), {@code --messages=<n>},
+     * {@code --queue=linked|spsc}, {@code --capacity=<slots>} (default 4), {@code --wait=yield|park}
+     * and {@code --protocol=full|delta}.
+     *
+     * @param options The command line options.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the pairs.
+     */
+    private static void concurrentPairsRunner(Options options) throws InterruptedException {
+        PairsSimulation simulation = new PairsSimulation(
+                options.getInt("pairs", Constants.SIMULATED_PAIRS),
+                options.getInt("messages", Constants.MAX_MESSAGES),
+                options.getEnum("queue", QueueType.LINKED),
+                options.getInt("capacity", Constants.PAIR_QUEUE_CAPACITY),
+                options.getEnum("wait", WaitStrategy.PARK),
+                options.getEnum("protocol", ProtocolMode.FULL));
+        if (!VirtualThreads.isAvailable()) {
+            Logger.log("Virtual threads need Java 21 or later; falling back to one platform thread per player.");
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
         try {
-            new InitiatorNode(); // Attempt to start initiator connection
-        } catch (Exception e) {
-            new ServerNode(); // Start server on connection failure
+            Logger.log(simulation.run(executor).toString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs the load generator: many sessions, a fixed number of them at once, against the multi-session
+     * server ({@code --target=socket}) or in-process player pairs ({@code --target=queue}), with a progress
+     * report every {@code --report-interval} seconds and a final summary of throughput, errors and latencies.
+     * The per-message trace is off unless {@code --log-messages=true} is given.
+     * <p>
+     * Supported options: those of {@link LoadSettings#from(Options)}.
+     *
+     * @param options The command line options.
+     * @throws IOException          If the embedded server cannot be bound.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the sessions.
+     */
+    private static void loadGeneratorRunner(Options options) throws IOException, InterruptedException {
+        LoadSettings settings = LoadSettings.from(options);
+        if (settings.getTarget() == LoadTarget.QUEUE && !VirtualThreads.isAvailable()) {
+            Logger.log("Virtual threads need Java 21 or later; falling back to one platform thread per player.");
+        }
+        Logger.log(new LoadGenerator(settings).run().toString());
+    }
+
+    /**
+     * Runs a single process {@link Topology} for every combination of player and worker counts and
+     * reports the throughput of each run next to its speedup over the first worker count, which shows how
+     * the topology scales with cores and players. The per-message trace is off unless
+     * {@code --log-messages=true} is given.
+     * <p>
+     * Supported options: {@code --topology=ring|star|all-to-all} (default {@code ring}),
+     * {@code --players=<n,...>} (default 8), {@code --workers=<n,...>} (default powers of two up to the
+     * number of processors), {@code --messages=<n>}, {@code --queue=linked|spsc}, {@code --capacity=<slots>}
+     * and {@code --wait=busy-spin|yield|park} (default {@code yield}) for idle workers.
+     *
+     * @param options The command line options.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the players.
+     */
+    private static void topologyRunner(Options options) throws InterruptedException {
+        Topology topology = options.getEnum("topology", Topology.RING);
+        int[] playerCounts = options.getIntList("players", Constants.TOPOLOGY_PLAYERS);
+        int[] workerCounts = options.getIntList("workers", powersOfTwoUpTo(Runtime.getRuntime().availableProcessors()));
+        for (int players : playerCounts) {
+            double baseline = 0;
+            for (int workers : workerCounts) {
+                TopologySimulation.Result result = new TopologySimulation(topology, players,
+                        options.getInt("messages", Constants.MAX_MESSAGES),
+                        options.getEnum("queue", QueueType.LINKED),
+                        options.getInt("capacity", Constants.PAIR_QUEUE_CAPACITY),
+                        options.getEnum("wait", WaitStrategy.YIELD),
+                        workers).run();
+                if (baseline == 0) {
+                    baseline = result.messagesPerSecond();
+                }
+                Logger.log(String.format("%s, speedup %.2fx", result, result.messagesPerSecond() / baseline));
+            }
+        }
+    }
+
+    /**
+     * Replays a journal recorded in mode {@code 1} or {@code 2} into a fresh pair of players at full speed,
+     * compares every regenerated message with the recorded one and reports the mismatches and the throughput.
+     * <p>
+     * Supported options: {@code --journal=<directory>} (required) and {@code --journal-name=<name>}, which may
+     * be omitted if the directory holds a single journal.
+     *
+     * @param options The command line options.
+     * @throws IOException If the journal cannot be read.
+     */
+    private static void replayRunner(Options options) throws IOException {
+        if (!options.has("journal")) {
+            throw new IllegalArgumentException("--journal=<directory> is required to replay");
+        }
+        try (JournalReader reader = JournalReader.open(Paths.get(options.get("journal", null)),
+                options.get("journal-name", null))) {
+            JournalReplay.Result result = new JournalReplay(reader).run();
+            Logger.log(result.toString());
+            if (result.getMismatches() > 0) {
+                Logger.log(LogLevel.ERROR, "The replayed conversation differs from the journal");
+            }
+        }
+    }
+
+    /**
+     * Runs many separate process sessions back to back or in parallel in this process with a
+     * {@link SessionEngine}, and reports the setup and messaging time of the first session, which pays for
+     * the JIT warm-up, and of all sessions.
+     * <p>
+     * Supported options: {@code --sessions=<n>} (default 100), {@code --parallelism=<n>} (default 1, back to
+     * back), {@code --role=initiator|server|auto} (default {@code initiator}), {@code --embedded-server=true}
+     * and {@code --reactors=<threads>}, which serve initiator sessions from a multi-session server in this
+     * process, plus the session options of {@link SessionSettings#from(Options)}.
+     *
+     * @param options The command line options.
+     * @throws IOException          If the embedded server cannot be bound.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the sessions.
+     */
+    private static void engineRunner(Options options) throws IOException, InterruptedException {
+        SessionSettings settings = SessionSettings.from(options);
+        int sessions = options.getInt("sessions", Constants.ENGINE_SESSIONS);
+        NodeRole role = options.getEnum("role", NodeRole.INITIATOR);
+        NioServerNode server = null;
+        if (options.getBoolean("embedded-server", false)) {
+            if (role != NodeRole.INITIATOR || settings.getTransport().getType() != TransportType.TCP) {
+                throw new IllegalArgumentException("the embedded server serves initiator sessions over --transport=tcp");
+            }
+            server = new NioServerNode(settings, settings.getTransport().getPort(),
+                    options.getInt("reactors", Runtime.getRuntime().availableProcessors()));
+        }
+        long start = System.nanoTime();
+        try (SessionEngine engine = new SessionEngine(options.getInt("parallelism", 1)).start()) {
+            List<CompletableFuture<SessionResult>> results = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                results.add(engine.submit(settings, role));
+            }
+            engine.await();
+            if (!results.isEmpty()) {
+                try {
+                    Logger.log("First session: " + results.get(0).get());
+                } catch (ExecutionException e) {
+                    Logger.log(LogLevel.WARN, "First session failed: " + e.getCause());
+                }
+            }
+            Logger.log(String.format("Session engine ran %d sessions in %.1f ms with parallelism %d: %s",
+                    sessions, (System.nanoTime() - start) / 1e6, engine.getParallelism(), engine));
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static int[] powersOfTwoUpTo(int limit) {
+        int count = Integer.SIZE - Integer.numberOfLeadingZeros(limit);
+        int[] powers = new int[count];
+        for (int i = 0; i < count; i++) {
+            powers[i] = 1 << i;
         }
+        return powers;
     }
 }
@@ -0,0 +1,243 @@
+package com.company.player.engine;
+
+import com.company.player.separatepid.BaseNode;
+import com.company.player.separatepid.InitiatorNode;
+import com.company.player.separatepid.NodeRole;
+import com.company.player.separatepid.ServerNode;
+import com.company.player.separatepid.SessionSettings;
+import com.company.player.util.LatencyHistogram;
+import com.company.player.util.VirtualThreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs separate process sessions inside a long-lived host process instead of one process per session, so
+ * the JVM start and the JIT warm-up are paid once rather than per conversation. Every submitted session runs
+ * a {@link ServerNode} or an {@link InitiatorNode} on a thread of its own and completes a future with its
+ * {@link SessionResult}; at most {@code parallelism} sessions run at once and the others wait for a slot. On a
+ * runtime without virtual threads the sessions run on a fixed pool of {@code parallelism} platform threads, so
+ * thousands of queued sessions do not mean thousands of threads.
+ * <p>
+ * The engine has an explicit lifecycle: {@link #start()} it, {@link #submit(SessionSettings, NodeRole)}
+ * sessions back to back or in parallel, {@link #await()} the submitted ones and {@link #close()} it. A failed
+ * session completes its future exceptionally and does not affect the other sessions or the host.
+ * <p>
+ * Note: The sessions of one engine share the host's {@link com.company.player.util.Logger} and flight
+ * recorder settings. Sessions that run at once need links that do not collide, e.g. initiators of a
+ * multi-session server or servers on different ports. Every node names its journal after its player, so the
+ * sessions of an engine would collide in the journal directory too; the engine does not record journals.
+ *
+ * @author priyanshu
+ */
+public final class SessionEngine implements Closeable {
+
+    private final int parallelism;
+    private final Semaphore slots;
+    private final Set<CompletableFuture<SessionResult>> pending = ConcurrentHashMap.newKeySet();
+    private final LongAdder completedSessions = new LongAdder();
+    private final LongAdder incompleteSessions = new LongAdder();
+    private final LongAdder failedSessions = new LongAdder();
+    private final LatencyHistogram setupTimes = new LatencyHistogram();
+    private final LatencyHistogram messagingTimes = new LatencyHistogram();
+    private ExecutorService executor;
+    private boolean closed;
+
+    /**
+     * Creates an engine; it runs nothing until it is started.
+     *
+     * @param parallelism The number of sessions that may run at once; {@code 1} runs them back to back.
+     */
+    public SessionEngine(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.slots = new Semaphore(parallelism, true);
+    }
+
+    /**
+     * Starts the engine, after which sessions can be submitted.
+     *
+     * @return This engine.
+     * @throws IllegalStateException If the engine has already been started or closed.
+     */
+    public synchronized SessionEngine start() {
+        if (executor != null || closed) {
+            throw new IllegalStateException("the session engine can only be started once");
+        }
+        // Without virtual threads a queued session must not hold a platform thread while it waits for a slot
+        executor = VirtualThreads.newThreadPerTaskExecutor(parallelism);
+        return this;
+    }
+
+    /**
+     * Submits a session. {@link NodeRole#AUTO} connects as the initiator and serves the session as the
+     * server if no server is listening, like a separate process started without a role.
+     *
+     * @param settings The session settings; must match the peer's.
+     * @param role     The role of the engine in the session.
+     * @return A future completed with the result once the session has ended, or completed exceptionally
+     * if the session failed.
+     * @throws IllegalArgumentException If the settings multiplex streams, which a single node cannot run, or
+     *                                  record a journal, which the sessions would overwrite.
+     * @throws IllegalStateException    If the engine is not running.
+     */
+    public synchronized CompletableFuture<SessionResult> submit(SessionSettings settings, NodeRole role) {
+        if (executor == null || closed) {
+            throw new IllegalStateException("the session engine is not running");
+        }
+        if (settings.getStreams() > 1) {
+            throw new IllegalArgumentException("the session engine runs one conversation per session; "
+                    + "multiplexed streams need a MultiplexedInitiatorNode");
+        }
+        if (settings.getJournal().isEnabled()) {
+            throw new IllegalArgumentException("the sessions of an engine would record over each other's journal; "
+                    + "record a session on its own instead");
+        }
+        CompletableFuture<SessionResult> future = new CompletableFuture<>();
+        pending.add(future);
+        future.whenComplete((result, error) -> pending.remove(future));
+        long submittedAt = System.nanoTime();
+        executor.execute(() -> runSession(settings, role, submittedAt, future));
+        return future;
+    }
+
+    /**
+     * Blocks until every session submitted so far has ended, successfully or not. Sessions submitted
+     * while waiting may or may not be waited for.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void await() throws InterruptedException {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            // Every failure is reported through the future of its own session
+        }
+    }
+
+    /**
+     * Stops accepting sessions, waits for the submitted ones to end and releases the threads. Closing a
+     * closed engine does nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private void runSession(SessionSettings settings, NodeRole role, long submittedAt,
+                            CompletableFuture<SessionResult> future) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedSessions.increment();
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            long queuedNanos = System.nanoTime() - submittedAt;
+            SessionResult result = run(settings, role, queuedNanos);
+            (result.isCompleted() ? completedSessions : incompleteSessions).increment();
+            setupTimes.record(result.getSetupNanos());
+            messagingTimes.record(result.getMessagingNanos());
+            future.complete(result);
+        } catch (IOException | RuntimeException e) {
+            failedSessions.increment();
+            future.completeExceptionally(e);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private static SessionResult run(SessionSettings settings, NodeRole role, long queuedNanos) throws IOException {
+        switch (role) {
+            case SERVER:
+                return SessionResult.of(NodeRole.SERVER, new ServerNode(settings), queuedNanos);
+            case INITIATOR:
+                return SessionResult.of(NodeRole.INITIATOR, new InitiatorNode(settings), queuedNanos);
+            default:
+                BaseNode node;
+                try {
+                    node = new InitiatorNode(settings);
+                } catch (ConnectException e) {
+                    return SessionResult.of(NodeRole.SERVER, new ServerNode(settings), queuedNanos);
+                }
+                return SessionResult.of(NodeRole.INITIATOR, node, queuedNanos);
+        }
+    }
+
+    /**
+     * @return The number of sessions that may run at once.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return The number of sessions that reached their stop condition.
+     */
+    public long getCompletedSessions() {
+        return completedSessions.sum();
+    }
+
+    /**
+     * @return The number of sessions that ended before their stop condition, because the peer left.
+     */
+    public long getIncompleteSessions() {
+        return incompleteSessions.sum();
+    }
+
+    /**
+     * @return The number of sessions that failed with an error.
+     */
+    public long getFailedSessions() {
+        return failedSessions.sum();
+    }
+
+    /**
+     * @return The setup times of the sessions that ended.
+     */
+    public LatencyHistogram getSetupTimes() {
+        return setupTimes;
+    }
+
+    /**
+     * @return The messaging times of the sessions that ended.
+     */
+    public LatencyHistogram getMessagingTimes() {
+        return messagingTimes;
+    }
+
+    /**
+     * @return The session counts and the distributions of the setup and messaging times.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d sessions completed, %d ended early, %d failed; setup[%s] messaging[%s]",
+                getCompletedSessions(), getIncompleteSessions(), getFailedSessions(), setupTimes, messagingTimes);
+    }
+}
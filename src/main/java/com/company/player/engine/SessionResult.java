@@ -0,0 +1,105 @@
+package com.company.player.engine;
+
+import com.company.player.separatepid.BaseNode;
+import com.company.player.separatepid.NodeRole;
+
+/**
+ * The outcome of one session run by a {@link SessionEngine}: the role the engine played, whether the stop
+ * condition was reached, and where the time went: waiting for a free slot of the engine, setting up the link
+ * and exchanging messages.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class SessionResult {
+
+    private final NodeRole role;
+    private final boolean completed;
+    private final int messages;
+    private final long queuedNanos;
+    private final long setupNanos;
+    private final long messagingNanos;
+
+    /**
+     * Creates a result.
+     *
+     * @param role           The role the session was run in, {@link NodeRole#SERVER} or {@link NodeRole#INITIATOR}.
+     * @param completed      Whether the session reached its stop condition.
+     * @param messages       The number of messages the local player sent.
+     * @param queuedNanos    The time the session waited for a free slot of the engine.
+     * @param setupNanos     The time spent establishing the link.
+     * @param messagingNanos The time spent exchanging messages.
+     */
+    public SessionResult(NodeRole role, boolean completed, int messages, long queuedNanos, long setupNanos,
+                         long messagingNanos) {
+        this.role = role;
+        this.completed = completed;
+        this.messages = messages;
+        this.queuedNanos = queuedNanos;
+        this.setupNanos = setupNanos;
+        this.messagingNanos = messagingNanos;
+    }
+
+    /**
+     * Reads the result of a node whose session has ended.
+     *
+     * @param role        The role the node played.
+     * @param node        The node.
+     * @param queuedNanos The time the session waited for a free slot of the engine.
+     * @return The result.
+     */
+    static SessionResult of(NodeRole role, BaseNode node, long queuedNanos) {
+        return new SessionResult(role, node.isCompleted(), node.getMessageCount(), queuedNanos,
+                node.getSetupNanos(), node.getMessagingNanos());
+    }
+
+    /**
+     * @return The role the session was run in.
+     */
+    public NodeRole getRole() {
+        return role;
+    }
+
+    /**
+     * @return {@code true} if the session reached its stop condition, {@code false} if the peer left early.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The number of messages the local player sent.
+     */
+    public int getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return The time in nanoseconds the session waited for a free slot of the engine.
+     */
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    /**
+     * @return The time in nanoseconds spent accepting or connecting, creating the codec and opening the journal.
+     */
+    public long getSetupNanos() {
+        return setupNanos;
+    }
+
+    /**
+     * @return The time in nanoseconds from the established link to the end of the session.
+     */
+    public long getMessagingNanos() {
+        return messagingNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s session %s: %d messages, queued %.3f ms, setup %.3f ms, messaging %.3f ms",
+                role, completed ? "completed" : "ended early", messages, queuedNanos / 1e6, setupNanos / 1e6,
+                messagingNanos / 1e6);
+    }
+}
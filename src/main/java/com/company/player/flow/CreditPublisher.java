@@ -0,0 +1,232 @@
+package com.company.player.flow;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Flow.Publisher} that hands items to its single subscriber only as far as the subscriber has
+ * asked for them with {@link Flow.Subscription#request(long)}. A producer that runs out of credit either
+ * blocks in {@link #submit(Object)} or is turned away by {@link #offer(Object)}, so a slow consumer slows
+ * the producer down instead of letting items pile up. Both count the time without credit as a stall in the
+ * {@link FlowStats}.
+ * <p>
+ * Items are delivered on the producing thread, without an intermediate buffer; the subscriber decides where
+ * they wait. A request with a non-positive count cancels the subscription, and the subscriber is told with
+ * {@code onError} on the next attempt to publish, so every signal still comes from the producing thread.
+ * <p>
+ * Note: Only one thread may publish; any thread may request and cancel.
+ *
+ * @param <T> The type of the published items.
+ * @author priyanshu
+ */
+public final class CreditPublisher<T> implements Flow.Publisher<T> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition demandAvailable = lock.newCondition();
+    private final FlowStats stats;
+    private Flow.Subscriber<? super T> subscriber;
+    private long demand;
+    private boolean cancelled;
+    private boolean terminated;
+    private Throwable pendingError;
+    private long stalledSince;
+
+    /**
+     * Creates a publisher.
+     *
+     * @param stats The counters of the link this publisher feeds.
+     */
+    public CreditPublisher(FlowStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Accepts the first subscriber; any later subscriber is rejected with {@code onError}.
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        boolean accepted;
+        lock.lock();
+        try {
+            accepted = this.subscriber == null;
+            if (accepted) {
+                this.subscriber = subscriber;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (accepted) {
+            subscriber.onSubscribe(new CreditSubscription());
+        } else {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("a credit publisher has a single subscriber"));
+        }
+    }
+
+    /**
+     * Publishes an item, waiting for credit as long as the subscriber has none to give.
+     *
+     * @param item The item; it belongs to the subscriber until the subscriber asks for more.
+     * @return {@code true} if the item was delivered, {@code false} if the subscription was cancelled.
+     * @throws InterruptedException If the producing thread is interrupted while it waits for credit.
+     */
+    public boolean submit(T item) throws InterruptedException {
+        lock.lock();
+        try {
+            if (demand == 0 && !cancelled) {
+                long start = System.nanoTime();
+                while (demand == 0 && !cancelled) {
+                    demandAvailable.await();
+                }
+                stats.recordStall(System.nanoTime() - start);
+            }
+            if (!claimCredit()) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        deliver(item);
+        return true;
+    }
+
+    /**
+     * Publishes an item if the subscriber has credit for it, without waiting. A producer that is turned away
+     * is stalled until its next item is accepted.
+     *
+     * @param item The item; it belongs to the subscriber until the subscriber asks for more.
+     * @return {@code true} if the item was delivered, {@code false} if there is no credit or the subscription
+     * was cancelled.
+     */
+    public boolean offer(T item) {
+        lock.lock();
+        try {
+            if (demand == 0 && !cancelled) {
+                if (stalledSince == 0) {
+                    stalledSince = System.nanoTime();
+                }
+                return false;
+            }
+            if (stalledSince != 0) {
+                stats.recordStall(System.nanoTime() - stalledSince);
+                stalledSince = 0;
+            }
+            if (!claimCredit()) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        deliver(item);
+        return true;
+    }
+
+    /**
+     * Tells the subscriber that no more items follow.
+     */
+    public void complete() {
+        Flow.Subscriber<? super T> target = terminate();
+        if (target != null) {
+            target.onComplete();
+        }
+    }
+
+    /**
+     * Tells the subscriber that the producer failed and no more items follow.
+     *
+     * @param error The failure.
+     */
+    public void fail(Throwable error) {
+        Flow.Subscriber<? super T> target = terminate();
+        if (target != null) {
+            target.onError(error);
+        }
+    }
+
+    /**
+     * Takes one credit; must hold the lock. Delivers a pending error instead if the subscriber broke the
+     * request rules.
+     *
+     * @return {@code true} if the item may be delivered.
+     */
+    private boolean claimCredit() {
+        if (!cancelled) {
+            demand--;
+            return true;
+        }
+        if (pendingError != null && !terminated) {
+            terminated = true;
+            Throwable error = pendingError;
+            pendingError = null;
+            subscriber.onError(error);
+        }
+        return false;
+    }
+
+    private void deliver(T item) {
+        subscriber.onNext(item);
+        stats.recordDelivered();
+    }
+
+    private Flow.Subscriber<? super T> terminate() {
+        lock.lock();
+        try {
+            if (terminated || cancelled || subscriber == null) {
+                return null;
+            }
+            terminated = true;
+            return subscriber;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The credit the subscriber has granted and not yet used.
+     */
+    private final class CreditSubscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    cancelled = true;
+                    pendingError = new IllegalArgumentException("a subscriber must request a positive number of items: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                demandAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                demandAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
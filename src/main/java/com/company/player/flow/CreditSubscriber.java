@@ -0,0 +1,131 @@
+package com.company.player.flow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} that lets its publisher have at most {@code credits} items in flight. Delivered
+ * items wait in a bounded inbox until the consuming thread {@linkplain #take() takes} them, and credit is
+ * only given back once an item has been consumed, so the inbox can never overflow and a consumer that
+ * falls behind stalls the producer instead of growing the heap.
+ * <p>
+ * Credit is returned in batches of half the credits, which keeps the request traffic low while the
+ * producer always has credit left for the second half. The depth of the inbox is recorded into the
+ * {@link FlowStats} of the link.
+ * <p>
+ * Note: One thread consumes. A taken item belongs to the consumer until it takes the next one, so a
+ * publisher can recycle a pool of {@code credits + 1} items.
+ *
+ * @param <T> The type of the consumed items.
+ * @author priyanshu
+ */
+public final class CreditSubscriber<T> implements Flow.Subscriber<T> {
+
+    private static final Object END = new Object();
+
+    private final int credits;
+    private final int batch;
+    private final BlockingQueue<Object> inbox;
+    private final FlowStats stats;
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+    private boolean holding;
+    private int consumed;
+
+    /**
+     * Creates a subscriber.
+     *
+     * @param credits The number of items the publisher may have in flight.
+     * @param stats   The counters of the link this subscriber drains.
+     */
+    public CreditSubscriber(int credits, FlowStats stats) {
+        if (credits <= 0) {
+            throw new IllegalArgumentException("credits must be positive: " + credits);
+        }
+        this.credits = credits;
+        this.batch = Math.max(1, credits / 2);
+        this.inbox = new ArrayBlockingQueue<>(credits + 1); // One more slot for the end of the stream
+        this.stats = stats;
+    }
+
+    /**
+     * Grants the publisher the initial credits; a second subscription is cancelled.
+     *
+     * @param subscription The subscription.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(credits);
+    }
+
+    /**
+     * Puts a delivered item into the inbox.
+     *
+     * @param item The item.
+     * @throws IllegalStateException If the publisher delivered more items than it had credit for.
+     */
+    @Override
+    public void onNext(T item) {
+        if (!inbox.offer(item)) {
+            subscription.cancel();
+            throw new IllegalStateException("publisher delivered more than " + credits + " items in flight");
+        }
+        stats.recordDepth(inbox.size());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        inbox.offer(END);
+    }
+
+    @Override
+    public void onComplete() {
+        inbox.offer(END);
+    }
+
+    /**
+     * Returns the item taken before to the publisher's credit and waits for the next one.
+     *
+     * @return The next item, or {@code null} once the publisher has completed.
+     * @throws InterruptedException  If the consuming thread is interrupted while it waits.
+     * @throws IllegalStateException If the publisher failed.
+     */
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        if (holding) {
+            holding = false;
+            if (++consumed == batch) {
+                subscription.request(consumed);
+                consumed = 0;
+            }
+        }
+        Object next = inbox.take();
+        stats.recordDepth(inbox.size());
+        if (next == END) {
+            inbox.offer(END); // Later calls see the end as well
+            if (error != null) {
+                throw new IllegalStateException("publisher failed: " + error.getMessage(), error);
+            }
+            return null;
+        }
+        holding = true;
+        return (T) next;
+    }
+
+    /**
+     * Stops the publisher from delivering further items.
+     */
+    public void cancel() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.company.player.flow;
+
+import com.company.player.util.LatencyHistogram;
+import com.company.player.util.TextBuffer;
+
+/**
+ * A single process player pair that streams instead of taking turns: the initiator sends its messages as
+ * fast as credit allows and the responder answers each one, both directions linked by a
+ * {@link CreditPublisher} and a {@link CreditSubscriber}. Every message is an independent reply to the
+ * greeting, like in a pipelined separate process session, so the responder's reply to message {@code n}
+ * carries its own counter {@code n}.
+ * <p>
+ * At most {@code credits} messages wait in either direction, so the memory of the pair stays bounded no
+ * matter how far the responder falls behind. An optional amount of busy work per message makes the
+ * responder the bottleneck, which shows up as producer stalls rather than as a growing queue.
+ * <p>
+ * Each side recycles a pool of {@code credits + 1} messages, see {@link CreditSubscriber}, so a hop does not
+ * allocate once the message buffers have grown.
+ *
+ * @author priyanshu
+ */
+public final class FlowPair {
+
+    private static final String GREETING = "Hello!";
+
+    private final int maxMessages;
+    private final int credits;
+    private final long workNanos;
+
+    /**
+     * Configures a pair.
+     *
+     * @param maxMessages The number of messages each player sends.
+     * @param credits     The number of messages either player may have in flight.
+     * @param workNanos   The busy work the responder spends on every message, {@code 0} for none.
+     */
+    public FlowPair(int maxMessages, int credits, long workNanos) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive: " + maxMessages);
+        }
+        if (credits <= 0) {
+            throw new IllegalArgumentException("credits must be positive: " + credits);
+        }
+        this.maxMessages = maxMessages;
+        this.credits = credits;
+        this.workNanos = Math.max(0, workNanos);
+    }
+
+    /**
+     * Runs the pair: the responder on a thread of its own, the initiator on the calling thread.
+     *
+     * @return The throughput, the round trips and the backpressure counters of both directions.
+     * @throws InterruptedException  If the calling thread is interrupted.
+     * @throws IllegalStateException If a reply does not answer the message it should.
+     */
+    public Result run() throws InterruptedException {
+        FlowStats messageStats = new FlowStats("initiator -> responder", credits);
+        FlowStats replyStats = new FlowStats("responder -> initiator", credits);
+        CreditPublisher<Hop> messages = new CreditPublisher<>(messageStats);
+        CreditSubscriber<Hop> inbox = new CreditSubscriber<>(credits, messageStats);
+        messages.subscribe(inbox);
+        CreditPublisher<Hop> replies = new CreditPublisher<>(replyStats);
+        CreditSubscriber<Hop> replyInbox = new CreditSubscriber<>(credits, replyStats);
+        replies.subscribe(replyInbox);
+
+        Thread responder = new Thread(() -> respond(inbox, replies), "flow-responder");
+        long start = System.nanoTime();
+        responder.start();
+        LatencyHistogram roundTrip = new LatencyHistogram();
+        try {
+            initiate(messages, replyInbox, roundTrip);
+        } finally {
+            messages.complete();
+            inbox.cancel();
+            replyInbox.cancel();
+            responder.join();
+        }
+        return new Result(maxMessages, System.nanoTime() - start, roundTrip, messageStats, replyStats);
+    }
+
+    /**
+     * Sends while there is credit and collects replies whenever there is none, until every message has
+     * been answered.
+     */
+    private void initiate(CreditPublisher<Hop> messages, CreditSubscriber<Hop> replies, LatencyHistogram roundTrip)
+            throws InterruptedException {
+        Hop[] pool = Hop.pool(credits + 1);
+        int sent = 0;
+        int received = 0;
+        Hop next = null;
+        while (received < maxMessages) {
+            if (sent < maxMessages) {
+                if (next == null) {
+                    next = pool[sent % pool.length];
+                    next.text.setTo(GREETING).appendReplySuffix(sent);
+                    next.counter = sent;
+                    next.sentAtNanos = System.nanoTime();
+                }
+                if (messages.offer(next)) {
+                    next = null;
+                    sent++;
+                    continue;
+                }
+            }
+            Hop reply = replies.take();
+            if (reply == null) {
+                throw new IllegalStateException("responder stopped after " + received + " replies");
+            }
+            if (reply.counter != received) {
+                throw new IllegalStateException("reply " + reply.counter + " received for message " + received);
+            }
+            roundTrip.record(System.nanoTime() - reply.sentAtNanos);
+            received++;
+        }
+    }
+
+    /**
+     * Answers every message until the initiator completes; a failure is passed on to the initiator.
+     */
+    private void respond(CreditSubscriber<Hop> inbox, CreditPublisher<Hop> replies) {
+        Hop[] pool = Hop.pool(credits + 1);
+        int counter = 0;
+        try {
+            Hop message;
+            while ((message = inbox.take()) != null) {
+                work();
+                Hop reply = pool[counter % pool.length];
+                reply.text.setTo(message.text).appendReplySuffix(message.counter);
+                reply.counter = counter++;
+                reply.sentAtNanos = message.sentAtNanos;
+                if (!replies.submit(reply)) {
+                    return;
+                }
+            }
+            replies.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            replies.fail(e);
+        }
+    }
+
+    private void work() {
+        if (workNanos == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < workNanos) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * A message in flight: its text, its counter and when the initiator sent the message it belongs to.
+     */
+    private static final class Hop {
+        private final TextBuffer text = new TextBuffer();
+        private int counter;
+        private long sentAtNanos;
+
+        static Hop[] pool(int size) {
+            Hop[] pool = new Hop[size];
+            for (int i = 0; i < size; i++) {
+                pool[i] = new Hop();
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * The outcome of a run: the throughput, the round trips and the backpressure counters.
+     */
+    public static final class Result {
+        private final int messages;
+        private final long elapsedNanos;
+        private final LatencyHistogram roundTrip;
+        private final FlowStats messageStats;
+        private final FlowStats replyStats;
+
+        Result(int messages, long elapsedNanos, LatencyHistogram roundTrip, FlowStats messageStats,
+               FlowStats replyStats) {
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+            this.roundTrip = roundTrip;
+            this.messageStats = messageStats;
+            this.replyStats = replyStats;
+        }
+
+        /**
+         * @return The number of messages answered per second.
+         */
+        public double messagesPerSecond() {
+            return messages * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return The counters of the initiator's messages.
+         */
+        public FlowStats getMessageStats() {
+            return messageStats;
+        }
+
+        /**
+         * @return The counters of the responder's replies.
+         */
+        public FlowStats getReplyStats() {
+            return replyStats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Flow pair answered %d messages in %.1f ms, %.0f msg/s; rtt[%s]; %s; %s",
+                    messages, elapsedNanos / 1e6, messagesPerSecond(), roundTrip, messageStats, replyStats);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.company.player.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The backpressure counters of one credit-controlled link: how many items went through, how often and for
+ * how long the producer stalled for lack of credit, and how many items waited for the consumer. The queue
+ * depth never exceeds the credits, which is what keeps the memory of the link bounded under overload.
+ * <p>
+ * The producer and the consumer of a link may record concurrently.
+ *
+ * @author priyanshu
+ */
+public final class FlowStats {
+
+    private final String name;
+    private final int credits;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder stalledNanos = new LongAdder();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /**
+     * Creates the counters of a link.
+     *
+     * @param name    The name of the link in reports.
+     * @param credits The number of items the consumer lets the producer have in flight.
+     */
+    public FlowStats(String name, int credits) {
+        this.name = name;
+        this.credits = credits;
+    }
+
+    /**
+     * Records an item handed to the consumer.
+     */
+    void recordDelivered() {
+        delivered.increment();
+    }
+
+    /**
+     * Records a period the producer waited for credit.
+     *
+     * @param nanos The length of the stall.
+     */
+    void recordStall(long nanos) {
+        stalls.increment();
+        stalledNanos.add(nanos);
+    }
+
+    /**
+     * Records the number of items that currently wait for the consumer.
+     *
+     * @param items The queue depth.
+     */
+    void recordDepth(int items) {
+        depth.set(items);
+        if (items > maxDepth.get()) {
+            maxDepth.accumulateAndGet(items, Math::max);
+        }
+    }
+
+    /**
+     * @return The number of items handed to the consumer.
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return The number of times the producer had to wait for credit.
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * @return The total time in nanoseconds the producer waited for credit.
+     */
+    public long getStalledNanos() {
+        return stalledNanos.sum();
+    }
+
+    /**
+     * @return The number of items that waited for the consumer when last recorded.
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * @return The largest number of items that waited for the consumer at once; at most the credits.
+     */
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return The number of items the consumer lets the producer have in flight.
+     */
+    public int getCredits() {
+        return credits;
+    }
+
+    /**
+     * @return The counters of the link.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d delivered, %d stalls for %.1f ms, queue depth %d (max %d of %d credits)",
+                name, getDelivered(), getStalls(), getStalledNanos() / 1e6, getDepth(), getMaxDepth(), credits);
+    }
+}
@@ -0,0 +1,109 @@
+package com.company.player.flow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} that stands in for a consumer at the other end of a link. Each item is
+ * transmitted as it is delivered and stays in flight until the peer acknowledges it, e.g. with its reply;
+ * only then is its credit returned to the publisher. The publisher can therefore never get more than
+ * {@code credits} items ahead of the peer, which bounds what the link and the peer have to buffer.
+ * <p>
+ * The number of items in flight is recorded as the queue depth of the link.
+ * <p>
+ * Note: Items are transmitted on the publishing thread; acknowledgements must come from the same thread.
+ *
+ * @param <T> The type of the transmitted items.
+ * @author priyanshu
+ */
+public abstract class RemoteSubscriber<T> implements Flow.Subscriber<T> {
+
+    private final int credits;
+    private final FlowStats stats;
+    private Flow.Subscription subscription;
+    private int inFlight;
+
+    /**
+     * Creates a subscriber.
+     *
+     * @param credits  The number of items that may be in flight.
+     * @param inFlight The number of items that were sent before the subscription and are in flight already.
+     * @param stats    The counters of the link.
+     */
+    protected RemoteSubscriber(int credits, int inFlight, FlowStats stats) {
+        if (credits <= 0 || inFlight < 0 || inFlight > credits) {
+            throw new IllegalArgumentException("credits must be positive and cover the " + inFlight
+                    + " items in flight: " + credits);
+        }
+        this.credits = credits;
+        this.inFlight = inFlight;
+        this.stats = stats;
+    }
+
+    /**
+     * Sends an item to the peer.
+     *
+     * @param item The item.
+     * @throws IOException If the item cannot be sent.
+     */
+    protected abstract void transmit(T item) throws IOException;
+
+    /**
+     * Grants the publisher the credits that are not used by items already in flight.
+     *
+     * @param subscription The subscription.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (credits > inFlight) {
+            subscription.request(credits - inFlight);
+        }
+    }
+
+    /**
+     * Transmits a delivered item.
+     *
+     * @param item The item.
+     * @throws UncheckedIOException If the item cannot be sent; thrown to the publishing thread.
+     */
+    @Override
+    public void onNext(T item) {
+        try {
+            transmit(item);
+        } catch (IOException e) {
+            subscription.cancel();
+            throw new UncheckedIOException(e);
+        }
+        stats.recordDepth(++inFlight);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /**
+     * Records that the peer has consumed the oldest item in flight and returns its credit.
+     *
+     * @throws IllegalStateException If no item is in flight.
+     */
+    public void acknowledge() {
+        if (inFlight == 0) {
+            throw new IllegalStateException("acknowledgement without an item in flight");
+        }
+        stats.recordDepth(--inFlight);
+        subscription.request(1);
+    }
+
+    /**
+     * @return The number of items transmitted and not yet acknowledged.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+}
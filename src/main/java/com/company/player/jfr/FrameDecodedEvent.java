@@ -0,0 +1,53 @@
+package com.company.player.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The deserialization of a wire frame into a player's state by the
+ * {@link com.company.player.separatepid.transport.FrameCodec}.
+ *
+ * @author priyanshu
+ */
+@Name("com.company.player.FrameDecoded")
+@Label("Frame Decoded")
+@Category({"Player", "Serialization"})
+@Description("A frame is decoded into a player's state")
+public final class FrameDecodedEvent extends Event {
+
+    @Label("Session")
+    String session;
+
+    @Label("Counter")
+    @Description("The sender's message count")
+    int counter;
+
+    @Label("Frame Size")
+    @Description("The size of the frame body, length prefix excluded")
+    @DataAmount
+    int frameSize;
+
+    FrameDecodedEvent() {
+    }
+
+    /**
+     * Ends the event and commits it, if the recording asks for it.
+     *
+     * @param session   The session of the connection, or {@code null}.
+     * @param counter   The sender's message count.
+     * @param frameSize The size of the frame body in bytes.
+     */
+    public void finish(String session, int counter, int frameSize) {
+        end();
+        if (shouldCommit()) {
+            this.session = session;
+            this.counter = counter;
+            this.frameSize = frameSize;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.company.player.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The serialization of a player's state into a wire frame by the
+ * {@link com.company.player.separatepid.transport.FrameCodec}.
+ *
+ * @author priyanshu
+ */
+@Name("com.company.player.FrameEncoded")
+@Label("Frame Encoded")
+@Category({"Player", "Serialization"})
+@Description("A player's state is encoded into a frame")
+public final class FrameEncodedEvent extends Event {
+
+    @Label("Session")
+    String session;
+
+    @Label("Counter")
+    @Description("The sender's message count")
+    int counter;
+
+    @Label("Frame Size")
+    @Description("The size of the frame, length prefix included")
+    @DataAmount
+    int frameSize;
+
+    FrameEncodedEvent() {
+    }
+
+    /**
+     * Ends the event and commits it, if the recording asks for it.
+     *
+     * @param session   The session of the connection, or {@code null}.
+     * @param counter   The sender's message count.
+     * @param frameSize The size of the frame in bytes.
+     */
+    public void finish(String session, int counter, int frameSize) {
+        end();
+        if (shouldCommit()) {
+            this.session = session;
+            this.counter = counter;
+            this.frameSize = frameSize;
+            commit();
+        }
+    }
+}
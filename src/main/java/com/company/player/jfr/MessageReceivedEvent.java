@@ -0,0 +1,67 @@
+package com.company.player.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A player receiving a message. The duration is the time the player waited for it: blocked on the transport
+ * in a separate process session, which covers the transfer and the peer's work. The latency is the time
+ * since the message was sent: the queueing time in a single process session, the hop latency over the
+ * transport otherwise; {@code 0} if the message carries no send time.
+ *
+ * @author priyanshu
+ */
+@Name("com.company.player.MessageReceived")
+@Label("Message Received")
+@Category({"Player", "Messaging"})
+@Description("A player receives a message")
+public final class MessageReceivedEvent extends Event {
+
+    @Label("Session")
+    String session;
+
+    @Label("Player")
+    String player;
+
+    @Label("Counter")
+    @Description("The sender's message count; in a single process, the number of earlier messages from the same sender")
+    int counter;
+
+    @Label("Payload Length")
+    @Description("The length of the message text in characters")
+    int payloadLength;
+
+    @Label("Latency")
+    @Description("Time from sending to receiving: queueing time in a single process, hop latency across processes")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    MessageReceivedEvent() {
+    }
+
+    /**
+     * Ends the event and commits it, if the recording asks for it.
+     *
+     * @param session       The session the message belongs to.
+     * @param player        The receiving player.
+     * @param counter       The sender's message count; in a single process, the number of earlier messages
+     *                      from the same sender.
+     * @param payloadLength The length of the message text in characters.
+     * @param latency       The time since the message was sent in nanoseconds, or {@code 0} if unknown.
+     */
+    public void finish(String session, String player, int counter, int payloadLength, long latency) {
+        end();
+        if (shouldCommit()) {
+            this.session = session;
+            this.player = player;
+            this.counter = counter;
+            this.payloadLength = payloadLength;
+            this.latency = latency;
+            commit();
+        }
+    }
+}
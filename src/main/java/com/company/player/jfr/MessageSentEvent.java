@@ -0,0 +1,57 @@
+package com.company.player.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A player handing a message over: to the peer's queue in a single process session, where the duration
+ * includes waiting for space in a full queue, or to the transport in a separate process session, where it
+ * includes encoding and writing the frame.
+ *
+ * @author priyanshu
+ */
+@Name("com.company.player.MessageSent")
+@Label("Message Sent")
+@Category({"Player", "Messaging"})
+@Description("A player hands a message to the queue or transport")
+public final class MessageSentEvent extends Event {
+
+    @Label("Session")
+    String session;
+
+    @Label("Player")
+    String player;
+
+    @Label("Counter")
+    @Description("The sender's message count after sending")
+    int counter;
+
+    @Label("Payload Length")
+    @Description("The length of the message text in characters")
+    int payloadLength;
+
+    MessageSentEvent() {
+    }
+
+    /**
+     * Ends the event and commits it, if the recording asks for it.
+     *
+     * @param session       The session the message belongs to.
+     * @param player        The sending player.
+     * @param counter       The sender's message count after sending.
+     * @param payloadLength The length of the message text in characters.
+     */
+    public void finish(String session, String player, int counter, int payloadLength) {
+        end();
+        if (shouldCommit()) {
+            this.session = session;
+            this.player = player;
+            this.counter = counter;
+            this.payloadLength = payloadLength;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.company.player.jfr;
+
+/**
+ * Switches the player's JDK Flight Recorder events on. The events are only created when the switch is on,
+ * which {@code --jfr-events=true} does at startup, so a disabled run pays one static field read per call site.
+ * When it is on, a recording started with {@code -XX:StartFlightRecording} or from JDK Mission Control
+ * captures them like any built-in event, see the event classes of this package:
+ * <ul>
+ *     <li>{@link FrameEncodedEvent} and {@link FrameDecodedEvent}: the serialization of a frame.</li>
+ *     <li>{@link MessageSentEvent}: handing a message to the queue or the transport.</li>
+ *     <li>{@link MessageReceivedEvent}: waiting for a message, with its queueing time or hop latency.</li>
+ *     <li>{@link ReplyEvent}: generating the reply.</li>
+ * </ul>
+ * Together they attribute a hop's latency to encoding, transfer, queueing and reply work.
+ *
+ * @author priyanshu
+ */
+public final class PlayerEvents {
+
+    /**
+     * Written once at startup, before any player or node thread starts.
+     */
+    private static boolean enabled;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private PlayerEvents() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Turns event emission on or off; must be called before the players start.
+     *
+     * @param on {@code true} to emit events.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return Whether events are emitted.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Begins timing a send.
+     *
+     * @return The started event, or {@code null} if events are disabled.
+     */
+    public static MessageSentEvent beginSend() {
+        if (!enabled) {
+            return null;
+        }
+        MessageSentEvent event = new MessageSentEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins timing the wait for a message.
+     *
+     * @return The started event, or {@code null} if events are disabled.
+     */
+    public static MessageReceivedEvent beginReceive() {
+        if (!enabled) {
+            return null;
+        }
+        MessageReceivedEvent event = new MessageReceivedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins timing the generation of a reply.
+     *
+     * @return The started event, or {@code null} if events are disabled.
+     */
+    public static ReplyEvent beginReply() {
+        if (!enabled) {
+            return null;
+        }
+        ReplyEvent event = new ReplyEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins timing the encoding of a frame.
+     *
+     * @return The started event, or {@code null} if events are disabled.
+     */
+    public static FrameEncodedEvent beginEncode() {
+        if (!enabled) {
+            return null;
+        }
+        FrameEncodedEvent event = new FrameEncodedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins timing the decoding of a frame.
+     *
+     * @return The started event, or {@code null} if events are disabled.
+     */
+    public static FrameDecodedEvent beginDecode() {
+        if (!enabled) {
+            return null;
+        }
+        FrameDecodedEvent event = new FrameDecodedEvent();
+        event.begin();
+        return event;
+    }
+}
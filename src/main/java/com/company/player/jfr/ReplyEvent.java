@@ -0,0 +1,56 @@
+package com.company.player.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A player generating its reply to a received message: copying the conversation in full mode, or
+ * rebuilding it and verifying its checksum in a single process delta session, and appending the suffix.
+ *
+ * @author priyanshu
+ */
+@Name("com.company.player.Reply")
+@Label("Reply")
+@Category({"Player", "Messaging"})
+@Description("A player generates a reply")
+public final class ReplyEvent extends Event {
+
+    @Label("Session")
+    String session;
+
+    @Label("Player")
+    String player;
+
+    @Label("Counter")
+    @Description("The replying player's message count after the reply")
+    int counter;
+
+    @Label("Payload Length")
+    @Description("The length of the reply text in characters")
+    int payloadLength;
+
+    ReplyEvent() {
+    }
+
+    /**
+     * Ends the event and commits it, if the recording asks for it.
+     *
+     * @param session       The session the reply belongs to.
+     * @param player        The replying player.
+     * @param counter       The replying player's message count after the reply.
+     * @param payloadLength The length of the reply text in characters.
+     */
+    public void finish(String session, String player, int counter, int payloadLength) {
+        end();
+        if (shouldCommit()) {
+            this.session = session;
+            this.player = player;
+            this.counter = counter;
+            this.payloadLength = payloadLength;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.company.player.journal;
+
+import com.company.player.util.ProtocolMode;
+import com.company.player.util.SessionMetrics;
+import com.company.player.util.TextBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only log of the hops of one conversation, in the {@link JournalFormat}. Every message a player
+ * sends is appended once, with a sequence number and the time it was sent, so that a {@link JournalReader}
+ * can later replay the conversation.
+ * <p>
+ * The journal is split into fixed size segments that are memory-mapped, so an append is a copy into memory
+ * and never a system call. The mapped pages are forced to disk once every {@code flushRecords} records
+ * and when the journal is closed, a group flush that bounds what a crash can lose without paying for a
+ * flush per message. A full segment is forced and the next one is mapped.
+ * <p>
+ * Opening a journal replaces an earlier journal of the same name in the directory. Appends are
+ * synchronized, so both players of a single process session can share one journal.
+ *
+ * @author priyanshu
+ */
+public final class Journal implements Closeable {
+
+    private final Path directory;
+    private final String name;
+    private final ProtocolMode protocolMode;
+    private final int segmentSize;
+    private final int flushRecords;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+    private long sequence;
+    private int unflushed;
+    private boolean closed;
+
+    private Journal(Path directory, String name, ProtocolMode protocolMode, int segmentSize, int flushRecords) {
+        this.directory = directory;
+        this.name = name;
+        this.protocolMode = protocolMode;
+        this.segmentSize = segmentSize;
+        this.flushRecords = flushRecords;
+    }
+
+    /**
+     * Creates the journal directory if needed, removes the segments of an earlier journal of the same name
+     * and maps the first segment.
+     *
+     * @param directory    The directory the segments are written to.
+     * @param name         The journal name, the prefix of its segment files.
+     * @param protocolMode The protocol mode of the recorded session, which decides how it is replayed.
+     * @param segmentSize  The size of a segment file in bytes.
+     * @param flushRecords The number of records appended between two flushes to disk.
+     * @return The journal.
+     * @throws IOException If the directory or the first segment cannot be created.
+     */
+    public static Journal open(Path directory, String name, ProtocolMode protocolMode, int segmentSize,
+                               int flushRecords) throws IOException {
+        if (segmentSize < JournalFormat.MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least " + JournalFormat.MIN_SEGMENT_SIZE + ": " + segmentSize);
+        }
+        if (flushRecords <= 0) {
+            throw new IllegalArgumentException("flushRecords must be positive: " + flushRecords);
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (name.equals(JournalFormat.journalName(file.getFileName().toString()))) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Journal journal = new Journal(directory, name, protocolMode, segmentSize, flushRecords);
+        journal.nextSegment();
+        return journal;
+    }
+
+    /**
+     * Appends a hop.
+     *
+     * @param senderId The id of the player that sent the message.
+     * @param counter  The sender's message count after sending it.
+     * @param text     The message as sent.
+     * @throws IOException              If the next segment cannot be created.
+     * @throws IllegalArgumentException If the message does not fit into an empty segment.
+     */
+    public synchronized void append(short senderId, int counter, TextBuffer text) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("journal " + name + " is closed");
+        }
+        long timestamp = SessionMetrics.wallClockNanos();
+        if (!write(timestamp, senderId, counter, text)) {
+            nextSegment();
+            if (!write(timestamp, senderId, counter, text)) {
+                throw new IllegalArgumentException("a message of " + text.length()
+                        + " characters does not fit into a journal segment of " + segmentSize + " bytes");
+            }
+        }
+        sequence++;
+        if (++unflushed >= flushRecords) {
+            segment.force();
+            unflushed = 0;
+        }
+    }
+
+    /**
+     * @return The number of records appended so far.
+     */
+    public synchronized long getRecordCount() {
+        return sequence;
+    }
+
+    /**
+     * Writes a record at the end of the current segment, its length last.
+     *
+     * @return {@code false} if the record does not fit into the rest of the segment.
+     */
+    private boolean write(long timestamp, short senderId, int counter, TextBuffer text) {
+        int start = segment.position();
+        if (segment.remaining() < JournalFormat.RECORD_HEADER_SIZE + text.length()) {
+            return false;
+        }
+        segment.position(start + Integer.BYTES);
+        segment.putLong(sequence).putLong(timestamp).putShort(senderId).putInt(counter);
+        try {
+            text.encodeUtf8(segment, encoder);
+        } catch (BufferOverflowException e) {
+            segment.position(start); // The length stays 0, which ends the segment here
+            return false;
+        }
+        segment.putInt(start, segment.position() - start - Integer.BYTES);
+        return true;
+    }
+
+    /**
+     * Forces the current segment, if any, and maps the next one.
+     */
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            unflushed = 0;
+        }
+        segmentIndex++;
+        Path file = JournalFormat.segmentFile(directory, name, segmentIndex);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(JournalFormat.MAGIC);
+        segment.put(JournalFormat.VERSION);
+        segment.put((byte) protocolMode.ordinal());
+        segment.putShort((short) 0);
+        segment.putLong(sequence);
+    }
+
+    /**
+     * Forces the appended records to disk. Further appends are rejected.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.force();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.company.player.journal;
+
+import java.nio.file.Path;
+
+/**
+ * The on-disk format of a journal. A journal is a sequence of segment files
+ * {@code <name>.<index>.journal}, numbered from {@code 00000}, each of the same fixed size. A segment starts with:
+ * <pre>
+ * int   magic          {@link #MAGIC}
+ * byte  version        {@link #VERSION}
+ * byte  protocolMode   the ordinal of the recorded session's {@link com.company.player.util.ProtocolMode}
+ * short reserved
+ * long  firstSequence  the sequence number of the segment's first record
+ * </pre>
+ * followed by records of:
+ * <pre>
+ * int   length     number of bytes that follow this field
+ * long  sequence   the record's position in the journal, from 0 without gaps
+ * long  timestamp  the wall clock time of the hop in epoch nanoseconds
+ * short senderId   the id of the player that sent the message
+ * int   counter    the sender's message count after sending it
+ * byte[] payload   the message as sent, UTF-8 encoded: the whole conversation in full mode, the suffix in delta mode
+ * </pre>
+ * The length of a record is written last, and the rest of a segment is zero, so a length of {@code 0} marks
+ * the end of the records in a segment, whether it is full or the writer stopped.
+ *
+ * @author priyanshu
+ */
+public final class JournalFormat {
+
+    /**
+     * The first four bytes of every segment.
+     */
+    public static final int MAGIC = 0x4A524E4C;
+
+    /**
+     * The version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Size of the segment header.
+     */
+    public static final int SEGMENT_HEADER_SIZE = 16;
+
+    /**
+     * Size of the fields of a record before its payload, length prefix included.
+     */
+    public static final int RECORD_HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES + Short.BYTES + Integer.BYTES;
+
+    /**
+     * Smallest segment that is accepted; each segment must hold at least a few records.
+     */
+    public static final int MIN_SEGMENT_SIZE = 4096;
+
+    static final int PROTOCOL_MODE_OFFSET = 5;
+    static final int FIRST_SEQUENCE_OFFSET = 8;
+
+    private static final String SUFFIX = ".journal";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private JournalFormat() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Returns the file of a segment.
+     *
+     * @param directory The journal directory.
+     * @param name      The journal name.
+     * @param index     The segment number.
+     * @return The segment file.
+     */
+    public static Path segmentFile(Path directory, String name, int index) {
+        return directory.resolve(String.format("%s.%05d%s", name, index, SUFFIX));
+    }
+
+    /**
+     * Tells whether a file name is a segment of any journal and returns the journal's name.
+     *
+     * @param fileName The file name.
+     * @return The journal name, or {@code null} if the file is not a segment.
+     */
+    static String journalName(String fileName) {
+        if (!fileName.endsWith(SUFFIX)) {
+            return null;
+        }
+        String base = fileName.substring(0, fileName.length() - SUFFIX.length());
+        int dot = base.lastIndexOf('.');
+        if (dot <= 0 || base.length() - dot - 1 != 5) {
+            return null;
+        }
+        for (int i = dot + 1; i < base.length(); i++) {
+            if (!Character.isDigit(base.charAt(i))) {
+                return null;
+            }
+        }
+        return base.substring(0, dot);
+    }
+}
@@ -0,0 +1,171 @@
+package com.company.player.journal;
+
+import com.company.player.util.ProtocolMode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeSet;
+
+/**
+ * Reads the hops of a {@link Journal} in order, segment by segment. The segments are mapped read-only and
+ * every hop is decoded into the same {@link JournalRecord}.
+ * <p>
+ * A journal whose writer stopped without closing it is read up to its last complete record.
+ *
+ * @author priyanshu
+ */
+public final class JournalReader implements Closeable {
+
+    private final Path directory;
+    private final String name;
+    private final ProtocolMode protocolMode;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private long nextSequence;
+
+    private JournalReader(Path directory, String name, MappedByteBuffer firstSegment) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segment = firstSegment;
+        this.protocolMode = checkHeader(firstSegment, 0);
+    }
+
+    /**
+     * Opens a journal for reading.
+     *
+     * @param directory The directory of the segments.
+     * @param name      The journal name, or {@code null} if the directory holds exactly one journal.
+     * @return The reader, positioned before the first hop.
+     * @throws IOException If the journal does not exist or is not in the {@link JournalFormat}.
+     */
+    public static JournalReader open(Path directory, String name) throws IOException {
+        String journalName = name != null ? name : onlyJournal(directory);
+        Path first = JournalFormat.segmentFile(directory, journalName, 0);
+        if (!Files.exists(first)) {
+            throw new IOException("No journal " + journalName + " in " + directory);
+        }
+        return new JournalReader(directory, journalName, map(first));
+    }
+
+    /**
+     * @return The journal name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The protocol mode of the recorded session.
+     */
+    public ProtocolMode getProtocolMode() {
+        return protocolMode;
+    }
+
+    /**
+     * Reads the next hop.
+     *
+     * @param record The record to overwrite.
+     * @return {@code false} at the end of the journal.
+     * @throws IOException If a segment cannot be read or a record is corrupt.
+     */
+    public boolean next(JournalRecord record) throws IOException {
+        int length = segment.remaining() >= Integer.BYTES ? segment.getInt(segment.position()) : 0;
+        if (length == 0) {
+            Path file = JournalFormat.segmentFile(directory, name, segmentIndex + 1);
+            if (!Files.exists(file)) {
+                return false;
+            }
+            segment = map(file);
+            segmentIndex++;
+            checkHeader(segment, segmentIndex);
+            return next(record);
+        }
+        if (length < JournalFormat.RECORD_HEADER_SIZE - Integer.BYTES || length > segment.remaining() - Integer.BYTES) {
+            throw new IOException("Corrupt journal record " + nextSequence + " of length " + length);
+        }
+        segment.position(segment.position() + Integer.BYTES);
+        long sequence = segment.getLong();
+        if (sequence != nextSequence) {
+            throw new IOException("Journal record " + sequence + " found where record " + nextSequence + " was expected");
+        }
+        record.set(sequence, segment.getLong(), segment.getShort(), segment.getInt());
+        int payloadLength = length - (JournalFormat.RECORD_HEADER_SIZE - Integer.BYTES);
+        ByteBuffer payload = segment.slice(segment.position(), payloadLength);
+        record.getText().decodeUtf8(payload, decoder);
+        segment.position(segment.position() + payloadLength);
+        nextSequence++;
+        return true;
+    }
+
+    /**
+     * Releases the reader; the mapped segments are unmapped once they are garbage collected.
+     */
+    @Override
+    public void close() {
+        segment = null;
+    }
+
+    /**
+     * Returns the name of the only journal in a directory.
+     */
+    private static String onlyJournal(Path directory) throws IOException {
+        TreeSet<String> names = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String journalName = JournalFormat.journalName(file.getFileName().toString());
+                if (journalName != null) {
+                    names.add(journalName);
+                }
+            }
+        }
+        if (names.size() != 1) {
+            throw new IllegalArgumentException((names.isEmpty() ? "no journal" : "several journals " + names)
+                    + " in " + directory + "; select one with --journal-name");
+        }
+        return names.first();
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Validates a segment header and positions the segment at its first record.
+     *
+     * @return The protocol mode recorded in the header.
+     */
+    private ProtocolMode checkHeader(MappedByteBuffer segment, int index) throws IOException {
+        if (segment.limit() < JournalFormat.SEGMENT_HEADER_SIZE || segment.getInt(0) != JournalFormat.MAGIC) {
+            throw new IOException("Segment " + index + " of journal " + name + " is not a journal segment");
+        }
+        if (segment.get(Integer.BYTES) != JournalFormat.VERSION) {
+            throw new IOException("Unsupported journal version " + segment.get(Integer.BYTES));
+        }
+        int mode = segment.get(JournalFormat.PROTOCOL_MODE_OFFSET);
+        if (mode < 0 || mode >= ProtocolMode.values().length) {
+            throw new IOException("Unknown protocol mode " + mode + " in journal " + name);
+        }
+        long firstSequence = segment.getLong(JournalFormat.FIRST_SEQUENCE_OFFSET);
+        if (index > 0 && firstSequence != nextSequence) {
+            throw new IOException("Segment " + index + " of journal " + name + " starts at record " + firstSequence
+                    + " instead of " + nextSequence);
+        }
+        segment.position(JournalFormat.SEGMENT_HEADER_SIZE);
+        return ProtocolMode.values()[mode];
+    }
+}
@@ -0,0 +1,63 @@
+package com.company.player.journal;
+
+import com.company.player.util.TextBuffer;
+
+/**
+ * One hop read from a {@link Journal}. A {@link JournalReader} overwrites the same record with every
+ * hop it reads, so reading a journal does not allocate once the text buffer has grown to the longest message.
+ *
+ * @author priyanshu
+ */
+public final class JournalRecord {
+
+    private final TextBuffer text = new TextBuffer();
+    private long sequence;
+    private long timestamp;
+    private short senderId;
+    private int counter;
+
+    /**
+     * Replaces the fields other than the text, which the reader decodes in place.
+     */
+    void set(long sequence, long timestamp, short senderId, int counter) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.senderId = senderId;
+        this.counter = counter;
+    }
+
+    /**
+     * @return The position of the hop in the journal, from 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The wall clock time of the hop in epoch nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The id of the player that sent the message.
+     */
+    public short getSenderId() {
+        return senderId;
+    }
+
+    /**
+     * @return The sender's message count after sending the message.
+     */
+    public int getCounter() {
+        return counter;
+    }
+
+    /**
+     * @return The message as sent; valid until the next record is read.
+     */
+    public TextBuffer getText() {
+        return text;
+    }
+}
@@ -0,0 +1,139 @@
+package com.company.player.journal;
+
+import com.company.player.separatepid.Player;
+import com.company.player.util.LogLevel;
+import com.company.player.util.Logger;
+import com.company.player.util.ProtocolMode;
+
+import java.io.IOException;
+
+/**
+ * Replays a recorded ping-pong conversation at full speed into a fresh pair of players, without queues,
+ * threads or sockets. The first hop of the {@link Journal} is taken as given; every later hop is generated
+ * again by the player whose turn it is, with the reply rule of the recorded {@link ProtocolMode}, and
+ * compared with the recorded message and counter.
+ * <p>
+ * Both player implementations reply alike, so a journal of either can be replayed. A replay that matches
+ * shows that the reply logic still produces the recorded conversation, and its throughput is a benchmark of
+ * that logic alone. After a mismatch the replay carries on from the recorded hop.
+ *
+ * @author priyanshu
+ */
+public final class JournalReplay {
+
+    private static final int LOGGED_MISMATCHES = 10;
+
+    private final JournalReader reader;
+
+    /**
+     * Configures a replay.
+     *
+     * @param reader The journal to replay, positioned before its first hop.
+     */
+    public JournalReplay(JournalReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Replays the journal to its end.
+     *
+     * @return The result.
+     * @throws IOException           If the journal cannot be read.
+     * @throws IllegalStateException If the journal is not an alternating conversation between two players.
+     */
+    public Result run() throws IOException {
+        boolean delta = reader.getProtocolMode() == ProtocolMode.DELTA;
+        JournalRecord record = new JournalRecord();
+        long start = System.nanoTime();
+        if (!reader.next(record)) {
+            return new Result(reader.getName(), 0, 0, 0, 0);
+        }
+        Player opener = new Player();
+        adopt(opener, record);
+        Player answerer = null;
+        Player last = opener;
+        long firstTimestamp = record.getTimestamp();
+        long hops = 1;
+        long mismatches = 0;
+        while (reader.next(record)) {
+            Player next;
+            if (answerer == null) {
+                answerer = new Player();
+                answerer.setId(record.getSenderId());
+                next = answerer;
+            } else {
+                next = last == opener ? answerer : opener;
+            }
+            if (record.getSenderId() != next.getId() || next.getId() == last.getId()) {
+                throw new IllegalStateException("hop " + record.getSequence() + " of player " + record.getSenderId()
+                        + " does not answer player " + last.getId() + "; only ping-pong conversations can be replayed");
+            }
+            if (delta) {
+                next.generateReplySuffix();
+            } else {
+                next.generateResponseFor(last);
+            }
+            if (next.getMessageCount().intValue() != record.getCounter()
+                    || CharSequence.compare(next.getText(), record.getText()) != 0) {
+                if (mismatches++ < LOGGED_MISMATCHES) {
+                    Logger.log(LogLevel.WARN, "Hop " + record.getSequence() + " differs from the journal: expected \""
+                            + record.getText() + "\" (" + record.getCounter() + "), replayed \"" + next.getText()
+                            + "\" (" + next.getMessageCount() + ")");
+                }
+                adopt(next, record);
+            }
+            last = next;
+            hops++;
+        }
+        return new Result(reader.getName(), hops, mismatches, System.nanoTime() - start,
+                record.getTimestamp() - firstTimestamp);
+    }
+
+    /**
+     * Sets a player to the state recorded in a hop it sent.
+     */
+    private static void adopt(Player player, JournalRecord record) {
+        player.setId(record.getSenderId());
+        player.getText().setTo(record.getText());
+        player.getMessageCount().set(record.getCounter());
+    }
+
+    /**
+     * The outcome of a replay: the number of hops, how many of them differed and the throughput.
+     */
+    public static final class Result {
+        private final String journal;
+        private final long hops;
+        private final long mismatches;
+        private final long elapsedNanos;
+        private final long recordedNanos;
+
+        Result(String journal, long hops, long mismatches, long elapsedNanos, long recordedNanos) {
+            this.journal = journal;
+            this.hops = hops;
+            this.mismatches = mismatches;
+            this.elapsedNanos = elapsedNanos;
+            this.recordedNanos = recordedNanos;
+        }
+
+        /**
+         * @return The number of replayed hops that differed from the journal.
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * @return The number of hops replayed per second.
+         */
+        public double hopsPerSecond() {
+            return elapsedNanos == 0 ? 0 : hops * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replayed %d hops of journal %s in %.1f ms, %.0f hops/s (recorded in %.1f ms), %d mismatches",
+                    hops, journal, elapsedNanos / 1e6, hopsPerSecond(), recordedNanos / 1e6, mismatches);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.company.player.journal;
+
+import com.company.player.util.Constants;
+import com.company.player.util.Options;
+import com.company.player.util.ProtocolMode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Whether a session is recorded into a {@link Journal} and how the journal is written.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class JournalSettings {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int flushRecords;
+
+    /**
+     * Creates journal settings.
+     *
+     * @param directory    The directory journals are written to, or {@code null} to record nothing.
+     * @param segmentSize  The size of a segment file in bytes.
+     * @param flushRecords The number of records appended between two flushes to disk.
+     */
+    public JournalSettings(Path directory, int segmentSize, int flushRecords) {
+        if (segmentSize < JournalFormat.MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least " + JournalFormat.MIN_SEGMENT_SIZE + ": " + segmentSize);
+        }
+        if (flushRecords <= 0) {
+            throw new IllegalArgumentException("flushRecords must be positive: " + flushRecords);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushRecords = flushRecords;
+    }
+
+    /**
+     * Returns settings that record nothing.
+     *
+     * @return The disabled settings.
+     */
+    public static JournalSettings disabled() {
+        return new JournalSettings(null, Constants.JOURNAL_SEGMENT_SIZE, Constants.JOURNAL_FLUSH_RECORDS);
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --journal=<directory>},
+     * {@code --journal-segment-size=<bytes>} and {@code --journal-flush-records=<records>}.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static JournalSettings from(Options options) {
+        return new JournalSettings(
+                options.has("journal") ? Paths.get(options.get("journal", null)) : null,
+                options.getInt("journal-segment-size", Constants.JOURNAL_SEGMENT_SIZE),
+                options.getInt("journal-flush-records", Constants.JOURNAL_FLUSH_RECORDS));
+    }
+
+    /**
+     * Opens a journal in the configured directory.
+     *
+     * @param name         The journal name.
+     * @param protocolMode The protocol mode of the recorded session.
+     * @return The journal, or {@code null} if recording is disabled.
+     * @throws IOException If the journal cannot be created.
+     */
+    public Journal open(String name, ProtocolMode protocolMode) throws IOException {
+        return directory == null ? null : Journal.open(directory, name, protocolMode, segmentSize, flushRecords);
+    }
+
+    /**
+     * @return Whether sessions are recorded.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return The directory journals are written to, or {@code null}.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,435 @@
+package com.company.player.load;
+
+import com.company.player.separatepid.NioServerNode;
+import com.company.player.separatepid.Player;
+import com.company.player.separatepid.SessionSettings;
+import com.company.player.separatepid.transport.CompressionStats;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MessageTransport;
+import com.company.player.separatepid.transport.Shard;
+import com.company.player.separatepid.transport.ShardRing;
+import com.company.player.separatepid.transport.TransportConfig;
+import com.company.player.util.Constants;
+import com.company.player.util.LatencyHistogram;
+import com.company.player.util.LogLevel;
+import com.company.player.util.Logger;
+import com.company.player.util.SessionMetrics;
+import com.company.player.util.VirtualThreads;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives many sessions against a {@link LoadTarget} for capacity planning and soak tests. A fixed number
+ * of workers, {@link LoadSettings#getConcurrency()}, each run one session after the other until the
+ * configured number of sessions has been run or the duration has elapsed; a session that is running
+ * when the time is up is finished first.
+ * <p>
+ * Every round trip of an initiator is recorded in one {@link SessionMetrics}, the duration of every
+ * completed session in a {@link LatencyHistogram}, and failed sessions are counted per exception type.
+ * A daemon thread logs the sustained throughput and both distributions every
+ * {@link LoadSettings#getReportIntervalNanos()}, so an hours-long run can be followed while it runs.
+ * <p>
+ * Against a sharded deployment every socket session gets its own key, which places it on one of the servers
+ * of the {@link ShardRing}, and the sessions, failures and replies are also counted per shard.
+ * <p>
+ * The workers run on virtual threads when the JVM supports them, so the concurrency is not bounded by
+ * the number of platform threads.
+ *
+ * @author priyanshu
+ */
+public final class LoadGenerator {
+
+    private static final String INITIAL_MESSAGE = "[Hello!]";
+
+    private final LoadSettings settings;
+    private final SessionSettings session;
+    private final SessionMetrics metrics = new SessionMetrics("load", true);
+    private final LatencyHistogram sessionTimes = new LatencyHistogram();
+    private final AtomicLong startedSessions = new AtomicLong();
+    private final LongAdder completedSessions = new LongAdder();
+    private final LongAdder failedSessions = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final Map<Shard, ShardLoad> shardLoads = new LinkedHashMap<>();
+    private final CompressionStats compressionStats = new CompressionStats();
+    private volatile boolean stopped;
+    private long startNanos;
+    private long lastReportNanos;
+    private long lastReportMessages;
+
+    /**
+     * Configures a load generator.
+     *
+     * @param settings The load settings.
+     */
+    public LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        this.session = settings.getSession();
+        ShardRing ring = session.getTransport().getShards();
+        if (ring != null && settings.getTarget() == LoadTarget.SOCKET) {
+            for (Shard shard : ring.getShards()) {
+                shardLoads.put(shard, new ShardLoad());
+            }
+        }
+    }
+
+    /**
+     * Runs the load and waits until every worker has stopped.
+     *
+     * @return The aggregate result.
+     * @throws IOException          If an embedded server cannot be bound.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public Result run() throws IOException, InterruptedException {
+        List<NioServerNode> servers = new ArrayList<>();
+        if (settings.isEmbeddedServer() && settings.getTarget() == LoadTarget.SOCKET) {
+            if (shardLoads.isEmpty()) {
+                servers.add(new NioServerNode(session, session.getTransport().getPort(), settings.getReactors()));
+            } else {
+                for (Shard shard : shardLoads.keySet()) {
+                    servers.add(new NioServerNode(session, shard.getPort(), settings.getReactors()));
+                }
+            }
+        }
+        if (!shardLoads.isEmpty()) {
+            Logger.log("Placing sessions on " + session.getTransport().getShards() + ", expected shares "
+                    + formatShares(session.getTransport().getShards().ownership()));
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch workersDone = new CountDownLatch(settings.getConcurrency());
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        try {
+            for (int i = 0; i < settings.getConcurrency(); i++) {
+                executor.execute(() -> work(executor, workersDone));
+            }
+            reporter.scheduleAtFixedRate(this::report, settings.getReportIntervalNanos(),
+                    settings.getReportIntervalNanos(), TimeUnit.NANOSECONDS);
+            if (settings.getDurationNanos() > 0 && !workersDone.await(settings.getDurationNanos(), TimeUnit.NANOSECONDS)) {
+                stopped = true;
+                Logger.log("Duration elapsed, finishing the running sessions");
+            }
+            workersDone.await();
+        } finally {
+            stopped = true;
+            reporter.shutdownNow();
+            executor.shutdown();
+            for (NioServerNode server : servers) {
+                server.close();
+            }
+        }
+        return new Result(completedSessions.sum(), failedSessions.sum(), metrics.getReceived(),
+                System.nanoTime() - startNanos, snapshotErrors(), metrics.getRoundTrip(), sessionTimes, snapshotShards(),
+                session.getCompression().isEnabled() ? compressionStats : null);
+    }
+
+    /**
+     * A worker: claims and runs sessions one after the other until there are none left or the run stops.
+     */
+    private void work(ExecutorService executor, CountDownLatch workersDone) {
+        try {
+            while (!stopped && claimSession()) {
+                long sessionStart = System.nanoTime();
+                try {
+                    if (settings.getTarget() == LoadTarget.QUEUE) {
+                        runQueueSession(executor);
+                    } else {
+                        runSocketSession();
+                    }
+                    sessionTimes.record(System.nanoTime() - sessionStart);
+                    completedSessions.increment();
+                } catch (IOException | ExecutionException | RuntimeException e) {
+                    fail(e instanceof ExecutionException ? e.getCause() : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workersDone.countDown();
+        }
+    }
+
+    private boolean claimSession() {
+        return settings.getSessions() == 0 || startedSessions.incrementAndGet() <= settings.getSessions();
+    }
+
+    /**
+     * Runs one socket session, on the shard its key is placed on in a sharded deployment, and counts it
+     * for that shard.
+     */
+    private void runSocketSession() throws IOException {
+        TransportConfig transport = session.getTransport();
+        if (shardLoads.isEmpty()) {
+            converse(transport);
+            return;
+        }
+        Shard shard = transport.getShards().shardFor("load-" + sessionIds.getAndIncrement());
+        ShardLoad load = shardLoads.get(shard);
+        try {
+            load.replies.add(converse(transport.forShard(shard)));
+            load.completed.increment();
+        } catch (IOException | RuntimeException e) {
+            load.failed.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs one initiator session over TCP, exactly like {@code InitiatorNode} but without exiting the
+     * process, and records the round trip of every message. In full mode a message longer than
+     * {@link LoadSettings#getMaxMessageSize()} is cut down to its most recent characters before it is sent,
+     * which keeps a long session from growing its messages without bound.
+     *
+     * @return The number of replies received.
+     */
+    private long converse(TransportConfig server) throws IOException {
+        FrameCodec codec = session.newCodec(compressionStats);
+        try (MessageTransport transport = server.connect(codec)) {
+            Player player = new Player();
+            player.setName(Constants.PLAYER_1);
+            player.setId(Constants.PLAYER_1_ID);
+            player.initializeMessage();
+            player.generateResponseFor(player);
+            long sentAt = send(transport, player);
+
+            Player peer = new Player();
+            long replies = 0;
+            while (transport.receive(peer)) {
+                replies++;
+                metrics.messageReceived();
+                metrics.recordRoundTrip(System.nanoTime() - sentAt);
+                if (session.isComplete(player, peer)) {
+                    return replies;
+                }
+                session.reply(player, peer);
+                sentAt = send(transport, player);
+            }
+            throw new EOFException("Server closed the session after " + peer.getMessageCount() + " replies");
+        }
+    }
+
+    private long send(MessageTransport transport, Player player) throws IOException {
+        if (settings.getMaxMessageSize() > 0) {
+            player.getText().retainLast(settings.getMaxMessageSize());
+        }
+        long sentAt = System.nanoTime();
+        transport.send(player);
+        metrics.messageSent();
+        return sentAt;
+    }
+
+    /**
+     * Runs one single process player pair, the initiator on this worker and the receiver as a separate task,
+     * and records the initiator's round trips.
+     */
+    private void runQueueSession(ExecutorService executor) throws InterruptedException, ExecutionException {
+        com.company.player.singlepid.Player initiator = newQueuePlayer("load-initiator");
+        com.company.player.singlepid.Player receiver = newQueuePlayer("load-receiver");
+        initiator.setOutgoingQueue(receiver.getIncomingQueue());
+        receiver.setOutgoingQueue(initiator.getIncomingQueue());
+        initiator.setMetrics(metrics);
+
+        Future<?> receiving = executor.submit(receiver);
+        initiator.sendMessage(INITIAL_MESSAGE);
+        initiator.run();
+        receiving.get();
+    }
+
+    /**
+     * Creates a single process player; the name clashes with the separate process {@link Player}.
+     */
+    private com.company.player.singlepid.Player newQueuePlayer(String name) {
+        com.company.player.singlepid.Player player = new com.company.player.singlepid.Player(name,
+                session.getMaxMessages(), settings.getQueueType().create(settings.getCapacity(), settings.getWaitStrategy()));
+        player.setProtocolMode(session.getProtocolMode());
+        player.setChecksumInterval(session.getChecksumInterval());
+        return player;
+    }
+
+    /**
+     * Counts a failed session under its exception type and logs the first failure of every type,
+     * so that a broken target does not flood the log during a soak test.
+     */
+    private void fail(Throwable error) {
+        failedSessions.increment();
+        errors.computeIfAbsent(error.getClass().getSimpleName(), type -> {
+            Logger.log(LogLevel.WARN, "Load session failed with " + type + ": " + error.getMessage()
+                    + " (further failures of this type are only counted)");
+            return new LongAdder();
+        }).increment();
+    }
+
+    private Map<String, Long> snapshotErrors() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        errors.forEach((type, count) -> snapshot.put(type, count.sum()));
+        return snapshot;
+    }
+
+    private Map<Shard, String> snapshotShards() {
+        Map<Shard, String> snapshot = new LinkedHashMap<>();
+        long total = 0;
+        for (ShardLoad load : shardLoads.values()) {
+            total += load.completed.sum() + load.failed.sum();
+        }
+        for (Map.Entry<Shard, ShardLoad> entry : shardLoads.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().toString(total));
+        }
+        return snapshot;
+    }
+
+    private static String formatShares(Map<Shard, Double> shares) {
+        StringBuilder formatted = new StringBuilder("{");
+        shares.forEach((shard, share) -> formatted.append(formatted.length() > 1 ? ", " : "")
+                .append(shard).append('=').append(String.format("%.1f%%", share * 100)));
+        return formatted.append('}').toString();
+    }
+
+    /**
+     * Logs the progress so far, with the throughput of the last interval next to the overall one.
+     */
+    private void report() {
+        long now = System.nanoTime();
+        long messages = metrics.getReceived();
+        double intervalRate = (messages - lastReportMessages) * 1e9 / (now - lastReportNanos);
+        lastReportNanos = now;
+        lastReportMessages = messages;
+        long completed = completedSessions.sum();
+        long failed = failedSessions.sum();
+        Logger.log(String.format("Load after %.0f s: %d sessions completed, %d failed, %.0f msg/s "
+                        + "(%.0f msg/s overall) rtt[%s] session[%s] errors%s",
+                (now - startNanos) / 1e9, completed, failed, intervalRate, messages * 1e9 / (now - startNanos),
+                metrics.getRoundTrip(), sessionTimes, snapshotErrors())
+                + (shardLoads.isEmpty() ? "" : " shards" + snapshotShards()));
+    }
+
+    /**
+     * The sessions and replies of one shard.
+     */
+    private static final class ShardLoad {
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder replies = new LongAdder();
+
+        String toString(long totalSessions) {
+            long sessions = completed.sum() + failed.sum();
+            return String.format("[%d completed, %d failed, %d replies, %.1f%% of sessions]", completed.sum(), failed.sum(),
+                    replies.sum(), totalSessions == 0 ? 0.0 : sessions * 100.0 / totalSessions);
+        }
+    }
+
+    /**
+     * The outcome of a load run: session counts, sustained throughput and the latency distributions.
+     */
+    public static final class Result {
+        private final long completedSessions;
+        private final long failedSessions;
+        private final long messages;
+        private final long elapsedNanos;
+        private final Map<String, Long> errors;
+        private final LatencyHistogram roundTrip;
+        private final LatencyHistogram sessionTimes;
+        private final Map<Shard, String> shards;
+        private final CompressionStats compression;
+
+        Result(long completedSessions, long failedSessions, long messages, long elapsedNanos,
+               Map<String, Long> errors, LatencyHistogram roundTrip, LatencyHistogram sessionTimes,
+               Map<Shard, String> shards, CompressionStats compression) {
+            this.completedSessions = completedSessions;
+            this.failedSessions = failedSessions;
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+            this.roundTrip = roundTrip;
+            this.sessionTimes = sessionTimes;
+            this.shards = shards;
+            this.compression = compression;
+        }
+
+        /**
+         * @return The number of sessions that reached the stop condition.
+         */
+        public long getCompletedSessions() {
+            return completedSessions;
+        }
+
+        /**
+         * @return The number of sessions that ended with an error.
+         */
+        public long getFailedSessions() {
+            return failedSessions;
+        }
+
+        /**
+         * @return The number of failed sessions per exception type.
+         */
+        public Map<String, Long> getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return The number of replies the initiators received per second.
+         */
+        public double messagesPerSecond() {
+            return messages * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return The round-trip times of all initiator messages.
+         */
+        public LatencyHistogram getRoundTrip() {
+            return roundTrip;
+        }
+
+        /**
+         * @return The durations of the completed sessions.
+         */
+        public LatencyHistogram getSessionTimes() {
+            return sessionTimes;
+        }
+
+        /**
+         * @return The load of every shard of a sharded deployment, empty otherwise.
+         */
+        public Map<Shard, String> getShards() {
+            return shards;
+        }
+
+        /**
+         * @return The compression counters of the initiators, or {@code null} if compression is disabled.
+         */
+        public CompressionStats getCompression() {
+            return compression;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Load finished in %.1f s: %d sessions completed, %d failed, %d replies received, "
+                            + "%.0f msg/s, %.1f sessions/s; rtt[%s] session[%s] errors%s",
+                    elapsedNanos / 1e9, completedSessions, failedSessions, messages, messagesPerSecond(),
+                    completedSessions * 1e9 / elapsedNanos, roundTrip, sessionTimes, errors)
+                    + (shards.isEmpty() ? "" : " shards" + shards)
+                    + (compression == null ? "" : "; initiators " + compression);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.company.player.load;
+
+import com.company.player.separatepid.SessionSettings;
+import com.company.player.separatepid.transport.TransportType;
+import com.company.player.singlepid.QueueType;
+import com.company.player.singlepid.WaitStrategy;
+import com.company.player.util.Constants;
+import com.company.player.util.Options;
+import com.company.player.util.ProtocolMode;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the settings of a load generation run: what is loaded, how many sessions run, how many of them
+ * at once and for how long. The shape of each session (messages, protocol, host and port) comes from
+ * the {@link SessionSettings}.
+ * <p>
+ * A run ends when {@code sessions} sessions have been started and finished, or when {@code duration}
+ * has elapsed, whichever comes first; either bound may be {@code 0} for none, but not both.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class LoadSettings {
+
+    private final LoadTarget target;
+    private final long sessions;
+    private final int concurrency;
+    private final long durationNanos;
+    private final int maxMessageSize;
+    private final long reportIntervalNanos;
+    private final boolean embeddedServer;
+    private final int reactors;
+    private final QueueType queueType;
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final SessionSettings session;
+
+    /**
+     * Creates load settings.
+     *
+     * @param target                What the sessions run against.
+     * @param sessions              The number of sessions to run, {@code 0} to run until the duration elapses.
+     * @param concurrency           The number of sessions running at once.
+     * @param durationSeconds       How long to run, {@code 0} to run until all sessions are done.
+     * @param maxMessageSize        The longest message an initiator sends in characters, {@code 0} for no cap.
+     * @param reportIntervalSeconds The period of the progress reports.
+     * @param embeddedServer        Whether the {@link LoadTarget#SOCKET} server runs in this process.
+     * @param reactors              The reactor threads of an embedded server.
+     * @param queueType             The queue of {@link LoadTarget#QUEUE} players.
+     * @param capacity              The capacity of bounded queues.
+     * @param waitStrategy          How bounded queues wait.
+     * @param session               The settings of every session.
+     */
+    public LoadSettings(LoadTarget target, long sessions, int concurrency, long durationSeconds, int maxMessageSize,
+                        long reportIntervalSeconds, boolean embeddedServer, int reactors, QueueType queueType,
+                        int capacity, WaitStrategy waitStrategy, SessionSettings session) {
+        if (sessions < 0 || durationSeconds < 0 || (sessions == 0 && durationSeconds == 0)) {
+            throw new IllegalArgumentException("sessions and duration must not be negative and one of them must be set");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        if (reportIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("report-interval must be positive: " + reportIntervalSeconds);
+        }
+        if (maxMessageSize < 0) {
+            throw new IllegalArgumentException("max-message-size must not be negative: " + maxMessageSize);
+        }
+        if (maxMessageSize > 0 && (target != LoadTarget.SOCKET || session.getProtocolMode() != ProtocolMode.FULL)) {
+            throw new IllegalArgumentException("max-message-size applies to full mode socket sessions; delta messages stay small anyway");
+        }
+        if (target == LoadTarget.SOCKET && session.getTransport().getType() != TransportType.TCP) {
+            throw new IllegalArgumentException("socket load needs the multi-session server, which only supports --transport=tcp");
+        }
+        if (target == LoadTarget.QUEUE && queueType == QueueType.SPSC && waitStrategy == WaitStrategy.BUSY_SPIN) {
+            throw new IllegalArgumentException("busy-spin would monopolise the carrier threads; use yield or park");
+        }
+        this.target = target;
+        this.sessions = sessions;
+        this.concurrency = concurrency;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.maxMessageSize = maxMessageSize;
+        this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        this.embeddedServer = embeddedServer;
+        this.reactors = reactors;
+        this.queueType = queueType;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.session = session;
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --target=socket|queue}, {@code --sessions=<n>},
+     * {@code --concurrency=<n>}, {@code --duration=<seconds>}, {@code --max-message-size=<chars>},
+     * {@code --report-interval=<seconds>}, {@code --embedded-server=true|false}, {@code --reactors=<n>},
+     * the queue options of mode 1 and the session options of {@link SessionSettings#from(Options)}.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static LoadSettings from(Options options) {
+        long durationSeconds = options.getLong("duration", 0);
+        return new LoadSettings(
+                options.getEnum("target", LoadTarget.SOCKET),
+                options.getLong("sessions", durationSeconds > 0 ? 0 : Constants.LOAD_SESSIONS),
+                options.getInt("concurrency", Constants.LOAD_CONCURRENCY),
+                durationSeconds,
+                options.getInt("max-message-size", 0),
+                options.getLong("report-interval", Constants.LOAD_REPORT_INTERVAL_SECONDS),
+                options.getBoolean("embedded-server", false),
+                options.getInt("reactors", Runtime.getRuntime().availableProcessors()),
+                options.getEnum("queue", QueueType.LINKED),
+                options.getInt("capacity", Constants.PAIR_QUEUE_CAPACITY),
+                options.getEnum("wait", WaitStrategy.PARK),
+                SessionSettings.from(options));
+    }
+
+    /**
+     * @return What the sessions run against.
+     */
+    public LoadTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * @return The number of sessions to run, {@code 0} for no limit.
+     */
+    public long getSessions() {
+        return sessions;
+    }
+
+    /**
+     * @return The number of sessions running at once.
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return How long to run in nanoseconds, {@code 0} for no limit.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The longest message an initiator sends in characters, {@code 0} for no cap.
+     */
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * @return The period of the progress reports in nanoseconds.
+     */
+    public long getReportIntervalNanos() {
+        return reportIntervalNanos;
+    }
+
+    /**
+     * @return Whether the socket server runs in this process.
+     */
+    public boolean isEmbeddedServer() {
+        return embeddedServer;
+    }
+
+    /**
+     * @return The reactor threads of an embedded server.
+     */
+    public int getReactors() {
+        return reactors;
+    }
+
+    /**
+     * @return The queue of in-process players.
+     */
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
+    /**
+     * @return The capacity of bounded queues.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return How bounded queues wait.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * @return The settings of every session.
+     */
+    public SessionSettings getSession() {
+        return session;
+    }
+}
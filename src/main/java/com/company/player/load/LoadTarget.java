@@ -0,0 +1,20 @@
+package com.company.player.load;
+
+/**
+ * What the {@link LoadGenerator} drives its sessions against.
+ *
+ * @author priyanshu
+ */
+public enum LoadTarget {
+
+    /**
+     * Initiator sessions over TCP against a multi-session server, the {@code NioServerNode} of mode 3,
+     * either running elsewhere or embedded in the load generator.
+     */
+    SOCKET,
+
+    /**
+     * Single process player pairs connected by in-memory queues, as in mode 1.
+     */
+    QUEUE
+}
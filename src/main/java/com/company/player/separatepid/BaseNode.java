@@ -1,12 +1,20 @@
 package com.company.player.separatepid;//package com.company.player;
 
+import com.company.player.jfr.MessageReceivedEvent;
+import com.company.player.jfr.MessageSentEvent;
+import com.company.player.jfr.PlayerEvents;
+import com.company.player.jfr.ReplyEvent;
+import com.company.player.journal.Journal;
+import com.company.player.separatepid.transport.CompressionStats;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MessageTransport;
+import com.company.player.util.LogLevel;
 import com.company.player.util.Logger;
+import com.company.player.util.MetricsReporter;
+import com.company.player.util.SessionMetrics;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 
 /**
  * Abstract base class representing a network node (server or client representing two players)
@@ -14,46 +22,309 @@ import java.net.Socket;
  * This class manages communication between nodes and provides methods for handling
  * messaging functionality and resource cleanup. Both client and server should extend this class
  * to provide their own implementation of the messaging logic.
+ * <p>
+ * When metrics are enabled the node records the hop latency of every received message, the round trip
+ * of every message it sent and its message counters, and reports them while and after the session runs.
+ * When the session was started by the {@link SeparateProcessLauncher} it also reports the time from the
+ * launch to its first received message.
+ * <p>
+ * When a journal is configured the node records every message it sends and receives, so the journal of
+ * either node holds the whole conversation. It is named after the local player.
+ * <p>
+ * With {@link PlayerEvents} enabled, receiving, replying and sending emit flight recorder events tagged with
+ * the session key of the {@link com.company.player.separatepid.transport.TransportConfig}.
+ * <p>
+ * When compression is enabled the node reports the compression ratio and cost of its frames on close.
+ * <p>
+ * A node runs one session and returns once it has ended, without exiting the process, so a long-lived host
+ * such as {@link com.company.player.engine.SessionEngine} can run many nodes one after the other or at once.
+ * The node records the time it spent setting up its link apart from the time spent messaging.
  *
  * @author priyanshu
  */
 
 public abstract class BaseNode implements Closeable {
-    protected Socket socket;
+    protected MessageTransport transport;
     protected Player player1;
     protected Player player2;
+    protected final SessionSettings settings;
+    protected final SessionMetrics metrics;
+    private final String playerName;
+    private final String session;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private MetricsReporter reporter;
+    private Journal journal;
+    private boolean receivedFirstMessage;
+    private final long createdNanos = System.nanoTime();
+    private long startedNanos;
+    private long finishedNanos;
+    private boolean completed;
+    private boolean closed;
+
+    /**
+     * Send times of the messages still awaiting their reply, oldest first.
+     */
+    private final long[] pendingSendNanos;
+    private int pendingHead;
+    private int pendingCount;
+
+    /**
+     * Initializes the node's session settings, which both nodes of a session must share.
+     *
+     * @param settings   The session settings.
+     * @param playerName The name of the local player, used in metrics reports.
+     */
+    protected BaseNode(SessionSettings settings, String playerName) {
+        this.settings = settings;
+        this.playerName = playerName;
+        this.session = settings.getTransport().getSessionKey();
+        this.metrics = new SessionMetrics(playerName, settings.getMetrics().isEnabled());
+        this.pendingSendNanos = new long[Math.max(settings.getWindow(), settings.getFlowCredits())];
+    }
+
+    /**
+     * Adopts the established link and starts reporting metrics for, and recording, the session that runs over it.
+     *
+     * @param transport The link to the peer.
+     * @throws IOException If the journal cannot be created.
+     */
+    protected void startSession(MessageTransport transport) throws IOException {
+        this.transport = transport;
+        this.reporter = new MetricsReporter(settings.getMetrics(), metrics);
+        this.journal = settings.getJournal().open(playerName, settings.getProtocolMode());
+        this.startedNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates the frame codec for a new connection in this node's protocol mode.
+     *
+     * @return The codec.
+     */
+    protected FrameCodec newCodec() {
+        FrameCodec codec = settings.newCodec(compressionStats);
+        codec.setTimestamps(metrics.isEnabled() || PlayerEvents.isEnabled());
+        codec.setSession(session);
+        return codec;
+    }
+
+    /**
+     * Tells whether every received message answers the oldest message this node sent, which is what
+     * makes a round trip measurable. True for the initiator and for the server of a ping-pong session.
+     *
+     * @return {@code true} if received messages are replies.
+     */
+    protected boolean receivesReplies() {
+        return true;
+    }
+
+    /**
+     * Sends the player's state and flushes it.
+     *
+     * @param player The sending player.
+     * @throws IOException If the message cannot be sent.
+     */
+    protected void send(Player player) throws IOException {
+        MessageSentEvent event = PlayerEvents.beginSend();
+        transport.send(player);
+        onSent(player);
+        if (event != null) {
+            event.finish(session, playerName, player.getMessageCount().intValue(), player.getText().length());
+        }
+    }
+
+    /**
+     * Writes the player's state without flushing it.
+     *
+     * @param player The sending player.
+     * @throws IOException If the message cannot be written.
+     */
+    protected void write(Player player) throws IOException {
+        MessageSentEvent event = PlayerEvents.beginSend();
+        transport.write(player);
+        onSent(player);
+        if (event != null) {
+            event.finish(session, playerName, player.getMessageCount().intValue(), player.getText().length());
+        }
+    }
+
+    /**
+     * Waits for the next message from the peer and records it.
+     *
+     * @param peer The player instance that is overwritten with the received state.
+     * @return {@code false} if the peer closed the link.
+     * @throws IOException If the message cannot be received.
+     */
+    protected boolean receive(Player peer) throws IOException {
+        MessageReceivedEvent event = PlayerEvents.beginReceive();
+        if (!transport.receive(peer)) {
+            return false;
+        }
+        onReceived(peer);
+        if (event != null) {
+            long latency = peer.getTimestamp() == 0 ? 0 : SessionMetrics.wallClockNanos() - peer.getTimestamp();
+            event.finish(session, playerName, peer.getMessageCount().intValue(), peer.getText().length(), latency);
+        }
+        return true;
+    }
+
+    /**
+     * Records a message handed to the transport.
+     *
+     * @param player The sending player.
+     * @throws IOException If the journal cannot be written.
+     */
+    protected void onSent(Player player) throws IOException {
+        if (journal != null) {
+            journal.append(player.getId(), player.getMessageCount().intValue(), player.getText());
+        }
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.messageSent();
+        if (receivesReplies() && pendingCount < pendingSendNanos.length) {
+            pendingSendNanos[(pendingHead + pendingCount++) % pendingSendNanos.length] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records a received message: its hop latency from the transmitted timestamp and the round trip
+     * of the message it answers. In a launched session the first message also reports the time since launch.
+     *
+     * @param peer The received state of the peer.
+     * @throws IOException If the journal cannot be written.
+     */
+    protected void onReceived(Player peer) throws IOException {
+        if (journal != null) {
+            journal.append(peer.getId(), peer.getMessageCount().intValue(), peer.getText());
+        }
+        if (!receivedFirstMessage) {
+            receivedFirstMessage = true;
+            long launchedAt = settings.getMetrics().getLaunchedAt();
+            if (launchedAt != 0) {
+                Logger.log(String.format("%s received the first message %.1f ms after launch",
+                        playerName, (SessionMetrics.wallClockNanos() - launchedAt) / 1e6));
+            }
+        }
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.messageReceived();
+        if (peer.getTimestamp() != 0) {
+            metrics.recordHopLatency(SessionMetrics.wallClockNanos() - peer.getTimestamp());
+        }
+        if (pendingCount > 0) {
+            metrics.recordRoundTrip(System.nanoTime() - pendingSendNanos[pendingHead]);
+            pendingHead = (pendingHead + 1) % pendingSendNanos.length;
+            pendingCount--;
+        }
+    }
+
+    /**
+     * Checks the stop condition: both players have sent the configured number of messages.
+     *
+     * @param player The local player.
+     * @param peer   The last state received from the peer.
+     * @return {@code true} if the session is complete.
+     */
+    protected boolean isSessionComplete(Player player, Player peer) {
+        return settings.isComplete(player, peer);
+    }
+
+    /**
+     * Lets the player reply to the sender: with the whole conversation in full mode,
+     * with just the appended suffix in delta mode.
+     *
+     * @param player The replying player.
+     * @param sender The player whose message was received.
+     */
+    protected void reply(Player player, Player sender) {
+        ReplyEvent event = PlayerEvents.beginReply();
+        settings.reply(player, sender);
+        if (event != null) {
+            event.finish(session, playerName, player.getMessageCount().intValue(), player.getText().length());
+        }
+    }
 
     /**
      * Handles chat communication between nodes (server/client).
      * The implementation details differ based on the role.
      *
-     * @param player                  The player involved in the chat communication.
-     * @param objectInputStream       Input stream to receive messages.
-     * @param objectOutputStream      Output stream to send messages.
-     * @throws IOException            If an I/O error occurs.
-     * @throws ClassNotFoundException If the class of a serialized object cannot be found.
+     * @param player    The player involved in the chat communication.
+     * @param transport The link used to send and receive messages.
+     * @throws IOException If an I/O error occurs or a malformed frame is received.
      */
-    protected abstract void handleMessaging(Player player, ObjectInputStream objectInputStream, ObjectOutputStream objectOutputStream) throws IOException, ClassNotFoundException;
+    protected abstract void handleMessaging(Player player, MessageTransport transport) throws IOException;
 
     /**
-     * Cleans up resources and exits the application gracefully.
+     * Marks the session as complete once its stop condition has been reached and releases its resources.
+     * The caller returns from the session afterwards.
      */
-    protected void exitApplication() {
+    protected void finishSession() {
+        completed = true;
+        finishedNanos = System.nanoTime();
         close();
-        System.exit(0);
     }
 
     /**
-     * Closes the socket and releases resources.
+     * @return {@code true} if the session reached its stop condition, {@code false} if it ended early.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The number of messages the local player sent.
+     */
+    public int getMessageCount() {
+        return player1 == null ? 0 : player1.getMessageCount().intValue();
+    }
+
+    /**
+     * Returns the time from the creation of the node until its link was established and the session could
+     * start: accepting or connecting, creating the codec and opening the journal.
+     *
+     * @return The setup time in nanoseconds, or {@code 0} if the link was never established.
+     */
+    public long getSetupNanos() {
+        return startedNanos == 0 ? 0 : startedNanos - createdNanos;
+    }
+
+    /**
+     * @return The time in nanoseconds from the established link to the end of the session, or {@code 0} if
+     * the link was never established.
+     */
+    public long getMessagingNanos() {
+        return startedNanos == 0 ? 0 : finishedNanos - startedNanos;
+    }
+
+    /**
+     * Reports the final metrics and the compression stats, closes the journal and the transport and releases
+     * resources. Closing a closed node does nothing.
      */
     @Override
     public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (finishedNanos == 0) {
+            finishedNanos = System.nanoTime();
+        }
+        if (reporter != null) {
+            reporter.close();
+        }
+        if (settings.getCompression().isEnabled()) {
+            Logger.log(playerName + " " + compressionStats);
+        }
+        if (journal != null) {
+            journal.close();
+        }
         try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+            if (transport != null) {
+                transport.close();
             }
         } catch (IOException e) {
-            Logger.log("Error closing socket: " + e.getMessage());
+            Logger.log(LogLevel.WARN, "Error closing transport: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package com.company.player.separatepid;
 
+import com.company.player.flow.CreditPublisher;
+import com.company.player.flow.FlowStats;
+import com.company.player.flow.RemoteSubscriber;
+import com.company.player.separatepid.transport.MessageTransport;
 import com.company.player.util.Constants;
+import com.company.player.util.LogLevel;
 import com.company.player.util.Logger;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
 
 /**
  * Represents a client node that connects to the server in a messaging service.
@@ -17,33 +22,44 @@ import java.net.Socket;
  */
 public class InitiatorNode extends BaseNode {
 
+    private FlowStats flowStats;
+
     /**
-     * Constructs a InitiatorNode and establishes a connection to the server.
-     * Initializes the player instance and starts the chat process.
+     * Constructs a InitiatorNode with the default session settings.
      *
-     * @throws IOException            If an I/O error occurs while connecting to the server.
-     * @throws ClassNotFoundException If the class of a serialized object cannot be found.
+     * @throws IOException If an I/O error occurs while connecting to the server.
      */
-    public InitiatorNode() throws Exception {
-        try (Socket socket = new Socket(Constants.HOST, Constants.PORT);
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
-             ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());) {
+    public InitiatorNode() throws IOException {
+        this(SessionSettings.defaults());
+    }
+
+    /**
+     * Constructs a InitiatorNode and establishes a connection to the server over the configured transport.
+     * Initializes the player instance and starts the chat process, and returns once the session has ended.
+     * The first message always carries the greeting, in delta mode as the first suffix of the conversation.
+     *
+     * @param settings The session settings; must match the server's.
+     * @throws IOException If an I/O error occurs while connecting to the server.
+     */
+    public InitiatorNode(SessionSettings settings) throws IOException {
+        super(settings, Constants.PLAYER_1);
+        try {
+            startSession(settings.getTransport().connect(newCodec()));
 
             player1 = new Player();
             player1.setName(Constants.PLAYER_1);
+            player1.setId(Constants.PLAYER_1_ID);
             player1.initializeMessage();
 
             // Send the first message
             player1.generateResponseFor(player1);
             Logger.log("Sending from Initiator: " + player1.getMessage());
-            objectOutputStream.writeObject(player1);
+            send(player1);
 
-            handleMessaging(player1, objectInputStream, objectOutputStream);
+            handleMessaging(player1, transport);
         } finally {
             // Ensuring that initiator resources are closed properly
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
+            close();
         }
     }
 
@@ -51,25 +67,163 @@ public class InitiatorNode extends BaseNode {
     /**
      * Handles the chat communication between the client and the server.
      * Continuously listens for incoming messages and sends responses until the chat ends.
+     * With a window larger than one the session is pipelined instead, see {@link #handlePipelinedMessaging}, and
+     * with flow credits it is flow controlled, see {@link #handleFlowMessaging}.
      *
-     * @param player             The player involved in the chat communication.
-     * @param objectInputStream  Input stream to receive messages from the server.
-     * @param objectOutputStream Output stream to send messages to the server.
-     * @throws IOException            If an I/O error occurs during communication.
-     * @throws ClassNotFoundException If the class of a serialized object cannot be found.
+     * @param player    The player involved in the chat communication.
+     * @param transport The link to the server.
+     * @throws IOException If an I/O error occurs during communication.
      */
-    protected void handleMessaging(Player player, ObjectInputStream objectInputStream, ObjectOutputStream objectOutputStream) throws IOException, ClassNotFoundException {
-        while ((player2 = (Player) objectInputStream.readObject()) != null) {
+    protected void handleMessaging(Player player, MessageTransport transport) throws IOException {
+        if (settings.getWindow() > 1) {
+            handlePipelinedMessaging(player, transport);
+            return;
+        }
+        if (settings.getFlowCredits() > 0) {
+            handleFlowMessaging(player, transport);
+            return;
+        }
+        player2 = new Player();
+        while (receive(player2)) {
             // Check if the maximum message count has been reached
-            if (player2.getMessageCount().intValue() == Constants.MAX_MESSAGES && player.getMessageCount().intValue() == Constants.MAX_MESSAGES) {
+            if (isSessionComplete(player, player2)) {
                 Logger.log("Closing Initiator");
-                exitApplication();
+                finishSession();
+                return;
             }
             // Generate response for the received message
-            player.generateResponseFor(player2);
-            Logger.logWithPid("Sending from Initiator: " + player.getMessage());
-            objectOutputStream.reset();
-            objectOutputStream.writeObject(player);
+            reply(player, player2);
+            if (Logger.isEnabled(LogLevel.DEBUG)) {
+                Logger.logWithPid("Sending from Initiator: ", player.getMessage());
+            }
+            send(player);
+        }
+    }
+
+    /**
+     * Handles a pipelined session: up to {@link SessionSettings#getWindow()} messages await their reply,
+     * so throughput is no longer bound by the round-trip time. Each message is an independent reply to the
+     * greeting and the server answers each one, so the stop condition is unchanged: both players have sent
+     * the configured number of messages.
+     * <p>
+     * The link keeps replies in order, so the n-th reply must carry the server's counter n; anything else
+     * means a reply was lost or reordered and ends the session. Writes are coalesced up to
+     * {@link SessionSettings#getCoalesce()} messages but always flushed before waiting for a reply.
+     *
+     * @param player    The player involved in the chat communication; its first message has been sent.
+     * @param transport The link to the server.
+     * @throws IOException If an I/O error occurs or a reply does not match its message.
+     */
+    private void handlePipelinedMessaging(Player player, MessageTransport transport) throws IOException {
+        Player greeting = new Player().initializeMessage();
+        player2 = new Player();
+        int inFlight = 1; // The constructor sent the first message
+        int unflushed = 0;
+        while (true) {
+            while (inFlight < settings.getWindow() && player.getMessageCount().intValue() < settings.getMaxMessages()) {
+                player.generateResponseFor(greeting);
+                if (Logger.isEnabled(LogLevel.DEBUG)) {
+                    Logger.logWithPid("Sending from Initiator: ", player.getMessage());
+                }
+                write(player);
+                inFlight++;
+                if (++unflushed >= settings.getCoalesce()) {
+                    transport.flush();
+                    unflushed = 0;
+                }
+            }
+            if (unflushed > 0 && !transport.hasPendingInput()) {
+                transport.flush(); // Never wait for replies to messages that have not left yet
+                unflushed = 0;
+            }
+            if (!receive(player2)) {
+                throw new EOFException("Server closed the connection with " + inFlight + " messages in flight");
+            }
+            inFlight--;
+            int answered = player.getMessageCount().intValue() - inFlight;
+            if (player2.getMessageCount().intValue() != answered) {
+                throw new ProtocolException("Reply " + player2.getMessageCount() + " received for message " + answered);
+            }
+            if (isSessionComplete(player, player2)) {
+                Logger.log("Closing Initiator");
+                finishSession();
+                return;
+            }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Handles a flow controlled session: the initiator publishes its messages through a {@link CreditPublisher}
+     * whose subscriber stands in for the server. The server grants {@link SessionSettings#getFlowCredits()}
+     * credits, and each reply acknowledges one message and returns its credit. Without credit the publisher
+     * turns the next message away and the initiator reads replies instead, so it never gets more than the
+     * credits ahead of the server, however slow the server is. Like a pipelined session every message is an
+     * independent reply to the greeting and the n-th reply must carry the server's counter n.
+     *
+     * @param player    The player involved in the chat communication; its first message has been sent.
+     * @param transport The link to the server.
+     * @throws IOException If an I/O error occurs or a reply does not match its message.
+     */
+    private void handleFlowMessaging(Player player, MessageTransport transport) throws IOException {
+        flowStats = new FlowStats("Initiator -> Server", settings.getFlowCredits());
+        CreditPublisher<Player> publisher = new CreditPublisher<>(flowStats);
+        RemoteSubscriber<Player> server = new RemoteSubscriber<>(settings.getFlowCredits(), 1, flowStats) {
+            @Override
+            protected void transmit(Player message) throws IOException {
+                if (Logger.isEnabled(LogLevel.DEBUG)) {
+                    Logger.logWithPid("Sending from Initiator: ", message.getMessage());
+                }
+                write(message);
+            }
+        };
+        publisher.subscribe(server);
+        Player greeting = new Player().initializeMessage();
+        player2 = new Player();
+        boolean generated = false; // The player holds a message the publisher has not accepted yet
+        int unflushed = 0;
+        try {
+            while (true) {
+                if (!generated && player.getMessageCount().intValue() < settings.getMaxMessages()) {
+                    player.generateResponseFor(greeting);
+                    generated = true;
+                }
+                if (generated && publisher.offer(player)) {
+                    generated = false;
+                    if (++unflushed >= settings.getCoalesce()) {
+                        transport.flush();
+                        unflushed = 0;
+                    }
+                    continue;
+                }
+                if (unflushed > 0) {
+                    transport.flush(); // Never wait for replies to messages that have not left yet
+                    unflushed = 0;
+                }
+                if (!receive(player2)) {
+                    throw new EOFException("Server closed the connection with " + server.getInFlight() + " messages in flight");
+                }
+                int answered = player.getMessageCount().intValue() - (generated ? 1 : 0) - server.getInFlight() + 1;
+                if (player2.getMessageCount().intValue() != answered) {
+                    throw new ProtocolException("Reply " + player2.getMessageCount() + " received for message " + answered);
+                }
+                server.acknowledge();
+                if (isSessionComplete(player, player2)) {
+                    publisher.complete();
+                    Logger.log("Initiator flow " + flowStats);
+                    Logger.log("Closing Initiator");
+                    finishSession();
+                    return;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return The backpressure counters of a flow controlled session, or {@code null} without flow control.
+     */
+    public FlowStats getFlowStats() {
+        return flowStats;
+    }
+}
@@ -0,0 +1,217 @@
+package com.company.player.separatepid;
+
+import com.company.player.separatepid.transport.CompressionStats;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MultiplexedTransport;
+import com.company.player.util.Constants;
+import com.company.player.util.LogLevel;
+import com.company.player.util.Logger;
+import com.company.player.util.MetricsReporter;
+import com.company.player.util.SessionMetrics;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+
+/**
+ * Represents a client node that holds {@link SessionSettings#getStreams()} independent initiator
+ * conversations over a single connection to {@link NioServerNode}, instead of one connection per
+ * conversation as {@link InitiatorNode} does. Each conversation, or stream, has its own players and
+ * {@link FrameCodec}; the frames of all streams are interleaved in the
+ * {@link com.company.player.separatepid.transport.MultiplexCodec} format.
+ * <p>
+ * Every stream is a ping-pong conversation, so it has at most one message in flight and at most one reply
+ * waiting to be sent. The replies are sent in the order their messages arrived, one frame per stream per
+ * round, so a busy stream cannot get ahead of the others; the frames written in a round leave with one
+ * flush per {@link SessionSettings#getCoalesce()} frames.
+ * <p>
+ * Each stream ends on its own stop condition. A stream whose frames are malformed or fail the
+ * conversation checksum is reset on its own, without disturbing the other streams.
+ *
+ * @author priyanshu
+ */
+public class MultiplexedInitiatorNode implements Closeable {
+
+    private final SessionSettings settings;
+    private final SessionMetrics metrics;
+    private final CompressionStats compressionStats = new CompressionStats();
+    private final MultiplexedTransport transport;
+    private final Stream[] streams;
+    private final int[] ready;
+    private int readyHead;
+    private int readyCount;
+    private int activeStreams;
+    private int completedStreams;
+    private int resetStreams;
+
+    /**
+     * Connects to the multi-session server and prepares the streams.
+     *
+     * @param settings The session settings; must match the server's.
+     * @throws IOException If no server is available.
+     */
+    public MultiplexedInitiatorNode(SessionSettings settings) throws IOException {
+        this.settings = settings;
+        this.metrics = new SessionMetrics(Constants.PLAYER_1, settings.getMetrics().isEnabled());
+        this.transport = settings.getTransport().connectMultiplexed();
+        this.streams = new Stream[settings.getStreams()];
+        this.ready = new int[streams.length];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = new Stream();
+        }
+    }
+
+    /**
+     * Opens every stream with the greeting and runs the conversations until each has reached its stop
+     * condition or has been reset.
+     *
+     * @throws IOException If the connection fails or the server closes it while streams are active.
+     */
+    public void run() throws IOException {
+        MetricsReporter reporter = new MetricsReporter(settings.getMetrics(), metrics);
+        try {
+            for (int i = 0; i < streams.length; i++) {
+                streams[i].player.generateResponseFor(streams[i].player);
+                schedule(i);
+            }
+            activeStreams = streams.length;
+            Logger.log("Sending from Initiator: " + streams[0].player.getMessage() + " on " + streams.length + " streams");
+            while (activeStreams > 0) {
+                sendReady();
+                do {
+                    receive();
+                } while (activeStreams > 0 && transport.hasPendingInput());
+            }
+        } finally {
+            reporter.close();
+        }
+        Logger.log("Closing Initiator: " + completedStreams + " streams completed, " + resetStreams + " reset");
+        if (settings.getCompression().isEnabled()) {
+            Logger.log(Constants.PLAYER_1 + " " + compressionStats);
+        }
+    }
+
+    /**
+     * @return The number of streams that reached their stop condition.
+     */
+    public int getCompletedStreams() {
+        return completedStreams;
+    }
+
+    /**
+     * @return The number of streams that were abandoned by either side.
+     */
+    public int getResetStreams() {
+        return resetStreams;
+    }
+
+    /**
+     * Writes the pending reply of every ready stream in the order they became ready and flushes.
+     */
+    private void sendReady() throws IOException {
+        int unflushed = 0;
+        while (readyCount > 0) {
+            int streamId = ready[readyHead];
+            readyHead = (readyHead + 1) % ready.length;
+            readyCount--;
+            Stream stream = streams[streamId];
+            if (Logger.isEnabled(LogLevel.DEBUG)) {
+                Logger.logWithPid("Sending from Initiator on stream " + streamId + ": ", stream.player.getMessage());
+            }
+            transport.write(streamId, stream.codec, stream.player);
+            stream.sentAt = System.nanoTime();
+            metrics.messageSent();
+            if (++unflushed >= settings.getCoalesce()) {
+                transport.flush();
+                unflushed = 0;
+            }
+        }
+        transport.flush();
+    }
+
+    /**
+     * Receives one frame and lets its stream reply, complete or reset.
+     */
+    private void receive() throws IOException {
+        int streamId = transport.receive();
+        if (streamId < 0) {
+            throw new EOFException("Server closed the connection with " + activeStreams + " streams active");
+        }
+        Stream stream = streamId < streams.length ? streams[streamId] : null;
+        if (stream == null || stream.done) {
+            throw new ProtocolException("Frame received for stream " + streamId + ", which is not active");
+        }
+        if (transport.isReset()) {
+            Logger.log(LogLevel.WARN, "Server reset stream " + streamId + ": " + transport.getResetReason());
+            finish(stream, false);
+            return;
+        }
+        try {
+            transport.decode(stream.codec, stream.peer);
+        } catch (ProtocolException e) {
+            Logger.log(LogLevel.WARN, "Resetting stream " + streamId + ": " + e.getMessage());
+            transport.reset(streamId, e.getMessage());
+            finish(stream, false);
+            return;
+        }
+        metrics.messageReceived();
+        if (stream.peer.getTimestamp() != 0) {
+            metrics.recordHopLatency(SessionMetrics.wallClockNanos() - stream.peer.getTimestamp());
+        }
+        metrics.recordRoundTrip(System.nanoTime() - stream.sentAt);
+        if (settings.isComplete(stream.player, stream.peer)) {
+            finish(stream, true);
+            return;
+        }
+        settings.reply(stream.player, stream.peer);
+        schedule(streamId);
+    }
+
+    private void schedule(int streamId) {
+        ready[(readyHead + readyCount++) % ready.length] = streamId;
+    }
+
+    private void finish(Stream stream, boolean completed) {
+        stream.done = true;
+        activeStreams--;
+        if (completed) {
+            completedStreams++;
+        } else {
+            resetStreams++;
+        }
+    }
+
+    /**
+     * Closes the connection, which also ends the streams that are still active, and the codecs of the streams.
+     */
+    @Override
+    public void close() {
+        for (Stream stream : streams) {
+            stream.codec.close();
+        }
+        try {
+            transport.close();
+        } catch (IOException e) {
+            Logger.log(LogLevel.WARN, "Error closing transport: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The state of one conversation: its players, codec and the send time of the message in flight.
+     */
+    private final class Stream {
+        private final FrameCodec codec = settings.newCodec(compressionStats);
+        private final Player player = new Player();
+        private final Player peer = new Player();
+        private long sentAt;
+        private boolean done;
+
+        Stream() {
+            codec.setTimestamps(metrics.isEnabled());
+            player.setName(Constants.PLAYER_1);
+            player.setId(Constants.PLAYER_1_ID);
+            player.initializeMessage();
+        }
+    }
+}
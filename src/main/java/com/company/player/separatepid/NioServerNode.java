@@ -0,0 +1,565 @@
+package com.company.player.separatepid;
+
+import com.company.player.separatepid.transport.CompressionStats;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MultiplexCodec;
+import com.company.player.util.Constants;
+import com.company.player.util.LogLevel;
+import com.company.player.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a server node that hosts many initiator sessions at once. Unlike {@link ServerNode},
+ * which serves a single blocking conversation and then exits, this node accepts connections on a
+ * non-blocking {@link ServerSocketChannel} and spreads them over a small, fixed number of reactor
+ * threads. Each reactor multiplexes its connections with its own {@link Selector}, so capacity grows
+ * with the number of cores rather than the number of processes.
+ * <p>
+ * Every connection is an independent session with its own server {@link Player} and {@link FrameCodec}.
+ * When the stop condition of a session is reached the final reply is flushed and the connection is
+ * closed; the node itself keeps serving until {@link #close()} is called.
+ * <p>
+ * Sessions read and write through direct buffers, so the socket reads and writes need no copy into a
+ * temporary native buffer. Each reactor pools the buffers of closed sessions for the next ones.
+ * <p>
+ * A connection that opens with the {@link MultiplexCodec#PREFACE} of a {@link MultiplexedInitiatorNode}
+ * carries many conversations instead, one per stream. Each stream is counted as a session and ends on its
+ * own stop condition, and the connection stays open until the initiator closes it.
+ * <p>
+ * Note: Plain clients are regular {@link InitiatorNode}s; their wire format is unchanged.
+ *
+ * @author priyanshu
+ */
+public class NioServerNode implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final int INITIAL_STREAM_TABLE_SIZE = 8;
+
+    private final SessionSettings settings;
+    private final ServerSocketChannel serverChannel;
+    private final Selector acceptSelector;
+    private final Reactor[] reactors;
+    private final Thread acceptor;
+    private final AtomicLong openedSessions = new AtomicLong();
+    private final AtomicLong completedSessions = new AtomicLong();
+    private final AtomicLong failedSessions = new AtomicLong();
+    private final CompressionStats compressionStats = new CompressionStats();
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server to the given port and starts the acceptor and reactor threads.
+     *
+     * @param settings     The session settings every connection is served with.
+     * @param port         The port to listen on, {@code 0} for an ephemeral port.
+     * @param reactorCount The number of reactor threads.
+     * @throws IOException If the server channel cannot be bound.
+     */
+    public NioServerNode(SessionSettings settings, int port, int reactorCount) throws IOException {
+        if (reactorCount <= 0) {
+            throw new IllegalArgumentException("reactorCount must be positive: " + reactorCount);
+        }
+        this.settings = settings;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), Constants.ACCEPT_BACKLOG);
+        this.serverChannel.configureBlocking(false);
+        this.acceptSelector = Selector.open();
+        this.serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+        this.reactors = new Reactor[reactorCount];
+        for (int i = 0; i < reactorCount; i++) {
+            reactors[i] = new Reactor(i);
+            reactors[i].start();
+        }
+        this.acceptor = new Thread(this::acceptLoop, "nio-server-acceptor");
+        this.acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The local port.
+     * @throws IOException If the address cannot be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @return The number of accepted connections.
+     */
+    public long getOpenedSessions() {
+        return openedSessions.get();
+    }
+
+    /**
+     * @return The number of sessions that reached the stop condition.
+     */
+    public long getCompletedSessions() {
+        return completedSessions.get();
+    }
+
+    /**
+     * @return The number of sessions that ended with an error or an early disconnect.
+     */
+    public long getFailedSessions() {
+        return failedSessions.get();
+    }
+
+    /**
+     * @return The compression counters of all sessions.
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /**
+     * Blocks until the server has been closed.
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+        for (Reactor reactor : reactors) {
+            reactor.join();
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes every open session and stops the threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        acceptSelector.wakeup();
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        try {
+            while (running) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    openedSessions.incrementAndGet();
+                    reactors[next].register(channel);
+                    next = (next + 1) % reactors.length;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                Logger.log(LogLevel.WARN, "NIO server stopped accepting: " + e.getMessage());
+            }
+        } finally {
+            closeQuietly(acceptSelector);
+            closeQuietly(serverChannel);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Logger.log(LogLevel.WARN, "Error closing resource: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A thread owning one selector and all sessions registered with it.
+     */
+    private final class Reactor extends Thread {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+
+        Reactor(int index) throws IOException {
+            super("nio-server-reactor-" + index);
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerPending();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Session session = (Session) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            session.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.onWritable();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                Logger.log(LogLevel.WARN, getName() + " stopped: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Session) key.attachment()).close();
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        /**
+         * Takes a direct buffer of the default size from the pool, or allocates one if the pool is empty.
+         */
+        ByteBuffer acquireBuffer() {
+            ByteBuffer buffer = bufferPool.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        }
+
+        /**
+         * Returns a buffer to the pool; buffers that grew beyond the default size are left to the collector.
+         */
+        void releaseBuffer(ByteBuffer buffer) {
+            if (buffer.capacity() == READ_BUFFER_SIZE && bufferPool.size() < MAX_POOLED_BUFFERS) {
+                bufferPool.push(buffer.clear());
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, settings.getTransport().isTcpNoDelay());
+                    Session session = new Session(channel, this);
+                    session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                } catch (IOException e) {
+                    failedSessions.incrementAndGet();
+                    Logger.log(LogLevel.WARN, "Could not register connection: " + e.getMessage());
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of one connection: its conversations and partially read or written bytes. A plain connection
+     * carries a single conversation; one that opens with {@link MultiplexCodec#PREFACE} carries a conversation
+     * per stream, each opened by its first frame. Only ever touched by the reactor thread the connection is
+     * registered with.
+     */
+    private final class Session {
+        private final SocketChannel channel;
+        private final Reactor reactor;
+        private Conversation conversation;
+        private Conversation[] streams;
+        private int openStreams;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private SelectionKey key;
+        private boolean complete;
+        private boolean writePending;
+
+        Session(SocketChannel channel, Reactor reactor) {
+            this.channel = channel;
+            this.reactor = reactor;
+            this.in = reactor.acquireBuffer();
+            this.out = reactor.acquireBuffer();
+        }
+
+        void onReadable() {
+            try {
+                int read = channel.read(in);
+                if (read < 0) {
+                    // The initiator left before the stop condition was reached, or after all of its streams ended
+                    fail();
+                    return;
+                }
+                in.flip();
+                if (conversation == null && streams == null && in.remaining() >= FrameCodec.LENGTH_FIELD_SIZE) {
+                    if (in.getInt(in.position()) == MultiplexCodec.PREFACE) {
+                        in.position(in.position() + FrameCodec.LENGTH_FIELD_SIZE);
+                        streams = new Conversation[INITIAL_STREAM_TABLE_SIZE];
+                    } else {
+                        conversation = new Conversation();
+                    }
+                }
+                if (streams != null) {
+                    while (decodeMultiplexedFrame()) {
+                        // Every complete frame has been answered or has reset its stream
+                    }
+                } else if (conversation != null) {
+                    while (!complete && conversation.codec.decodeFrame(in, conversation.peer)) {
+                        ByteBuffer frame = conversation.respond();
+                        ensureWriteCapacity(frame.remaining());
+                        out.put(frame);
+                        complete = conversation.isComplete();
+                    }
+                }
+                ensureReadCapacity();
+                if (!writePending) {
+                    flush(); // Otherwise the socket is full and the replies wait for the next writable event
+                }
+            } catch (IOException e) {
+                Logger.log(LogLevel.WARN, "Session failed: " + e.getMessage());
+                fail();
+            }
+        }
+
+        void onWritable() {
+            try {
+                flush();
+            } catch (IOException e) {
+                Logger.log(LogLevel.WARN, "Session failed: " + e.getMessage());
+                fail();
+            }
+        }
+
+        /**
+         * Counts the conversations that had not reached their stop condition as failed and closes the connection.
+         */
+        private void fail() {
+            failedSessions.addAndGet(streams == null ? 1 : openStreams);
+            close();
+        }
+
+        /**
+         * Handles the next multiplexed frame if it has fully arrived: answers a data frame on its stream,
+         * opening the stream if needed, or drops a stream the initiator reset. A stream whose frame cannot
+         * be decoded is reset; only malformed multiplexing headers fail the whole connection.
+         *
+         * @return {@code true} if a frame was handled, {@code false} if more bytes are needed.
+         */
+        private boolean decodeMultiplexedFrame() throws IOException {
+            if (in.remaining() < FrameCodec.LENGTH_FIELD_SIZE) {
+                return false;
+            }
+            int size = MultiplexCodec.frameSizeAt(in);
+            if (in.remaining() < size) {
+                return false;
+            }
+            int limit = in.limit();
+            int end = in.position() + size;
+            in.position(in.position() + FrameCodec.LENGTH_FIELD_SIZE).limit(end);
+            try {
+                int streamId = in.getInt();
+                byte type = in.get();
+                MultiplexCodec.checkHeader(streamId, type);
+                if (type == MultiplexCodec.TYPE_RESET) {
+                    if (closeStream(streamId)) {
+                        failedSessions.incrementAndGet();
+                    }
+                    return true;
+                }
+                boolean opening = streamId >= streams.length || streams[streamId] == null;
+                Conversation stream = openStream(streamId);
+                try {
+                    stream.codec.decode(in, stream.peer);
+                } catch (ProtocolException e) {
+                    resetStream(streamId, e.getMessage());
+                    return true;
+                }
+                if (opening && stream.peer.getMessageCount().intValue() != 1) {
+                    // E.g. a stream this server already completed because it runs with fewer messages
+                    resetStream(streamId, "Stream opened with message " + stream.peer.getMessageCount() + " instead of 1");
+                    return true;
+                }
+                ByteBuffer frame = stream.respond();
+                int bodyLength = frame.remaining() - FrameCodec.LENGTH_FIELD_SIZE;
+                ensureWriteCapacity(MultiplexCodec.HEADER_SIZE + frame.remaining());
+                MultiplexCodec.putHeader(out, streamId, MultiplexCodec.TYPE_DATA, bodyLength);
+                out.put(frame.position(frame.position() + FrameCodec.LENGTH_FIELD_SIZE));
+                if (stream.isComplete()) {
+                    closeStream(streamId);
+                    completedSessions.incrementAndGet();
+                    if (Logger.isEnabled(LogLevel.DEBUG)) {
+                        Logger.logWithPid("Closing Server stream " + streamId + " of ", channel.getRemoteAddress());
+                    }
+                }
+                return true;
+            } finally {
+                in.limit(limit).position(end);
+            }
+        }
+
+        /**
+         * Abandons a stream whose conversation failed and tells the initiator why.
+         */
+        private void resetStream(int streamId, String reason) {
+            Logger.log(LogLevel.WARN, "Resetting stream " + streamId + ": " + reason);
+            closeStream(streamId);
+            failedSessions.incrementAndGet();
+            byte[] body = reason.getBytes(StandardCharsets.UTF_8);
+            ensureWriteCapacity(FrameCodec.LENGTH_FIELD_SIZE + MultiplexCodec.HEADER_SIZE + body.length);
+            MultiplexCodec.putHeader(out, streamId, MultiplexCodec.TYPE_RESET, body.length);
+            out.put(body);
+        }
+
+        private Conversation openStream(int streamId) {
+            if (streamId >= streams.length) {
+                Conversation[] grown = new Conversation[Math.min(MultiplexCodec.MAX_STREAMS,
+                        Math.max(streamId + 1, streams.length * 2))];
+                System.arraycopy(streams, 0, grown, 0, streams.length);
+                streams = grown;
+            }
+            Conversation stream = streams[streamId];
+            if (stream == null) {
+                stream = new Conversation();
+                streams[streamId] = stream;
+                openStreams++;
+            }
+            return stream;
+        }
+
+        /**
+         * Forgets a stream; a later data frame with the same id opens a new conversation.
+         *
+         * @return {@code true} if the stream was open.
+         */
+        private boolean closeStream(int streamId) {
+            if (streamId >= streams.length || streams[streamId] == null) {
+                return false;
+            }
+            streams[streamId].codec.close();
+            streams[streamId] = null;
+            openStreams--;
+            return true;
+        }
+
+        /**
+         * Grows the write buffer if the given number of bytes does not fit.
+         */
+        private void ensureWriteCapacity(int bytes) {
+            if (out.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + bytes));
+                out.flip();
+                grown.put(out);
+                reactor.releaseBuffer(out);
+                out = grown;
+            }
+        }
+
+        /**
+         * Compacts the read buffer and grows it if the next frame does not fit.
+         */
+        private void ensureReadCapacity() throws IOException {
+            int needed = 0;
+            if (in.remaining() >= FrameCodec.LENGTH_FIELD_SIZE && (conversation != null || streams != null)) {
+                needed = streams != null ? MultiplexCodec.frameSizeAt(in) : FrameCodec.frameSizeAt(in);
+            }
+            if (needed > in.capacity()) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(needed);
+                grown.put(in);
+                reactor.releaseBuffer(in);
+                in = grown;
+            } else {
+                in.compact();
+            }
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            writePending = out.position() > 0;
+            if (writePending) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if (complete) {
+                completedSessions.incrementAndGet();
+                Logger.logWithPid("Closing Server session ", channel.getRemoteAddress());
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            if (conversation != null) {
+                conversation.codec.close();
+            }
+            if (streams != null) {
+                for (Conversation stream : streams) {
+                    if (stream != null) {
+                        stream.codec.close();
+                    }
+                }
+            }
+            if (in != null) {
+                reactor.releaseBuffer(in);
+                reactor.releaseBuffer(out);
+                in = null;
+                out = null;
+            }
+            try {
+                channel.close();
+            } catch (ClosedChannelException e) {
+                // Already closed
+            } catch (IOException e) {
+                Logger.log(LogLevel.WARN, "Error closing session: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One initiator conversation: the server {@link Player}, the last state of the initiator and the codec.
+     */
+    private final class Conversation {
+        private final FrameCodec codec = settings.newCodec(compressionStats);
+        private final Player player = new Player();
+        private final Player peer = new Player();
+
+        Conversation() {
+            player.setName(Constants.PLAYER_2);
+            player.setId(Constants.PLAYER_2_ID);
+            player.initializeMessage();
+        }
+
+        /**
+         * Replies to the message just decoded into the peer.
+         *
+         * @return The encoded reply, including its length prefix; valid until the next call.
+         */
+        ByteBuffer respond() throws IOException {
+            settings.reply(player, peer);
+            if (Logger.isEnabled(LogLevel.DEBUG)) {
+                Logger.logWithPid("Sending from Server: ", player.getMessage());
+            }
+            return codec.encode(player);
+        }
+
+        boolean isComplete() {
+            return settings.isComplete(player, peer);
+        }
+    }
+}
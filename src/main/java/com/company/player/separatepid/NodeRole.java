@@ -0,0 +1,25 @@
+package com.company.player.separatepid;
+
+/**
+ * The role a separate process node plays in its session.
+ *
+ * @author priyanshu
+ */
+public enum NodeRole {
+
+    /**
+     * Try to connect as the initiator and become the server if no server answers. Two processes started
+     * at about the same time race for the roles, so a launcher assigns them explicitly instead.
+     */
+    AUTO,
+
+    /**
+     * Wait for the initiator, the {@link ServerNode}.
+     */
+    SERVER,
+
+    /**
+     * Connect to a waiting server and open the conversation, the {@link InitiatorNode}.
+     */
+    INITIATOR
+}
@@ -1,5 +1,7 @@
 package com.company.player.separatepid;
 
+import com.company.player.util.TextBuffer;
+
 import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -9,6 +11,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Implements {@link Serializable} to allow player instances to be transferred across streams.
  * Each Player object maintains a thread-safe message count using {@link AtomicInteger}.
  * <p>
+ * The message is a {@link TextBuffer} that is rewritten in place on every turn, so generating and
+ * receiving replies does not allocate; {@link #getMessage()} materializes a {@link String} on demand.
+ * <p>
  * Note: This class can be instantiated using either the default constructor or a parameterized constructor.
  * <p>
  * Note: This class has only been used for the separate process requirement.
@@ -19,8 +24,10 @@ public class Player implements Serializable {
     private static final long serialVersionUID = 1L; // Added for serialization compatibility
 
     private String name;
-    private String message;
+    private short id;
+    private final TextBuffer message = new TextBuffer();
     private AtomicInteger messageCount = new AtomicInteger(0);
+    private long timestamp;
 
     /**
      * Default constructor for creating a new player instance.
@@ -37,7 +44,7 @@ public class Player implements Serializable {
      */
     public Player(String name, String message, AtomicInteger messageCount) {
         this.name = name;
-        this.message = message;
+        this.message.setTo(message);
         this.messageCount = messageCount;
     }
 
@@ -51,11 +58,22 @@ public class Player implements Serializable {
     }
 
     /**
-     * Retrieves the player's current message.
+     * Retrieves the player's current message. The {@link String} is created on the first call after the
+     * message changed, so callers on the hot path should prefer {@link #getText()}.
      *
      * @return The current message as a {@link String}.
      */
     public String getMessage() {
+        return message.toString();
+    }
+
+    /**
+     * Retrieves the player's current message without materializing it. The text is overwritten by the
+     * next reply or received message.
+     *
+     * @return The reusable message text.
+     */
+    public TextBuffer getText() {
         return message;
     }
 
@@ -65,7 +83,7 @@ public class Player implements Serializable {
      * @param message The message to be set.
      */
     public void setMessage(String message) {
-        this.message = message;
+        this.message.setTo(message);
     }
 
     /**
@@ -82,9 +100,19 @@ public class Player implements Serializable {
      * @param sender The player who sent the incoming message.
      */
     public void generateResponseFor(Player sender) {
-        String response = sender.getMessage() + " [reply" + this.getMessageCount() + "]";
-        incrementMessageCount();
-        this.setMessage(response);
+        if (sender != this) {
+            message.setTo(sender.message);
+        }
+        message.appendReplySuffix(messageCount.getAndIncrement());
+    }
+
+    /**
+     * Generates only the suffix a reply appends and increments the player's message count.
+     * Used in {@link com.company.player.util.ProtocolMode#DELTA} mode, where the conversation itself
+     * is kept by the transport and never copied into the player.
+     */
+    public void generateReplySuffix() {
+        message.clear().appendReplySuffix(messageCount.getAndIncrement());
     }
 
     /**
@@ -93,10 +121,46 @@ public class Player implements Serializable {
      * @return The current player instance with an initialized message.
      */
     public Player initializeMessage() {
-        this.message = "Hello!";
+        this.message.setTo("Hello!");
         return this;
     }
 
+    /**
+     * Retrieves the player's id, the compact identity sent on the wire instead of the name.
+     *
+     * @return The player's id.
+     */
+    public short getId() {
+        return id;
+    }
+
+    /**
+     * Sets the player's id.
+     *
+     * @param id The id to be set for the player.
+     */
+    public void setId(short id) {
+        this.id = id;
+    }
+
+    /**
+     * Retrieves the time the received message was sent, as transmitted by the peer when metrics are enabled.
+     *
+     * @return The sender's wall clock time in nanoseconds since the epoch, or {@code 0} if none was transmitted.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets the time the message was sent.
+     *
+     * @param timestamp The wall clock time in nanoseconds since the epoch, {@code 0} for none.
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     /**
      * Sets the player's name.
      *
@@ -0,0 +1,139 @@
+package com.company.player.separatepid;
+
+import com.company.player.util.Logger;
+import com.company.player.util.SessionMetrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a separate process session with one command: it spawns the server and the initiator as child
+ * processes with explicit {@link NodeRole}s, instead of starting two identical processes a fixed time
+ * apart and letting them race for the roles.
+ * <p>
+ * The server is started first and creates a ready file once the initiator can connect (see
+ * {@link com.company.player.separatepid.transport.TransportConfig#signalReady()}). The launcher polls for
+ * the file with an exponential backoff, capped at {@link #MAX_BACKOFF_MILLIS} per wait and at the ready
+ * timeout overall, and gives up early if the server exits. Only then is the initiator started, so it
+ * connects on its first attempt. Both children receive the launch time and report how long after it
+ * their first message arrived.
+ * <p>
+ * The children run with the launcher's JVM options and class path and share its console. Unless a session
+ * key is given, both get the launcher's PID as theirs, so their flight recorder events name the same session.
+ *
+ * @author priyanshu
+ */
+public final class SeparateProcessLauncher {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1;
+    private static final long MAX_BACKOFF_MILLIS = 50;
+
+    private final String mainClass;
+    private final List<String> arguments;
+    private final long readyTimeoutMillis;
+
+    /**
+     * Configures a launcher.
+     *
+     * @param mainClass          The entry point the children run, with mode {@code 2}.
+     * @param arguments          The options passed on to both children, e.g. {@code --messages=100}.
+     * @param readyTimeoutMillis How long to wait for the server to become ready.
+     */
+    public SeparateProcessLauncher(String mainClass, List<String> arguments, long readyTimeoutMillis) {
+        if (readyTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("readyTimeoutMillis must be positive: " + readyTimeoutMillis);
+        }
+        this.mainClass = mainClass;
+        this.arguments = List.copyOf(arguments);
+        this.readyTimeoutMillis = readyTimeoutMillis;
+    }
+
+    /**
+     * Runs the session: starts the server, waits until it is ready, starts the initiator and waits for both
+     * to exit. A server that is still running after the initiator failed is stopped.
+     *
+     * @return {@code true} if both processes exited normally.
+     * @throws IOException          If a process cannot be started or the server does not become ready.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean run() throws IOException, InterruptedException {
+        Path readyFile = Files.createTempFile("player-session", ".ready");
+        Files.delete(readyFile);
+        long launchedAt = SessionMetrics.wallClockNanos();
+        long start = System.nanoTime();
+        Process server = start(NodeRole.SERVER, launchedAt, "--ready-file=" + readyFile);
+        Process initiator = null;
+        try {
+            awaitReady(server, readyFile);
+            Logger.log(String.format("Server started with PID %d, ready after %.1f ms",
+                    server.pid(), (System.nanoTime() - start) / 1e6));
+            initiator = start(NodeRole.INITIATOR, launchedAt);
+            Logger.log("Initiator started with PID " + initiator.pid());
+
+            int initiatorExit = initiator.waitFor();
+            if (initiatorExit != 0) {
+                server.destroy(); // It may still be waiting for a peer that is gone
+            }
+            int serverExit = server.waitFor();
+            Logger.log(String.format("Session finished after %.1f ms: initiator exited with %d, server with %d",
+                    (System.nanoTime() - start) / 1e6, initiatorExit, serverExit));
+            return initiatorExit == 0 && serverExit == 0;
+        } finally {
+            if (initiator != null) {
+                initiator.destroy();
+            }
+            server.destroy();
+            Files.deleteIfExists(readyFile);
+        }
+    }
+
+    /**
+     * Starts a child process in separate process mode with the given role.
+     */
+    private Process start(NodeRole role, long launchedAt, String... extraArguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        command.add("2");
+        if (arguments.stream().noneMatch(argument -> argument.startsWith("--session-key="))) {
+            command.add("--session-key=" + ProcessHandle.current().pid());
+        }
+        command.addAll(arguments);
+        // Appended last, so that they override anything of the same name in the passed on options
+        command.add("--role=" + role.name().toLowerCase(Locale.ROOT));
+        command.add("--launched-at=" + launchedAt);
+        command.addAll(List.of(extraArguments));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Polls for the ready file with a bounded exponential backoff.
+     *
+     * @throws IOException If the server exits or the timeout expires before the file appears.
+     */
+    private void awaitReady(Process server, Path readyFile) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readyTimeoutMillis);
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        while (!Files.exists(readyFile)) {
+            if (!server.isAlive()) {
+                throw new IOException("Server exited with code " + server.exitValue() + " before it was ready");
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new IOException("Server was not ready after " + readyTimeoutMillis + " ms");
+            }
+            Thread.sleep(Math.min(backoffMillis, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1));
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package com.company.player.separatepid;
 
+import com.company.player.separatepid.transport.MessageTransport;
 import com.company.player.util.Constants;
+import com.company.player.util.LogLevel;
 import com.company.player.util.Logger;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
 
 /**
  * Represents the server node in the messaging service. This class creates a server that waits
@@ -16,62 +14,91 @@ import java.net.Socket;
  * It listens for incoming client connections and handles communication by sending and
  * receiving messages until the session reaches its defined end.
  * <p>
- * Note: This server operates on a port defined in the {@link Constants} class.
+ * Note: By default this server operates on a port defined in the {@link Constants} class;
+ * {@link com.company.player.separatepid.transport.TransportConfig} selects another port or transport.
  *
  * @author Priyanshu
  */
 public class ServerNode extends BaseNode {
-    private ServerSocket serverSocket;
 
     /**
-     * Constructs a ServerNode, sets up the server socket, and waits for a client connection.
+     * Constructs a ServerNode with the default session settings.
+     *
+     * @throws IOException If an I/O error occurs while setting up the server socket or streams.
+     */
+    public ServerNode() throws IOException {
+        this(SessionSettings.defaults());
+    }
+
+    /**
+     * Constructs a ServerNode, sets up the configured transport, and waits for a client connection.
      * Once connected, it initializes a player instance and begins the chat process.
+     * Returns once the session has ended.
      *
-     * @throws IOException            If an I/O error occurs while setting up the server socket or streams.
-     * @throws ClassNotFoundException If the class of a serialized object cannot be found.
+     * @param settings The session settings; must match the initiator's.
+     * @throws IOException If an I/O error occurs while setting up the server socket or streams.
      */
-    public ServerNode() throws IOException, ClassNotFoundException {
-        try (ServerSocket serverSocket = new ServerSocket(Constants.PORT);
-             Socket socket = serverSocket.accept();
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
-             ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());) {
+    public ServerNode(SessionSettings settings) throws IOException {
+        super(settings, Constants.PLAYER_2);
+        try {
+            startSession(settings.getTransport().accept(newCodec()));
 
             player1 = new Player();
             player1.setName(Constants.PLAYER_2);
+            player1.setId(Constants.PLAYER_2_ID);
             player1.initializeMessage();
 
-            handleMessaging(player1, objectInputStream, objectOutputStream);
+            handleMessaging(player1, transport);
         } finally {
             // Ensuring that server resources are closed properly
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
-            }
+            close();
         }
     }
 
+    /**
+     * In a pipelined or flow controlled session the initiator's messages do not answer the server's replies.
+     *
+     * @return {@code true} for ping-pong sessions only.
+     */
+    @Override
+    protected boolean receivesReplies() {
+        return !settings.isPipelined();
+    }
+
     /**
      * Handles the chat communication with the connected client. Listens for incoming messages
      * from the client, generates a response, and sends it back. Checks whether the chat has
      * reached the maximum message count to finalize the session.
+     * <p>
+     * Replies go out in the order the messages arrived. They are flushed once no further message is
+     * waiting or the configured number of replies has been coalesced, so a pipelining initiator
+     * receives its replies in batches while a ping-pong initiator still gets every reply immediately.
      *
-     * @param player             The player object representing the server's player.
-     * @param objectInputStream  Input stream to receive messages from the client.
-     * @param objectOutputStream Output stream to send messages to the client.
-     * @throws IOException            If an I/O error occurs during communication.
-     * @throws ClassNotFoundException If the class of a serialized object cannot be found.
+     * @param player    The player object representing the server's player.
+     * @param transport The link to the client.
+     * @throws IOException If an I/O error occurs during communication.
      */
-    protected void handleMessaging(Player player, ObjectInputStream objectInputStream, ObjectOutputStream objectOutputStream) throws IOException, ClassNotFoundException {
-        while ((player2 = (Player) objectInputStream.readObject()) != null) {
+    protected void handleMessaging(Player player, MessageTransport transport) throws IOException {
+        player2 = new Player();
+        int unflushed = 0;
+        while (receive(player2)) {
             // Generate and send the server's response
-            player.generateResponseFor(player2);
-            Logger.logWithPid("Sending from Server: " + player.getMessage());
-            objectOutputStream.reset();
-            objectOutputStream.writeObject(player);
+            reply(player, player2);
+            if (Logger.isEnabled(LogLevel.DEBUG)) {
+                Logger.logWithPid("Sending from Server: ", player.getMessage());
+            }
+            write(player);
+            if (++unflushed >= settings.getCoalesce() || !transport.hasPendingInput()) {
+                transport.flush();
+                unflushed = 0;
+            }
 
             // Check if the chat has reached the maximum number of messages
-            if (player2.getMessageCount().intValue() == Constants.MAX_MESSAGES && player.getMessageCount().intValue() == Constants.MAX_MESSAGES) {
+            if (isSessionComplete(player, player2)) {
+                transport.flush();
                 Logger.log("Closing Server");
-                exitApplication();// End the application when the message limit is reached
+                finishSession(); // End the session when the message limit is reached
+                return;
             }
         }
     }
@@ -0,0 +1,264 @@
+package com.company.player.separatepid;
+
+import com.company.player.journal.JournalSettings;
+import com.company.player.separatepid.transport.CompressionSettings;
+import com.company.player.separatepid.transport.CompressionStats;
+import com.company.player.separatepid.transport.FrameCodec;
+import com.company.player.separatepid.transport.MultiplexCodec;
+import com.company.player.separatepid.transport.TransportConfig;
+import com.company.player.separatepid.transport.TransportType;
+import com.company.player.util.Constants;
+import com.company.player.util.MetricsSettings;
+import com.company.player.util.Options;
+import com.company.player.util.ProtocolMode;
+
+/**
+ * Holds the settings of a separate process session and the rules that depend on them:
+ * how a player replies and when the session is complete. Both nodes of a session must be started
+ * with the same settings, which is what {@code code_runner.sh} does by passing the same arguments
+ * to both processes.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class SessionSettings {
+
+    private final int maxMessages;
+    private final ProtocolMode protocolMode;
+    private final int checksumInterval;
+    private final int window;
+    private final int coalesce;
+    private final int streams;
+    private final int flowCredits;
+    private final TransportConfig transport;
+    private final MetricsSettings metrics;
+    private final JournalSettings journal;
+    private final CompressionSettings compression;
+
+    /**
+     * Creates session settings.
+     *
+     * @param maxMessages      The number of messages each player sends before the session ends.
+     * @param protocolMode     How replies are transmitted.
+     * @param checksumInterval How often a delta frame carries the conversation checksum.
+     * @param window           The number of initiator messages that may await their reply; {@code 1} is ping-pong.
+     * @param coalesce         The maximum number of messages written before the transport is flushed.
+     * @param streams          The number of conversations the initiator multiplexes over one connection;
+     *                         {@code 1} is a plain connection.
+     * @param flowCredits      The number of initiator messages the server lets the initiator stream ahead of
+     *                         its replies through a {@link java.util.concurrent.Flow} publisher; {@code 0} for
+     *                         a session without flow control.
+     * @param transport        The link the session runs over.
+     * @param metrics          Whether and where the session's latencies and counters are reported.
+     * @param journal          Whether and where the nodes record the conversation.
+     * @param compression      Whether and above which size frame payloads are compressed.
+     */
+    public SessionSettings(int maxMessages, ProtocolMode protocolMode, int checksumInterval, int window, int coalesce,
+                           int streams, int flowCredits, TransportConfig transport, MetricsSettings metrics,
+                           JournalSettings journal, CompressionSettings compression) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive: " + maxMessages);
+        }
+        if (checksumInterval <= 0) {
+            throw new IllegalArgumentException("checksumInterval must be positive: " + checksumInterval);
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        if (coalesce <= 0) {
+            throw new IllegalArgumentException("coalesce must be positive: " + coalesce);
+        }
+        if (window > 1 && protocolMode == ProtocolMode.DELTA) {
+            throw new IllegalArgumentException("delta mode needs window 1, every delta extends the previous reply");
+        }
+        if (streams <= 0 || streams > MultiplexCodec.MAX_STREAMS) {
+            throw new IllegalArgumentException("streams must be between 1 and " + MultiplexCodec.MAX_STREAMS + ": " + streams);
+        }
+        if (streams > 1 && window > 1) {
+            throw new IllegalArgumentException("multiplexed streams are ping-pong conversations and need window 1");
+        }
+        if (streams > 1 && transport.getType() != TransportType.TCP) {
+            throw new IllegalArgumentException("multiplexed streams need --transport=tcp");
+        }
+        if (flowCredits < 0) {
+            throw new IllegalArgumentException("flowCredits must not be negative: " + flowCredits);
+        }
+        if (flowCredits > 0 && (window > 1 || streams > 1 || protocolMode == ProtocolMode.DELTA)) {
+            throw new IllegalArgumentException("flow control streams independent full messages and replaces "
+                    + "--window; it needs window 1, streams 1 and the full protocol");
+        }
+        if (journal.isEnabled() && (window > 1 || streams > 1 || flowCredits > 0)) {
+            throw new IllegalArgumentException("a journal records a single ping-pong conversation and needs window 1 and streams 1");
+        }
+        this.maxMessages = maxMessages;
+        this.protocolMode = protocolMode;
+        this.checksumInterval = checksumInterval;
+        this.window = window;
+        this.coalesce = coalesce;
+        this.streams = streams;
+        this.flowCredits = flowCredits;
+        this.transport = transport;
+        this.metrics = metrics;
+        this.journal = journal;
+        this.compression = compression;
+    }
+
+    /**
+     * Returns the settings of the original exercise: ten full messages per player.
+     *
+     * @return The default settings.
+     */
+    public static SessionSettings defaults() {
+        return new SessionSettings(Constants.MAX_MESSAGES, ProtocolMode.FULL, Constants.CHECKSUM_INTERVAL,
+                1, 1, 1, 0, TransportConfig.defaults(), MetricsSettings.disabled(), JournalSettings.disabled(),
+                CompressionSettings.disabled());
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --messages=<n>}, {@code --protocol=full|delta},
+     * {@code --checksum-interval=<messages>}, {@code --window=<messages>}, {@code --coalesce=<messages>},
+     * {@code --streams=<n>}, {@code --flow-credits=<n>}, the transport options of {@link TransportConfig#from(Options)}, the metrics options of
+     * {@link MetricsSettings#from(Options)}, the journal options of {@link JournalSettings#from(Options)} and the
+     * compression options of {@link CompressionSettings#from(Options)}.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static SessionSettings from(Options options) {
+        return new SessionSettings(
+                options.getInt("messages", Constants.MAX_MESSAGES),
+                options.getEnum("protocol", ProtocolMode.FULL),
+                options.getInt("checksum-interval", Constants.CHECKSUM_INTERVAL),
+                options.getInt("window", 1),
+                options.getInt("coalesce", 1),
+                options.getInt("streams", 1),
+                options.getInt("flow-credits", 0),
+                TransportConfig.from(options),
+                MetricsSettings.from(options),
+                JournalSettings.from(options),
+                CompressionSettings.from(options));
+    }
+
+    /**
+     * Lets the player reply to the sender: with the whole conversation in full mode,
+     * with just the appended suffix in delta mode.
+     *
+     * @param player The replying player.
+     * @param sender The player whose message was received.
+     */
+    public void reply(Player player, Player sender) {
+        if (protocolMode == ProtocolMode.DELTA) {
+            player.generateReplySuffix();
+        } else {
+            player.generateResponseFor(sender);
+        }
+    }
+
+    /**
+     * Creates the codec of one connection or stream of the session.
+     *
+     * @param stats The counters the codec records its compression into.
+     * @return The codec.
+     */
+    public FrameCodec newCodec(CompressionStats stats) {
+        FrameCodec codec = new FrameCodec(protocolMode, checksumInterval);
+        codec.setCompression(compression, stats);
+        return codec;
+    }
+
+    /**
+     * Checks the stop condition: both players have sent the configured number of messages.
+     *
+     * @param player The local player.
+     * @param peer   The last state received from the peer.
+     * @return {@code true} if the session is complete.
+     */
+    public boolean isComplete(Player player, Player peer) {
+        return peer.getMessageCount().intValue() == maxMessages && player.getMessageCount().intValue() == maxMessages;
+    }
+
+    /**
+     * @return The number of messages each player sends before the session ends.
+     */
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * @return How replies are transmitted.
+     */
+    public ProtocolMode getProtocolMode() {
+        return protocolMode;
+    }
+
+    /**
+     * @return How often a delta frame carries the conversation checksum.
+     */
+    public int getChecksumInterval() {
+        return checksumInterval;
+    }
+
+    /**
+     * @return The number of initiator messages that may await their reply.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @return The maximum number of messages written before the transport is flushed.
+     */
+    public int getCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * @return The number of conversations the initiator multiplexes over one connection.
+     */
+    public int getStreams() {
+        return streams;
+    }
+
+    /**
+     * @return The number of messages the initiator may stream ahead of its replies, {@code 0} without flow control.
+     */
+    public int getFlowCredits() {
+        return flowCredits;
+    }
+
+    /**
+     * @return {@code true} if the initiator's messages do not wait for the replies to the previous ones.
+     */
+    public boolean isPipelined() {
+        return window > 1 || flowCredits > 0;
+    }
+
+    /**
+     * @return The link the session runs over.
+     */
+    public TransportConfig getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return Whether and where the session's latencies and counters are reported.
+     */
+    public MetricsSettings getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Whether and where the nodes record the conversation.
+     */
+    public JournalSettings getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return Whether and above which size frame payloads are compressed.
+     */
+    public CompressionSettings getCompression() {
+        return compression;
+    }
+}
@@ -0,0 +1,79 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.util.Options;
+
+import java.util.zip.Deflater;
+
+/**
+ * Whether and how frame payloads are compressed, see {@link PayloadCompressor}.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class CompressionSettings {
+
+    private final int threshold;
+    private final int level;
+
+    /**
+     * Creates compression settings.
+     *
+     * @param threshold The smallest payload in bytes that is compressed, or {@code 0} to compress nothing.
+     * @param level     The {@link Deflater} level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+     */
+    public CompressionSettings(int threshold, int level) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+        }
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between " + Deflater.BEST_SPEED + " and "
+                    + Deflater.BEST_COMPRESSION + ": " + level);
+        }
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    /**
+     * Returns settings that compress nothing.
+     *
+     * @return The disabled settings.
+     */
+    public static CompressionSettings disabled() {
+        return new CompressionSettings(0, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --compress-threshold=<bytes>} and
+     * {@code --compress-level=1..9}.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static CompressionSettings from(Options options) {
+        return new CompressionSettings(
+                options.getInt("compress-threshold", 0),
+                options.getInt("compress-level", Deflater.BEST_SPEED));
+    }
+
+    /**
+     * @return Whether payloads are compressed.
+     */
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    /**
+     * @return The smallest payload in bytes that is compressed.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return The {@link Deflater} level.
+     */
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,70 @@
+package com.company.player.separatepid.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The compression counters of one node: how many payloads were compressed, their size before and after,
+ * and the time spent compressing and decompressing them. The codecs of all connections of a node may record
+ * into one instance concurrently.
+ *
+ * @author priyanshu
+ */
+public final class CompressionStats {
+
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+    private final LongAdder inflated = new LongAdder();
+    private final LongAdder inflateNanos = new LongAdder();
+
+    /**
+     * Records a payload above the threshold that was deflated.
+     *
+     * @param before The payload size.
+     * @param after  The compressed size, or {@code -1} if it was not smaller and the payload was sent as is.
+     * @param nanos  The time spent deflating.
+     */
+    void recordDeflate(int before, int after, long nanos) {
+        candidates.increment();
+        deflateNanos.add(nanos);
+        if (after >= 0) {
+            compressed.increment();
+            uncompressedBytes.add(before);
+            compressedBytes.add(after);
+        }
+    }
+
+    /**
+     * Records a received payload that was inflated.
+     *
+     * @param nanos The time spent inflating.
+     */
+    void recordInflate(long nanos) {
+        inflated.increment();
+        inflateNanos.add(nanos);
+    }
+
+    /**
+     * @return The size of the compressed payloads divided by their compressed size, or {@code 0} if none was.
+     */
+    public double getRatio() {
+        long after = compressedBytes.sum();
+        return after == 0 ? 0 : (double) uncompressedBytes.sum() / after;
+    }
+
+    /**
+     * @return The ratio, the bytes saved and the time spent per payload in each direction.
+     */
+    @Override
+    public String toString() {
+        long deflates = candidates.sum();
+        long inflates = inflated.sum();
+        return String.format("compressed %d of %d payloads above the threshold, %d -> %d bytes (ratio %.1f), "
+                        + "deflate %.1f ms total %.1f us/payload, inflated %d payloads, %.1f ms total %.1f us/payload",
+                compressed.sum(), deflates, uncompressedBytes.sum(), compressedBytes.sum(), getRatio(),
+                deflateNanos.sum() / 1e6, deflates == 0 ? 0 : deflateNanos.sum() / 1e3 / deflates,
+                inflates, inflateNanos.sum() / 1e6, inflates == 0 ? 0 : inflateNanos.sum() / 1e3 / inflates);
+    }
+}
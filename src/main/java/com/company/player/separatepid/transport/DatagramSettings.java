@@ -0,0 +1,85 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.util.Constants;
+import com.company.player.util.Options;
+
+/**
+ * How the {@link DatagramTransport} recovers lost datagrams, plus a loss injection for testing that recovery.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class DatagramSettings {
+
+    private final long retransmitMillis;
+    private final int window;
+    private final int dropPercent;
+
+    /**
+     * Creates datagram settings.
+     *
+     * @param retransmitMillis The initial time to wait for an acknowledgement before retransmitting.
+     * @param window           The number of datagrams that may await their acknowledgement.
+     * @param dropPercent      The share of outgoing datagrams discarded on purpose, from {@code 0} to {@code 99};
+     *                         the hellos of the handshake are exempt.
+     */
+    public DatagramSettings(long retransmitMillis, int window, int dropPercent) {
+        if (retransmitMillis <= 0) {
+            throw new IllegalArgumentException("retransmitMillis must be positive: " + retransmitMillis);
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        if (dropPercent < 0 || dropPercent > 99) {
+            throw new IllegalArgumentException("dropPercent must be between 0 and 99: " + dropPercent);
+        }
+        this.retransmitMillis = retransmitMillis;
+        this.window = window;
+        this.dropPercent = dropPercent;
+    }
+
+    /**
+     * Returns the default settings, which drop nothing on purpose.
+     *
+     * @return The default settings.
+     */
+    public static DatagramSettings defaults() {
+        return new DatagramSettings(Constants.UDP_RETRANSMIT_MILLIS, Constants.UDP_WINDOW, 0);
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --udp-retransmit-millis=<millis>},
+     * {@code --udp-window=<datagrams>} and {@code --udp-drop-percent=<percent>}.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static DatagramSettings from(Options options) {
+        return new DatagramSettings(
+                options.getLong("udp-retransmit-millis", Constants.UDP_RETRANSMIT_MILLIS),
+                options.getInt("udp-window", Constants.UDP_WINDOW),
+                options.getInt("udp-drop-percent", 0));
+    }
+
+    /**
+     * @return The initial time in milliseconds to wait for an acknowledgement before retransmitting.
+     */
+    public long getRetransmitMillis() {
+        return retransmitMillis;
+    }
+
+    /**
+     * @return The number of datagrams that may await their acknowledgement.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @return The percentage of outgoing datagrams discarded on purpose.
+     */
+    public int getDropPercent() {
+        return dropPercent;
+    }
+}
@@ -0,0 +1,495 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+import com.company.player.util.Constants;
+import com.company.player.util.Logger;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link MessageTransport} that exchanges {@link FrameCodec} frames in UDP datagrams, without the
+ * connection setup, stream buffering and Nagle interplay of TCP.
+ * <p>
+ * UDP may lose, duplicate and reorder datagrams, so the transport adds just enough on top to keep the
+ * conversation intact. Every data datagram carries a sequence number and the cumulative acknowledgement of
+ * the peer's datagrams, i.e. the sequence number this side expects next. The receiver delivers datagrams in
+ * sequence only and drops everything else. A dropped or duplicate datagram is acknowledged at once, which
+ * tells the sender where the receiver stands. The sender keeps up to {@link DatagramSettings#getWindow()}
+ * datagrams until they are acknowledged and retransmits all of them when the oldest is not acknowledged in
+ * time, doubling the timeout on every retransmission (go-back-n).
+ * <p>
+ * In a ping-pong session every reply acknowledges the message it answers, so no separate acknowledgements
+ * are sent. Only a side that is about to wait while it owes an acknowledgement sends one on its own.
+ * Frames written before a {@link #flush()} share one datagram.
+ * <p>
+ * The server {@linkplain #accept accepts} the first initiator that says hello on its port, and the
+ * initiator {@linkplain #connect connects} by saying hello until the server answers. On close each side
+ * announces its end in sequence and waits until the peer has acknowledged everything.
+ * <p>
+ * Note: A frame must fit into one datagram, which bounds the message size; long full mode conversations
+ * need the delta protocol or compression.
+ *
+ * @author priyanshu
+ */
+public final class DatagramTransport implements MessageTransport {
+
+    /**
+     * The largest UDP payload over IPv4.
+     */
+    static final int MAX_DATAGRAM_SIZE = 65_507;
+
+    private static final byte HELLO = 1;
+    private static final byte DATA = 2;
+    private static final byte ACK = 3;
+    private static final byte FIN = 4;
+
+    /**
+     * Datagram header: type, sequence number and cumulative acknowledgement.
+     */
+    private static final int HEADER_SIZE = 1 + 2 * Integer.BYTES;
+    private static final int SEQUENCE_OFFSET = 1;
+    private static final int ACK_OFFSET = SEQUENCE_OFFSET + Integer.BYTES;
+
+    /**
+     * Sent as the sequence number of a hello, so that stray datagrams are not taken for an initiator.
+     */
+    private static final int MAGIC = 0x504C5944; // "PLYD"
+    private static final int HANDSHAKE_ATTEMPTS = 6;
+
+    /**
+     * A reply on loopback arrives within microseconds, sooner than a selector wakes up; polling the socket a
+     * few times first saves the wake-up. On a single core it would only delay the peer.
+     */
+    private static final int SPIN_READS = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+    private static final long MAX_RETRANSMIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long PEER_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(Constants.UDP_PEER_TIMEOUT_MILLIS);
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final FrameCodec codec;
+    private final boolean server;
+    private final int window;
+    private final int dropPercent;
+    private final long initialRetransmitNanos;
+    private final SplittableRandom random = new SplittableRandom();
+    private final ByteBuffer[] unacked;
+    private final ByteBuffer outgoing = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+    private final ByteBuffer incoming = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+    private final ByteBuffer control = ByteBuffer.allocate(HEADER_SIZE);
+    private ByteBuffer inbox = ByteBuffer.allocate(8192).flip();
+    private int nextSequence = 1;
+    private int unackedFrom = 1;
+    private int expected = 1;
+    private boolean ackPending;
+    private boolean helloAnswered;
+    private boolean peerClosed;
+    private boolean closed;
+    private long retransmitNanos;
+    private long retransmitAt;
+    private long lastHeardNanos;
+    private long datagramsSent;
+    private long retransmitted;
+    private long duplicates;
+    private long dropped;
+
+    private DatagramTransport(DatagramChannel channel, FrameCodec codec, DatagramSettings settings, boolean server)
+            throws IOException {
+        this.channel = channel;
+        this.codec = codec;
+        this.server = server;
+        this.window = settings.getWindow();
+        this.dropPercent = settings.getDropPercent();
+        this.initialRetransmitNanos = TimeUnit.MILLISECONDS.toNanos(settings.getRetransmitMillis());
+        this.retransmitNanos = initialRetransmitNanos;
+        this.unacked = new ByteBuffer[window];
+        this.lastHeardNanos = System.nanoTime();
+        outgoing.position(HEADER_SIZE);
+        channel.configureBlocking(false);
+        this.selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+    }
+
+    /**
+     * Waits for the hello of an initiator on a bound channel and answers it. From then on the channel only
+     * exchanges datagrams with that initiator. Called by the server.
+     *
+     * @param channel  A bound, blocking channel; the transport takes it over.
+     * @param codec    The codec of this connection.
+     * @param settings The recovery settings.
+     * @return The server side of the transport.
+     * @throws IOException If the channel fails.
+     */
+    public static DatagramTransport accept(DatagramChannel channel, FrameCodec codec, DatagramSettings settings)
+            throws IOException {
+        ByteBuffer hello = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        while (true) {
+            hello.clear();
+            SocketAddress peer = channel.receive(hello);
+            hello.flip();
+            // Anything else is a leftover of an earlier session
+            if (hello.remaining() >= HEADER_SIZE && hello.get(0) == HELLO && hello.getInt(SEQUENCE_OFFSET) == MAGIC) {
+                channel.connect(peer);
+                DatagramTransport transport = new DatagramTransport(channel, codec, settings, true);
+                transport.sendControl(HELLO, MAGIC);
+                return transport;
+            }
+        }
+    }
+
+    /**
+     * Says hello to a server until it answers. Called by the initiator.
+     *
+     * @param address  The server address.
+     * @param codec    The codec of this connection.
+     * @param settings The recovery settings.
+     * @return The initiator side of the transport.
+     * @throws ConnectException If no server answers on the address.
+     * @throws IOException      If the channel fails.
+     */
+    public static DatagramTransport connect(InetSocketAddress address, FrameCodec codec, DatagramSettings settings)
+            throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        DatagramTransport transport = null;
+        try {
+            channel.connect(address);
+            transport = new DatagramTransport(channel, codec, settings, false);
+            transport.handshake(address);
+            return transport;
+        } catch (IOException | RuntimeException e) {
+            if (transport != null) {
+                transport.release();
+            } else {
+                channel.close();
+            }
+            throw e;
+        }
+    }
+
+    private void handshake(InetSocketAddress address) throws IOException {
+        long wait = retransmitNanos;
+        try {
+            for (int attempt = 0; attempt < HANDSHAKE_ATTEMPTS; attempt++) {
+                sendControl(HELLO, MAGIC);
+                long deadline = System.nanoTime() + wait;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    readAll();
+                    if (helloAnswered) {
+                        return;
+                    }
+                    select(remaining);
+                }
+                wait = Math.min(wait * 2, MAX_RETRANSMIT_NANOS);
+            }
+        } catch (PortUnreachableException e) {
+            throw new ConnectException("No UDP server on " + address);
+        }
+        throw new ConnectException("No UDP server answered on " + address);
+    }
+
+    @Override
+    public void send(Player player) throws IOException {
+        write(player);
+        flush();
+    }
+
+    @Override
+    public void write(Player player) throws IOException {
+        ByteBuffer frame = codec.encode(player);
+        if (frame.remaining() > MAX_DATAGRAM_SIZE - HEADER_SIZE) {
+            throw new ProtocolException("Frame of " + frame.remaining() + " bytes exceeds the datagram limit of "
+                    + (MAX_DATAGRAM_SIZE - HEADER_SIZE) + "; use the delta protocol or compression");
+        }
+        if (frame.remaining() > outgoing.remaining()) {
+            flush();
+        }
+        outgoing.put(frame);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (outgoing.position() > HEADER_SIZE) {
+            sendSequenced(DATA);
+        }
+    }
+
+    @Override
+    public boolean hasPendingInput() throws IOException {
+        if (!inbox.hasRemaining()) {
+            readAll();
+        }
+        return inbox.hasRemaining();
+    }
+
+    @Override
+    public boolean receive(Player target) throws IOException {
+        while (!inbox.hasRemaining()) {
+            if (peerClosed) {
+                return false;
+            }
+            poll();
+        }
+        if (!codec.decodeFrame(inbox, target)) {
+            throw new ProtocolException("Datagram ends inside a frame");
+        }
+        return true;
+    }
+
+    /**
+     * Sends the buffered frames and the end of the conversation, then waits until the peer has
+     * acknowledged both. A peer that is gone already ends the wait, and so does a peer that stays silent
+     * for {@link Constants#UDP_PEER_TIMEOUT_MILLIS}, which is reported as an error.
+     *
+     * @throws IOException If the peer falls silent before it acknowledges everything.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            sendSequenced(FIN);
+            while (unackedFrom != nextSequence) {
+                poll();
+            }
+        } catch (PortUnreachableException e) {
+            // The peer has closed its side already; nothing is left to wait for
+        } finally {
+            release();
+            Logger.log("UDP link closed: " + this);
+        }
+    }
+
+    private void release() throws IOException {
+        codec.close();
+        try {
+            selector.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sends the datagram assembled in {@link #outgoing} under the next sequence number and keeps it for
+     * retransmission, after waiting for room in the window.
+     */
+    private void sendSequenced(byte type) throws IOException {
+        while (nextSequence - unackedFrom >= window) {
+            poll();
+        }
+        int sequence = nextSequence++;
+        outgoing.put(0, type).putInt(SEQUENCE_OFFSET, sequence).putInt(ACK_OFFSET, expected).flip();
+        int slot = Math.floorMod(sequence, window);
+        ByteBuffer datagram = unacked[slot];
+        if (datagram == null || datagram.capacity() < outgoing.remaining()) {
+            datagram = unacked[slot] = ByteBuffer.allocate(Math.max(outgoing.remaining(), 2 * HEADER_SIZE));
+        }
+        datagram.clear();
+        datagram.put(outgoing).flip();
+        outgoing.clear().position(HEADER_SIZE);
+        ackPending = false;
+        if (sequence == unackedFrom) {
+            retransmitAt = System.nanoTime() + retransmitNanos;
+        }
+        transmit(datagram);
+    }
+
+    private void sendControl(byte type, int sequence) throws IOException {
+        control.clear();
+        control.put(type).putInt(sequence).putInt(expected).flip();
+        if (type == ACK) {
+            ackPending = false;
+        }
+        if (type == HELLO) {
+            // An initiator that gives up after losing its hellos leaves the server bound to it, so they are
+            // never dropped on purpose
+            writeDatagram(control);
+        } else {
+            transmit(control);
+        }
+    }
+
+    private void transmit(ByteBuffer datagram) throws IOException {
+        if (dropPercent > 0 && random.nextInt(100) < dropPercent) {
+            dropped++;
+            return;
+        }
+        writeDatagram(datagram);
+    }
+
+    private void writeDatagram(ByteBuffer datagram) throws IOException {
+        datagram.rewind();
+        // A full socket buffer discards the datagram like the network would; retransmission recovers it
+        if (channel.write(datagram) > 0) {
+            datagramsSent++;
+        }
+    }
+
+    /**
+     * Handles the datagrams that have arrived, or waits for one until the oldest unacknowledged datagram is
+     * due for retransmission. An acknowledgement owed to the peer is sent before waiting.
+     */
+    private void poll() throws IOException {
+        if (readAll() > 0) {
+            return;
+        }
+        if (ackPending) {
+            sendControl(ACK, 0);
+        }
+        for (int i = 0; i < SPIN_READS; i++) {
+            if (readAll() > 0) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        long now = System.nanoTime();
+        long wait = PEER_TIMEOUT_NANOS - (now - lastHeardNanos);
+        if (wait <= 0) {
+            throw new IOException("UDP peer silent for " + Constants.UDP_PEER_TIMEOUT_MILLIS + " ms");
+        }
+        if (unackedFrom != nextSequence) {
+            wait = Math.min(wait, retransmitAt - now);
+        }
+        if (wait > 0) {
+            select(wait);
+            if (readAll() > 0) {
+                return;
+            }
+        }
+        if (unackedFrom != nextSequence && System.nanoTime() - retransmitAt >= 0) {
+            retransmit();
+        }
+    }
+
+    private void select(long nanos) throws IOException {
+        // select(0) would wait forever
+        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        selector.selectedKeys().clear();
+    }
+
+    private void retransmit() throws IOException {
+        for (int sequence = unackedFrom; sequence != nextSequence; sequence++) {
+            ByteBuffer datagram = unacked[Math.floorMod(sequence, window)];
+            datagram.putInt(ACK_OFFSET, expected);
+            transmit(datagram);
+            retransmitted++;
+        }
+        ackPending = false;
+        retransmitNanos = Math.min(retransmitNanos * 2, MAX_RETRANSMIT_NANOS);
+        retransmitAt = System.nanoTime() + retransmitNanos;
+    }
+
+    /**
+     * Reads and handles all datagrams that have arrived, without waiting.
+     *
+     * @return The number of datagrams handled.
+     */
+    private int readAll() throws IOException {
+        int count = 0;
+        while (true) {
+            incoming.clear();
+            if (channel.read(incoming) <= 0) {
+                return count;
+            }
+            incoming.flip();
+            handle(incoming);
+            count++;
+        }
+    }
+
+    private void handle(ByteBuffer datagram) throws IOException {
+        if (datagram.remaining() < HEADER_SIZE) {
+            throw new ProtocolException("Datagram of " + datagram.remaining() + " bytes is shorter than its header");
+        }
+        byte type = datagram.get();
+        int sequence = datagram.getInt();
+        int ack = datagram.getInt();
+        lastHeardNanos = System.nanoTime();
+        if (type == HELLO) {
+            if (server) {
+                sendControl(HELLO, MAGIC); // The initiator missed the answer and says hello again
+            } else {
+                helloAnswered = true;
+            }
+            return;
+        }
+        acknowledged(ack);
+        switch (type) {
+            case DATA:
+            case FIN:
+                if (sequence != expected) {
+                    // A duplicate or a datagram after a lost one; tell the sender where this side stands
+                    duplicates++;
+                    sendControl(ACK, 0);
+                    return;
+                }
+                expected++;
+                if (type == FIN) {
+                    peerClosed = true;
+                    sendControl(ACK, 0);
+                } else {
+                    deliver(datagram);
+                    ackPending = true;
+                }
+                return;
+            case ACK:
+                return;
+            default:
+                throw new ProtocolException("Unknown datagram type: " + type);
+        }
+    }
+
+    /**
+     * Releases the datagrams the peer has acknowledged and restarts the retransmission timer.
+     */
+    private void acknowledged(int ack) {
+        if (ack - unackedFrom > 0 && ack - nextSequence <= 0) {
+            unackedFrom = ack;
+            retransmitNanos = initialRetransmitNanos;
+            retransmitAt = System.nanoTime() + retransmitNanos;
+        }
+    }
+
+    /**
+     * Appends the frames of an in-sequence datagram to the inbox that {@link #receive} decodes from.
+     */
+    private void deliver(ByteBuffer frames) {
+        inbox.compact();
+        if (inbox.remaining() < frames.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(inbox.capacity() * 2, inbox.position() + frames.remaining()));
+            inbox.flip();
+            grown.put(inbox);
+            inbox = grown;
+        }
+        inbox.put(frames).flip();
+    }
+
+    /**
+     * @return The number of datagrams retransmitted so far.
+     */
+    long getRetransmitted() {
+        return retransmitted;
+    }
+
+    /**
+     * @return The datagram counters of this side.
+     */
+    @Override
+    public String toString() {
+        return datagramsSent + " datagrams sent, " + retransmitted + " retransmitted, " + duplicates
+                + " duplicates or out of order received, " + dropped + " dropped on purpose";
+    }
+}
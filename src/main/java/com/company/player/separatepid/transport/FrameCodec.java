@@ -0,0 +1,353 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.jfr.FrameDecodedEvent;
+import com.company.player.jfr.FrameEncodedEvent;
+import com.company.player.jfr.PlayerEvents;
+import com.company.player.separatepid.Player;
+import com.company.player.util.ConversationBuffer;
+import com.company.player.util.ProtocolMode;
+import com.company.player.util.SessionMetrics;
+
+import java.net.ProtocolException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the binary frames exchanged between separate process players.
+ * A frame carries only the data the peer needs, in big-endian byte order:
+ * <pre>
+ * int   length    number of bytes that follow this field
+ * byte  flags     {@link #FLAG_DELTA}, {@link #FLAG_CHECKSUM}, {@link #FLAG_TIMESTAMP}, {@link #FLAG_COMPRESSED},
+ *                 0 for a plain message
+ * int   counter   the sender's message count
+ * short senderId  the sender's player id
+ * [int  checksum] CRC32 of the sender's conversation, present with {@link #FLAG_CHECKSUM} only
+ * [long sentAt]   the sender's wall clock in epoch nanoseconds, present with {@link #FLAG_TIMESTAMP} only
+ * byte[] payload  the message, UTF-8 encoded, deflated with {@link #FLAG_COMPRESSED}
+ * </pre>
+ * In {@link ProtocolMode#DELTA} mode the payload is only the suffix the sender appended. The codec
+ * appends every sent and received payload to its {@link ConversationBuffer} and verifies the checksum
+ * the peer attaches to every {@code checksumInterval}-th frame.
+ * The encoder reuses one growing buffer and one {@link CharsetEncoder}, and the decoder writes the
+ * payload into the target player's {@link com.company.player.util.TextBuffer}, so neither direction
+ * allocates in steady state.
+ * <p>
+ * With {@link #setCompression(CompressionSettings, CompressionStats)} payloads above a threshold are
+ * compressed, see {@link PayloadCompressor}. Decoding always accepts compressed frames.
+ * <p>
+ * Note: An instance keeps per-connection scratch state and must not be shared between threads.
+ *
+ * @author priyanshu
+ */
+public final class FrameCodec {
+
+    /**
+     * Flag marking a payload that is a suffix of the conversation rather than the whole conversation.
+     */
+    public static final byte FLAG_DELTA = 0x01;
+
+    /**
+     * Flag marking a frame that carries the sender's conversation checksum.
+     */
+    public static final byte FLAG_CHECKSUM = 0x02;
+
+    /**
+     * Flag marking a frame that carries the time it was sent, for latency metrics.
+     */
+    public static final byte FLAG_TIMESTAMP = 0x04;
+
+    /**
+     * Flag marking a frame whose payload is compressed, see {@link PayloadCompressor}.
+     */
+    public static final byte FLAG_COMPRESSED = 0x08;
+
+    private static final int KNOWN_FLAGS = FLAG_DELTA | FLAG_CHECKSUM | FLAG_TIMESTAMP | FLAG_COMPRESSED;
+
+    /**
+     * Size of the length prefix.
+     */
+    public static final int LENGTH_FIELD_SIZE = Integer.BYTES;
+
+    /**
+     * Size of the fixed part of a frame body: flags, counter and sender id.
+     */
+    public static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES + Short.BYTES;
+
+    /**
+     * Largest accepted frame body; anything bigger is treated as a corrupt stream.
+     */
+    public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final ProtocolMode protocolMode;
+    private final int checksumInterval;
+    private final ConversationBuffer conversation;
+    private boolean timestamps;
+    private String session;
+    private CompressionSettings compression = CompressionSettings.disabled();
+    private CompressionStats compressionStats = new CompressionStats();
+    private PayloadCompressor compressor;
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Creates a codec for {@link ProtocolMode#FULL} frames.
+     */
+    public FrameCodec() {
+        this(ProtocolMode.FULL, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a codec for the given protocol mode. Both ends of a connection must use the same mode.
+     *
+     * @param protocolMode     How payloads are transmitted.
+     * @param checksumInterval Attach the conversation checksum to every n-th frame (delta mode only).
+     */
+    public FrameCodec(ProtocolMode protocolMode, int checksumInterval) {
+        if (checksumInterval <= 0) {
+            throw new IllegalArgumentException("checksumInterval must be positive: " + checksumInterval);
+        }
+        this.protocolMode = protocolMode;
+        this.checksumInterval = checksumInterval;
+        this.conversation = protocolMode == ProtocolMode.DELTA ? new ConversationBuffer() : null;
+    }
+
+    /**
+     * Returns the conversation rebuilt from the sent and received suffixes.
+     *
+     * @return The conversation, or {@code null} in {@link ProtocolMode#FULL} mode.
+     */
+    public ConversationBuffer getConversation() {
+        return conversation;
+    }
+
+    /**
+     * Makes the encoder attach the send time to every frame, so that the peer can measure the hop latency.
+     * Decoding accepts frames with and without timestamps regardless of this setting.
+     *
+     * @param timestamps {@code true} to send timestamps.
+     */
+    public void setTimestamps(boolean timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Names the session of the connection in the flight recorder events of this codec, see {@link PlayerEvents}.
+     *
+     * @param session The session, or {@code null}.
+     */
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    /**
+     * Makes the encoder compress payloads of at least {@link CompressionSettings#getThreshold()} bytes.
+     * Decoding accepts compressed and plain frames regardless of this setting.
+     *
+     * @param compression How payloads are compressed.
+     * @param stats       The counters the codec records the compression ratio and cost into; may be shared
+     *                    by the codecs of several connections.
+     */
+    public void setCompression(CompressionSettings compression, CompressionStats stats) {
+        this.compression = compression;
+        this.compressionStats = stats;
+        close();
+    }
+
+    /**
+     * Releases the native memory of the compression stage, if it has been used. Every owner of a codec closes
+     * it along with its connection, since a long-running server creates one per conversation. A closed codec
+     * can still be used; compressing again starts a new compression stage.
+     */
+    public void close() {
+        if (compressor != null) {
+            compressor.close();
+            compressor = null;
+        }
+    }
+
+    /**
+     * Starts a new conversation on the same connection. Both ends must reset at the same message boundary.
+     */
+    public void resetConversation() {
+        if (conversation != null) {
+            conversation.clear();
+        }
+    }
+
+    /**
+     * Encodes the player's current state as a complete frame, including the length prefix.
+     *
+     * @param player The player to encode.
+     * @return A heap buffer positioned at the start of the frame; valid until the next call.
+     * @throws ProtocolException If the encoded frame exceeds {@link #MAX_FRAME_LENGTH}.
+     */
+    public ByteBuffer encode(Player player) throws ProtocolException {
+        FrameEncodedEvent event = PlayerEvents.beginEncode();
+        byte flags = 0;
+        if (conversation != null) {
+            conversation.append(player.getText());
+            flags = conversation.appendedCount() % checksumInterval == 0 ? FLAG_DELTA | FLAG_CHECKSUM : FLAG_DELTA;
+        }
+        if (timestamps) {
+            flags |= FLAG_TIMESTAMP;
+        }
+        while (true) {
+            try {
+                encodeBuffer.clear();
+                encodeBuffer.position(LENGTH_FIELD_SIZE);
+                encodeBuffer.put(flags);
+                encodeBuffer.putInt(player.getMessageCount().get());
+                encodeBuffer.putShort(player.getId());
+                if ((flags & FLAG_CHECKSUM) != 0) {
+                    encodeBuffer.putInt(conversation.checksum());
+                }
+                if ((flags & FLAG_TIMESTAMP) != 0) {
+                    encodeBuffer.putLong(SessionMetrics.wallClockNanos());
+                }
+                int payloadStart = encodeBuffer.position();
+                player.getText().encodeUtf8(encodeBuffer, encoder);
+                if (compression.isEnabled() && encodeBuffer.position() - payloadStart >= compression.getThreshold()
+                        && compressor().compress(encodeBuffer, payloadStart)) {
+                    encodeBuffer.put(LENGTH_FIELD_SIZE, (byte) (flags | FLAG_COMPRESSED));
+                }
+                int bodyLength = encodeBuffer.position() - LENGTH_FIELD_SIZE;
+                if (bodyLength > MAX_FRAME_LENGTH) {
+                    throw new ProtocolException("Frame of " + bodyLength + " bytes exceeds the limit of " + MAX_FRAME_LENGTH);
+                }
+                encodeBuffer.putInt(0, bodyLength);
+                encodeBuffer.flip();
+                if (event != null) {
+                    event.finish(session, player.getMessageCount().get(), encodeBuffer.remaining());
+                }
+                return encodeBuffer;
+            } catch (BufferOverflowException e) {
+                encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Decodes a frame body (everything after the length prefix) into the target player.
+     *
+     * @param body   A buffer positioned at the start of the body, limited to its end.
+     * @param target The player instance that is overwritten with the decoded state.
+     * @throws ProtocolException If the body is malformed, was sent in another protocol mode
+     *                           or its checksum does not match the rebuilt conversation.
+     */
+    public void decode(ByteBuffer body, Player target) throws ProtocolException {
+        FrameDecodedEvent event = PlayerEvents.beginDecode();
+        int bodySize = body.remaining();
+        if (bodySize < HEADER_SIZE) {
+            throw new ProtocolException("Frame body of " + bodySize + " bytes is shorter than the header");
+        }
+        byte flags = body.get();
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new ProtocolException("Unsupported frame flags: " + flags);
+        }
+        boolean delta = (flags & FLAG_DELTA) != 0;
+        if (delta != (protocolMode == ProtocolMode.DELTA)) {
+            throw new ProtocolException("Peer does not use the " + protocolMode + " protocol mode");
+        }
+        target.getMessageCount().set(body.getInt());
+        target.setId(body.getShort());
+        boolean hasChecksum = (flags & FLAG_CHECKSUM) != 0;
+        if (hasChecksum && body.remaining() < Integer.BYTES) {
+            throw new ProtocolException("Frame announces a checksum but is too short to carry it");
+        }
+        int checksum = hasChecksum ? body.getInt() : 0;
+        boolean hasTimestamp = (flags & FLAG_TIMESTAMP) != 0;
+        if (hasTimestamp && body.remaining() < Long.BYTES) {
+            throw new ProtocolException("Frame announces a timestamp but is too short to carry it");
+        }
+        target.setTimestamp(hasTimestamp ? body.getLong() : 0L);
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            target.getText().decodeUtf8(compressor().decompress(body), decoder);
+        } else {
+            target.getText().decodeUtf8(body, decoder);
+        }
+        if (delta) {
+            conversation.append(target.getText());
+            if (hasChecksum && checksum != conversation.checksum()) {
+                throw new ProtocolException("Conversation checksum mismatch after " + conversation.appendedCount() + " messages");
+            }
+        }
+        if (event != null) {
+            event.finish(session, target.getMessageCount().get(), bodySize);
+        }
+    }
+
+    private PayloadCompressor compressor() {
+        if (compressor == null) {
+            compressor = new PayloadCompressor(compression.getLevel(), compressionStats);
+        }
+        return compressor;
+    }
+
+    /**
+     * Decodes the next frame from a buffer that accumulates bytes read from a non-blocking channel.
+     * If the buffer does not yet hold the whole frame it is left untouched.
+     *
+     * @param buffer A buffer in read mode, positioned at the start of a frame's length prefix.
+     * @param target The player instance that is overwritten with the decoded state.
+     * @return {@code true} if a frame was decoded and the buffer advanced past it, {@code false} if more bytes are needed.
+     * @throws ProtocolException If the frame is malformed.
+     */
+    public boolean decodeFrame(ByteBuffer buffer, Player target) throws ProtocolException {
+        if (buffer.remaining() < LENGTH_FIELD_SIZE) {
+            return false;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        checkLength(length);
+        if (buffer.remaining() < LENGTH_FIELD_SIZE + length) {
+            return false;
+        }
+        int limit = buffer.limit();
+        int end = start + LENGTH_FIELD_SIZE + length;
+        buffer.position(start + LENGTH_FIELD_SIZE).limit(end);
+        try {
+            decode(buffer, target);
+        } finally {
+            buffer.limit(limit).position(end);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the total size (length prefix included) of the frame starting at the buffer position,
+     * so that a reader can grow its buffer before the frame has fully arrived.
+     *
+     * @param buffer A buffer in read mode holding at least the length prefix.
+     * @return The frame size in bytes.
+     * @throws ProtocolException If the length prefix is invalid.
+     */
+    public static int frameSizeAt(ByteBuffer buffer) throws ProtocolException {
+        int length = buffer.getInt(buffer.position());
+        checkLength(length);
+        return LENGTH_FIELD_SIZE + length;
+    }
+
+    /**
+     * Validates a length prefix read from the wire.
+     *
+     * @param length The announced body length.
+     * @throws ProtocolException If the length cannot belong to a valid frame.
+     */
+    public static void checkLength(int length) throws ProtocolException {
+        if (length < HEADER_SIZE || length > MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Invalid frame length: " + length);
+        }
+    }
+}
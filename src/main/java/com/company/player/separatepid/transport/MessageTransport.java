@@ -0,0 +1,65 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A bidirectional link between the two separate process players. Implementations move the
+ * state of a {@link Player} (message count, id and message) to the peer and read the peer's
+ * state back, without shipping any Java objects across the process boundary.
+ * <p>
+ * Note: Implementations are not thread-safe; each session uses its own transport.
+ *
+ * @author priyanshu
+ */
+public interface MessageTransport extends Closeable {
+
+    /**
+     * Sends the current state of the player to the peer.
+     *
+     * @param player The player whose message is sent.
+     * @throws IOException If the message cannot be written.
+     */
+    void send(Player player) throws IOException;
+
+    /**
+     * Queues the current state of the player for the peer. It may stay buffered until {@link #flush()};
+     * pipelining callers use this to coalesce several messages into one write.
+     *
+     * @param player The player whose message is sent.
+     * @throws IOException If the message cannot be written.
+     */
+    default void write(Player player) throws IOException {
+        send(player);
+    }
+
+    /**
+     * Transmits all messages queued by {@link #write(Player)}.
+     *
+     * @throws IOException If the messages cannot be written.
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Tells whether data of the peer has already arrived, so that {@link #receive(Player)} is unlikely to block.
+     * Callers use it to decide whether to flush before they receive.
+     *
+     * @return {@code true} if input is pending; {@code false} if unknown or none.
+     * @throws IOException If the link cannot be queried.
+     */
+    default boolean hasPendingInput() throws IOException {
+        return false;
+    }
+
+    /**
+     * Receives the next message of the peer into the given player instance.
+     *
+     * @param target The player instance that is overwritten with the received state.
+     * @return {@code true} if a message was received, {@code false} if the peer closed the link.
+     * @throws IOException If the message cannot be read or is malformed.
+     */
+    boolean receive(Player target) throws IOException;
+}
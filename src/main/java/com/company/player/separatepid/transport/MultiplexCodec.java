@@ -0,0 +1,114 @@
+package com.company.player.separatepid.transport;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format that multiplexes many independent conversations, called streams, over one connection.
+ * The initiator opens the connection with {@link #PREFACE} and from then on both sides exchange frames of:
+ * <pre>
+ * int   length    number of bytes that follow this field
+ * int   streamId  the conversation the frame belongs to, 0 to {@link #MAX_STREAMS} - 1
+ * byte  type      {@link #TYPE_DATA} or {@link #TYPE_RESET}
+ * byte[] body     DATA: a {@link FrameCodec} frame body; RESET: the UTF-8 reason the stream was abandoned
+ * </pre>
+ * Every stream has its own {@link FrameCodec} on both sides, so delta conversations and their checksums
+ * are kept per stream. A stream is opened by its first DATA frame and ends on its own stop condition or
+ * with a RESET, which abandons that stream only; the connection and the other streams carry on.
+ * <p>
+ * The preface is negative, so it can never be mistaken for the length prefix of a plain frame: a server
+ * tells multiplexed from plain connections by their first four bytes.
+ *
+ * @author priyanshu
+ */
+public final class MultiplexCodec {
+
+    /**
+     * The first four bytes an initiator writes on a multiplexed connection.
+     */
+    public static final int PREFACE = 0x80504D58;
+
+    /**
+     * Frame type carrying a message of the stream.
+     */
+    public static final byte TYPE_DATA = 0;
+
+    /**
+     * Frame type abandoning the stream, e.g. after a checksum mismatch.
+     */
+    public static final byte TYPE_RESET = 1;
+
+    /**
+     * Size of the fields between the length prefix and the body: stream id and type.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+
+    /**
+     * Number of streams a connection may carry at once; stream ids index a table on the server.
+     */
+    public static final int MAX_STREAMS = 1 << 16;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MultiplexCodec() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Writes the length prefix and header of a frame. The caller writes the body of {@code bodyLength} bytes next.
+     *
+     * @param target     The buffer to write to, with at least {@link FrameCodec#LENGTH_FIELD_SIZE} +
+     *                   {@link #HEADER_SIZE} bytes remaining.
+     * @param streamId   The stream of the frame.
+     * @param type       The frame type.
+     * @param bodyLength The size of the body.
+     */
+    public static void putHeader(ByteBuffer target, int streamId, byte type, int bodyLength) {
+        target.putInt(HEADER_SIZE + bodyLength);
+        target.putInt(streamId);
+        target.put(type);
+    }
+
+    /**
+     * Returns the total size (length prefix included) of the frame starting at the buffer position,
+     * so that a reader can wait for or grow its buffer to the whole frame.
+     *
+     * @param buffer A buffer in read mode holding at least the length prefix.
+     * @return The frame size in bytes.
+     * @throws ProtocolException If the length prefix is invalid.
+     */
+    public static int frameSizeAt(ByteBuffer buffer) throws ProtocolException {
+        int length = buffer.getInt(buffer.position());
+        checkLength(length);
+        return FrameCodec.LENGTH_FIELD_SIZE + length;
+    }
+
+    /**
+     * Validates a length prefix read from the wire.
+     *
+     * @param length The announced length of header and body.
+     * @throws ProtocolException If the length cannot belong to a valid frame.
+     */
+    public static void checkLength(int length) throws ProtocolException {
+        if (length < HEADER_SIZE || length > HEADER_SIZE + FrameCodec.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Invalid multiplexed frame length: " + length);
+        }
+    }
+
+    /**
+     * Validates the header fields read from the wire.
+     *
+     * @param streamId The announced stream.
+     * @param type     The announced frame type.
+     * @throws ProtocolException If either field is out of range.
+     */
+    public static void checkHeader(int streamId, byte type) throws ProtocolException {
+        if (streamId < 0 || streamId >= MAX_STREAMS) {
+            throw new ProtocolException("Invalid stream id: " + streamId);
+        }
+        if (type != TYPE_DATA && type != TYPE_RESET) {
+            throw new ProtocolException("Unsupported multiplexed frame type: " + type);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The initiator side of a connection that carries many streams in the {@link MultiplexCodec} format.
+ * Frames of all streams share one pair of buffered socket streams: every stream writes through the same
+ * output buffer, so frames of different streams written between two flushes leave in one system call.
+ * <p>
+ * Receiving is split in two steps because the frame's stream decides which codec decodes it:
+ * {@link #receive()} reads the next frame and returns its stream id, then {@link #decode(FrameCodec, Player)}
+ * or {@link #getResetReason()} reads its body.
+ * <p>
+ * Note: This class is not thread-safe; one thread drives all streams of the connection.
+ *
+ * @author priyanshu
+ */
+public final class MultiplexedTransport implements Closeable {
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final ByteBuffer header = ByteBuffer.allocate(FrameCodec.LENGTH_FIELD_SIZE + MultiplexCodec.HEADER_SIZE);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+    private byte type;
+
+    private MultiplexedTransport(Socket socket) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+        this.out = new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a multiplexed connection over a connected socket by writing the preface, which leaves with
+     * the first flush.
+     *
+     * @param socket     The connected socket.
+     * @param tcpNoDelay {@code true} to disable Nagle's algorithm.
+     * @return The transport.
+     * @throws IOException If the socket streams cannot be obtained.
+     */
+    public static MultiplexedTransport of(Socket socket, boolean tcpNoDelay) throws IOException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        MultiplexedTransport transport = new MultiplexedTransport(socket);
+        transport.header.clear();
+        transport.header.putInt(MultiplexCodec.PREFACE);
+        transport.out.write(transport.header.array(), 0, Integer.BYTES);
+        return transport;
+    }
+
+    /**
+     * Queues the current state of the player as a frame of the given stream. It stays buffered until {@link #flush()}.
+     *
+     * @param streamId The stream the player belongs to.
+     * @param codec    The codec of that stream.
+     * @param player   The player whose message is sent.
+     * @throws IOException If the message cannot be encoded or written.
+     */
+    public void write(int streamId, FrameCodec codec, Player player) throws IOException {
+        ByteBuffer frame = codec.encode(player);
+        int bodyLength = frame.remaining() - FrameCodec.LENGTH_FIELD_SIZE;
+        writeHeader(streamId, MultiplexCodec.TYPE_DATA, bodyLength);
+        out.write(frame.array(), frame.arrayOffset() + frame.position() + FrameCodec.LENGTH_FIELD_SIZE, bodyLength);
+    }
+
+    /**
+     * Queues a frame that abandons the given stream, e.g. after its conversation failed its checksum.
+     *
+     * @param streamId The stream to abandon.
+     * @param reason   Why the stream is abandoned.
+     * @throws IOException If the frame cannot be written.
+     */
+    public void reset(int streamId, String reason) throws IOException {
+        byte[] body = reason.getBytes(StandardCharsets.UTF_8);
+        writeHeader(streamId, MultiplexCodec.TYPE_RESET, body.length);
+        out.write(body);
+    }
+
+    private void writeHeader(int streamId, byte type, int bodyLength) throws IOException {
+        header.clear();
+        MultiplexCodec.putHeader(header, streamId, type, bodyLength);
+        out.write(header.array(), 0, header.position());
+    }
+
+    /**
+     * Transmits all queued frames.
+     *
+     * @throws IOException If the frames cannot be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Tells whether data of the server has already arrived, so that {@link #receive()} is unlikely to block.
+     *
+     * @return {@code true} if input is pending.
+     * @throws IOException If the stream cannot be queried.
+     */
+    public boolean hasPendingInput() throws IOException {
+        return in.available() > 0;
+    }
+
+    /**
+     * Reads the next frame, blocking until it has fully arrived.
+     *
+     * @return The stream id of the frame, or {@code -1} if the server closed the connection.
+     * @throws IOException If the frame cannot be read or its header is malformed.
+     */
+    public int receive() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return -1; // Server closed the connection between two frames
+        }
+        MultiplexCodec.checkLength(length);
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+        }
+        in.readFully(readBuffer.array(), 0, length);
+        readBuffer.clear().limit(length);
+        int streamId = readBuffer.getInt();
+        type = readBuffer.get();
+        MultiplexCodec.checkHeader(streamId, type);
+        return streamId;
+    }
+
+    /**
+     * @return {@code true} if the frame last received abandons its stream.
+     */
+    public boolean isReset() {
+        return type == MultiplexCodec.TYPE_RESET;
+    }
+
+    /**
+     * Decodes the data frame last received into the target player.
+     *
+     * @param codec  The codec of the frame's stream.
+     * @param target The player instance that is overwritten with the decoded state.
+     * @throws ProtocolException If the frame is a reset or its body is malformed.
+     */
+    public void decode(FrameCodec codec, Player target) throws ProtocolException {
+        if (isReset()) {
+            throw new ProtocolException("A reset frame carries no message");
+        }
+        codec.decode(readBuffer, target);
+    }
+
+    /**
+     * @return The reason carried by the reset frame last received.
+     */
+    public String getResetReason() {
+        return new String(readBuffer.array(), readBuffer.position(), readBuffer.remaining(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.company.player.separatepid.transport;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The optional compression stage of a {@link FrameCodec}: deflates payloads above a size threshold and
+ * inflates the payloads of frames flagged {@link FrameCodec#FLAG_COMPRESSED}. A compressed payload is
+ * <pre>
+ * int    length   the size of the uncompressed payload
+ * byte[] deflate  the raw zlib stream of the payload
+ * </pre>
+ * Both directions are primed with a preset dictionary of the phrases every conversation is made of, so even
+ * the first frames of a conversation compress well. The {@link Deflater}, the {@link Inflater} and the
+ * scratch buffers are reused for every frame, so compressing does not allocate in steady state.
+ * <p>
+ * Note: Both ends must use the same {@link #DICTIONARY}; changing it changes the wire format. An instance
+ * belongs to one codec and must not be shared between threads; {@link FrameCodec#close()} closes it.
+ *
+ * @author priyanshu
+ */
+final class PayloadCompressor {
+
+    /**
+     * The preset dictionary: the greeting followed by the reply suffixes of the first messages, so that
+     * zlib finds a match for every fragment of a conversation from the first frame on.
+     */
+    static final byte[] DICTIONARY = buildDictionary();
+
+    private static final int DICTIONARY_REPLIES = 64;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+    private final CompressionStats stats;
+    private ByteBuffer deflated = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer inflated = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Creates a compressor.
+     *
+     * @param level The {@link Deflater} level.
+     * @param stats The counters the compressor records into.
+     */
+    PayloadCompressor(int level, CompressionStats stats) {
+        this.deflater = new Deflater(level);
+        this.stats = stats;
+    }
+
+    /**
+     * Compresses the payload at the end of a frame in place, if that makes it smaller.
+     *
+     * @param frame        The frame being encoded, positioned after the payload.
+     * @param payloadStart The index of the first payload byte.
+     * @return {@code true} if the payload was replaced with its compressed form and the position moved to
+     * its end, {@code false} if it did not shrink and the frame was left untouched.
+     */
+    boolean compress(ByteBuffer frame, int payloadStart) {
+        long start = System.nanoTime();
+        int payloadLength = frame.position() - payloadStart;
+        // Only worth it if the length field and the deflate stream together are smaller than the payload
+        int budget = payloadLength - Integer.BYTES - 1;
+        if (deflated.capacity() < budget) {
+            deflated = ByteBuffer.allocate(Math.max(budget, deflated.capacity() * 2));
+        }
+        deflated.clear().limit(Math.max(budget, 0));
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(frame.duplicate().position(payloadStart).limit(payloadStart + payloadLength));
+        deflater.finish();
+        while (!deflater.finished() && deflated.hasRemaining()) {
+            deflater.deflate(deflated);
+        }
+        if (!deflater.finished()) {
+            stats.recordDeflate(payloadLength, -1, System.nanoTime() - start);
+            return false;
+        }
+        deflated.flip();
+        int compressedLength = deflated.remaining();
+        frame.position(payloadStart);
+        frame.putInt(payloadLength);
+        frame.put(deflated);
+        stats.recordDeflate(payloadLength, Integer.BYTES + compressedLength, System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Inflates a compressed payload.
+     *
+     * @param payload A buffer positioned at the start of the compressed payload, limited to its end;
+     *                advanced to its end.
+     * @return A buffer holding the uncompressed payload; valid until the next call.
+     * @throws ProtocolException If the payload is not a valid compressed payload.
+     */
+    ByteBuffer decompress(ByteBuffer payload) throws ProtocolException {
+        long start = System.nanoTime();
+        if (payload.remaining() < Integer.BYTES) {
+            throw new ProtocolException("Compressed payload is too short to carry its length");
+        }
+        int length = payload.getInt();
+        if (length < 0 || length > FrameCodec.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Invalid uncompressed payload length: " + length);
+        }
+        if (inflated.capacity() < length) {
+            inflated = ByteBuffer.allocate(Math.max(length, inflated.capacity() * 2));
+        }
+        inflated.clear().limit(length);
+        inflater.reset();
+        inflater.setInput(payload);
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(inflated) == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput() || !inflated.hasRemaining()) {
+                        throw new ProtocolException("Compressed payload does not inflate to " + length + " bytes");
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Corrupt compressed payload: " + e.getMessage());
+        }
+        if (inflated.position() != length) {
+            throw new ProtocolException("Compressed payload inflates to " + inflated.position()
+                    + " bytes instead of " + length);
+        }
+        payload.position(payload.limit());
+        stats.recordInflate(System.nanoTime() - start);
+        return inflated.flip();
+    }
+
+    /**
+     * Releases the native zlib memory of the {@link Deflater} and the {@link Inflater} instead of leaving it to
+     * garbage collection. The compressor cannot be used afterwards.
+     */
+    void close() {
+        deflater.end();
+        inflater.end();
+    }
+
+    private static byte[] buildDictionary() {
+        StringBuilder dictionary = new StringBuilder("Hello!");
+        for (int i = 0; i < DICTIONARY_REPLIES; i++) {
+            dictionary.append(" [reply").append(i).append(']');
+        }
+        return dictionary.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
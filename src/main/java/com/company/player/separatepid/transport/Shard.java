@@ -0,0 +1,81 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.util.Constants;
+
+/**
+ * The endpoint of one server process of a sharded deployment.
+ * <p>
+ * Instances are immutable; two shards are equal if they have the same host and port.
+ *
+ * @author priyanshu
+ */
+public final class Shard {
+
+    private final String host;
+    private final int port;
+    private final String name;
+
+    /**
+     * Creates a shard.
+     *
+     * @param host The server host.
+     * @param port The server port.
+     */
+    public Shard(String host, int port) {
+        if (port <= 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("invalid shard port: " + port);
+        }
+        this.host = host;
+        this.port = port;
+        this.name = host + ":" + port;
+    }
+
+    /**
+     * Parses a shard given as {@code host:port}, or as {@code port} on {@link Constants#HOST}.
+     *
+     * @param spec The shard.
+     * @return The shard.
+     */
+    public static Shard parse(String spec) {
+        int colon = spec.lastIndexOf(':');
+        try {
+            return colon < 0
+                    ? new Shard(Constants.HOST, Integer.parseInt(spec.trim()))
+                    : new Shard(spec.substring(0, colon).trim(), Integer.parseInt(spec.substring(colon + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid shard, expected host:port: " + spec);
+        }
+    }
+
+    /**
+     * @return The server host.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return The server port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Shard && name.equals(((Shard) other).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * @return The shard as {@code host:port}.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,181 @@
+package com.company.player.separatepid.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Places sessions on the server processes of a sharded deployment with consistent hashing. Every
+ * {@link Shard} is hashed to {@code virtualNodes} points on a ring of 64-bit hashes, and a session belongs to
+ * the shard of the first point at or after the hash of its key.
+ * <p>
+ * Adding a shard only moves the sessions that now hash to one of its points, about {@code 1 / shards} of
+ * them, and removing a shard only moves the sessions it held; all other sessions stay where they were. The
+ * virtual nodes spread each shard over the ring, so the shards get similar shares of the sessions, see
+ * {@link #ownership()}.
+ * <p>
+ * The ring is kept as two sorted arrays, so a lookup is a binary search that does not allocate.
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class ShardRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final double TWO_TO_THE_64 = 0x1p64;
+
+    private final List<Shard> shards;
+    private final int virtualNodes;
+    private final long[] points;
+    private final Shard[] owners;
+
+    /**
+     * Builds a ring.
+     *
+     * @param shards       The shards, at least one, without duplicates.
+     * @param virtualNodes The number of points per shard.
+     */
+    public ShardRing(List<Shard> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("a shard ring needs at least one shard");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        if (shards.stream().distinct().count() != shards.size()) {
+            throw new IllegalArgumentException("duplicate shards: " + shards);
+        }
+        this.shards = List.copyOf(shards);
+        this.virtualNodes = virtualNodes;
+        int size = shards.size() * virtualNodes;
+        long[][] entries = new long[size][];
+        for (int s = 0; s < shards.size(); s++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[s * virtualNodes + v] = new long[]{hash(shards.get(s) + "#" + v), s};
+            }
+        }
+        // Ties are broken by shard order, so equal hashes resolve the same way in every process
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[size];
+        this.owners = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = shards.get((int) entries[i][1]);
+        }
+    }
+
+    /**
+     * Parses a comma separated list of shards, see {@link Shard#parse(String)}.
+     *
+     * @param spec         The shards, e.g. {@code localhost:5001,localhost:5002}.
+     * @param virtualNodes The number of points per shard.
+     * @return The ring.
+     */
+    public static ShardRing parse(String spec, int virtualNodes) {
+        List<Shard> shards = new ArrayList<>();
+        for (String shard : spec.split(",")) {
+            if (!shard.isBlank()) {
+                shards.add(Shard.parse(shard));
+            }
+        }
+        return new ShardRing(shards, virtualNodes);
+    }
+
+    /**
+     * Returns the shard a session belongs to. Every process with the same ring places a key on the same shard.
+     *
+     * @param sessionKey The key identifying the session.
+     * @return The shard.
+     */
+    public Shard shardFor(CharSequence sessionKey) {
+        int index = Arrays.binarySearch(points, hash(sessionKey));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Returns the ring with one more shard; only sessions placed on the new shard move.
+     *
+     * @param shard The shard to add.
+     * @return The new ring.
+     */
+    public ShardRing withShard(Shard shard) {
+        List<Shard> grown = new ArrayList<>(shards);
+        grown.add(shard);
+        return new ShardRing(grown, virtualNodes);
+    }
+
+    /**
+     * Returns the ring without a shard; only the sessions of that shard move.
+     *
+     * @param shard The shard to remove.
+     * @return The new ring.
+     */
+    public ShardRing withoutShard(Shard shard) {
+        List<Shard> shrunk = new ArrayList<>(shards);
+        if (!shrunk.remove(shard)) {
+            throw new IllegalArgumentException(shard + " is not a shard of " + shards);
+        }
+        return new ShardRing(shrunk, virtualNodes);
+    }
+
+    /**
+     * Returns the share of the hash ring each shard owns, which is the share of sessions it can expect.
+     *
+     * @return The share per shard, in shard order, summing up to 1.
+     */
+    public Map<Shard, Double> ownership() {
+        Map<Shard, Double> shares = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            shares.put(shard, 0.0);
+        }
+        for (int i = 0; i < points.length; i++) {
+            // The arc from the previous point, wrapping round for the first one; unsigned modulo 2^64
+            long arc = points[i] - points[i == 0 ? points.length - 1 : i - 1];
+            double share = points.length == 1 ? 1.0 : unsigned(arc) / TWO_TO_THE_64;
+            shares.merge(owners[i], share, Double::sum);
+        }
+        return shares;
+    }
+
+    /**
+     * @return The shards in the order they were given.
+     */
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Hashes a key with 64-bit FNV-1a over its characters, followed by the MurmurHash3 finalizer, which
+     * spreads keys that differ in a single character over the whole ring.
+     *
+     * @param key The key.
+     * @return The hash.
+     */
+    static long hash(CharSequence key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double unsigned(long value) {
+        return value >= 0 ? value : value + TWO_TO_THE_64;
+    }
+
+    @Override
+    public String toString() {
+        return shards + " with " + virtualNodes + " virtual nodes each";
+    }
+}
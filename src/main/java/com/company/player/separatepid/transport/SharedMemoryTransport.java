@@ -0,0 +1,295 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link MessageTransport} between two processes on the same machine that exchanges
+ * {@link FrameCodec} frames through a memory-mapped file instead of the network stack.
+ * <p>
+ * The file holds two single-producer/single-consumer rings, one per direction. Each ring is an array of
+ * fixed-size slots plus a write and a read sequence counter on their own cache lines. The sender copies
+ * a frame into the next slot and publishes it by advancing the write sequence with release semantics;
+ * the receiver polls the sequence with acquire semantics, so a hop costs two memory copies and no
+ * system call. Waiting spins first, then yields and finally parks for short periods, because the peer
+ * process cannot unpark a thread of this process.
+ * <p>
+ * The server {@linkplain #create creates} the file and the initiator {@linkplain #attach attaches} to it.
+ * Both record their PID in the header so that a waiting side notices a dead peer or a stale file.
+ * <p>
+ * Note: A frame must fit into a slot; the slot size therefore bounds the message size. Sequence counters
+ * and PIDs use the native byte order, frames keep the big-endian order of {@link FrameCodec}. Java cannot
+ * unmap a file explicitly: {@link #close()} drops the transport's reference to the mapping, which is released
+ * by the next garbage collection, so a long-lived process running many sessions does not keep their
+ * mappings alive.
+ *
+ * @author priyanshu
+ */
+public final class SharedMemoryTransport implements MessageTransport {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long MAGIC = 0x504C5952_53484D31L; // "PLYRSHM1"
+    private static final int CACHE_LINE = 64;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SERVER_PID_OFFSET = 8;
+    private static final int INITIATOR_PID_OFFSET = 16;
+    private static final int SLOT_COUNT_OFFSET = 24;
+    private static final int SLOT_SIZE_OFFSET = 32;
+
+    /**
+     * Ring header: write sequence, read sequence and closed flag, each on its own cache line.
+     */
+    private static final int WRITE_SEQUENCE = 0;
+    private static final int READ_SEQUENCE = CACHE_LINE;
+    private static final int CLOSED = 2 * CACHE_LINE;
+    private static final int RING_HEADER_SIZE = 3 * CACHE_LINE;
+
+    private static final int SERVER_TO_INITIATOR = CACHE_LINE;
+    private static final int INITIATOR_TO_SERVER = SERVER_TO_INITIATOR + RING_HEADER_SIZE;
+    private static final int DATA_OFFSET = INITIATOR_TO_SERVER + RING_HEADER_SIZE;
+
+    /**
+     * Spinning only helps when the peer runs on another core; on a single core it just delays the peer.
+     */
+    private static final int SPIN_TRIES = Runtime.getRuntime().availableProcessors() > 1 ? 10_000 : 0;
+    private static final int YIELD_TRIES = 1_000;
+    private static final long PARK_NANOS = 50_000L;
+    private static final int LIVENESS_CHECK_INTERVAL = 1_024;
+
+    private final Path file;
+    private final boolean owner;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private final FrameCodec codec;
+    private final int slotCount;
+    private final int slotSize;
+    private final int outRing;
+    private final int inRing;
+    private final int outData;
+    private final int inData;
+    private final int peerPidOffset;
+    private ByteBuffer readBuffer;
+    private long sent;
+    private long received;
+    private boolean closed;
+
+    private SharedMemoryTransport(Path file, boolean owner, FileChannel channel, MappedByteBuffer map,
+                                  FrameCodec codec, int slotCount, int slotSize) {
+        this.file = file;
+        this.owner = owner;
+        this.channel = channel;
+        this.map = map;
+        this.codec = codec;
+        this.slotCount = slotCount;
+        this.slotSize = slotSize;
+        int serverToInitiatorData = DATA_OFFSET;
+        int initiatorToServerData = DATA_OFFSET + slotCount * slotSize;
+        this.outRing = owner ? SERVER_TO_INITIATOR : INITIATOR_TO_SERVER;
+        this.inRing = owner ? INITIATOR_TO_SERVER : SERVER_TO_INITIATOR;
+        this.outData = owner ? serverToInitiatorData : initiatorToServerData;
+        this.inData = owner ? initiatorToServerData : serverToInitiatorData;
+        this.peerPidOffset = owner ? INITIATOR_PID_OFFSET : SERVER_PID_OFFSET;
+        this.readBuffer = ByteBuffer.allocate(slotSize);
+    }
+
+    /**
+     * Creates (or replaces) the shared file and initializes both rings. Called by the server.
+     *
+     * @param file      The file both processes map.
+     * @param slotCount The number of slots per direction; a power of two.
+     * @param slotSize  The size of a slot in bytes; rounded up to a multiple of the cache line.
+     * @param codec     The codec of this connection.
+     * @return The server side of the transport.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    public static SharedMemoryTransport create(Path file, int slotCount, int slotSize, FrameCodec codec) throws IOException {
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a positive power of two: " + slotCount);
+        }
+        int alignedSlotSize = Math.max(CACHE_LINE, (slotSize + CACHE_LINE - 1) / CACHE_LINE * CACHE_LINE);
+        long size = DATA_OFFSET + 2L * slotCount * alignedSlotSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Shared memory rings of " + size + " bytes are too large");
+        }
+        Files.deleteIfExists(file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        LONGS.set(map, SERVER_PID_OFFSET, ProcessHandle.current().pid());
+        map.putInt(SLOT_COUNT_OFFSET, slotCount);
+        map.putInt(SLOT_SIZE_OFFSET, alignedSlotSize);
+        // Publishing the magic last tells an attaching initiator that the header is complete
+        LONGS.setRelease(map, MAGIC_OFFSET, MAGIC);
+        return new SharedMemoryTransport(file, true, channel, map, codec, slotCount, alignedSlotSize);
+    }
+
+    /**
+     * Attaches to a file created by a live server. Called by the initiator.
+     *
+     * @param file  The file both processes map.
+     * @param codec The codec of this connection.
+     * @return The initiator side of the transport.
+     * @throws IOException If the file does not exist, is not initialized, its header does not describe rings
+     *                     that fit into it or its server is gone.
+     */
+    public static SharedMemoryTransport attach(Path file, FrameCodec codec) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            throw new IOException("No shared memory server at " + file, e);
+        }
+        try {
+            if (channel.size() < DATA_OFFSET) {
+                throw new ProtocolException("Shared memory file " + file + " is not initialized");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET);
+            if ((long) LONGS.getAcquire(header, MAGIC_OFFSET) != MAGIC) {
+                throw new ProtocolException("Shared memory file " + file + " is not initialized");
+            }
+            if (!isAlive((long) LONGS.getAcquire(header, SERVER_PID_OFFSET))) {
+                throw new IOException("Shared memory file " + file + " is stale, its server is gone");
+            }
+            int slotCount = header.getInt(SLOT_COUNT_OFFSET);
+            int slotSize = header.getInt(SLOT_SIZE_OFFSET);
+            // A truncated, stale or foreign file must not lead to offsets outside the mapping
+            if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+                throw new ProtocolException("Shared memory file " + file + " has an invalid slot count: " + slotCount);
+            }
+            if (slotSize <= 0 || slotSize % CACHE_LINE != 0) {
+                throw new ProtocolException("Shared memory file " + file + " has an invalid slot size: " + slotSize);
+            }
+            long size = DATA_OFFSET + 2L * slotCount * slotSize;
+            if (size > Integer.MAX_VALUE || channel.size() < size) {
+                throw new ProtocolException("Shared memory file " + file + " of " + channel.size()
+                        + " bytes is too small for rings of " + slotCount + " slots of " + slotSize + " bytes");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            LONGS.setRelease(map, INITIATOR_PID_OFFSET, ProcessHandle.current().pid());
+            return new SharedMemoryTransport(file, false, channel, map, codec, slotCount, slotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void send(Player player) throws IOException {
+        ensureOpen();
+        ByteBuffer frame = codec.encode(player);
+        if (frame.remaining() > slotSize) {
+            throw new ProtocolException("Frame of " + frame.remaining() + " bytes exceeds the shared memory slot size of " + slotSize);
+        }
+        int idleCount = 0;
+        while (sent - (long) LONGS.getAcquire(map, outRing + READ_SEQUENCE) >= slotCount) {
+            idleCount = idle(idleCount);
+        }
+        int slot = outData + (int) (sent & (slotCount - 1)) * slotSize;
+        map.put(slot, frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        LONGS.setRelease(map, outRing + WRITE_SEQUENCE, ++sent);
+    }
+
+    @Override
+    public boolean receive(Player target) throws IOException {
+        ensureOpen();
+        int idleCount = 0;
+        while ((long) LONGS.getAcquire(map, inRing + WRITE_SEQUENCE) <= received) {
+            // The peer may publish its last frame and close between the two reads, so drain before ending
+            if ((long) LONGS.getAcquire(map, inRing + CLOSED) != 0
+                    && (long) LONGS.getAcquire(map, inRing + WRITE_SEQUENCE) <= received) {
+                return false; // Peer closed and everything it sent has been consumed
+            }
+            idleCount = idle(idleCount);
+        }
+        int slot = inData + (int) (received & (slotCount - 1)) * slotSize;
+        int length = map.getInt(slot);
+        FrameCodec.checkLength(length);
+        int frameSize = FrameCodec.LENGTH_FIELD_SIZE + length;
+        if (frameSize > slotSize) {
+            throw new ProtocolException("Invalid frame length in shared memory slot: " + frameSize);
+        }
+        map.get(slot, readBuffer.array(), 0, frameSize);
+        readBuffer.clear().limit(frameSize);
+        // The slot is copied, hand it back before decoding
+        LONGS.setRelease(map, inRing + READ_SEQUENCE, ++received);
+        codec.decodeFrame(readBuffer, target);
+        return true;
+    }
+
+    @Override
+    public boolean hasPendingInput() throws IOException {
+        ensureOpen();
+        return (long) LONGS.getAcquire(map, inRing + WRITE_SEQUENCE) > received;
+    }
+
+    /**
+     * Marks this side's outgoing ring as closed, drops the mapping and the read buffer, so that they can be
+     * collected while the process runs on, and closes the codec. The server also deletes the file.
+     *
+     * @throws IOException If the file channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LONGS.setRelease(map, outRing + CLOSED, 1L);
+        map = null;
+        readBuffer = null;
+        codec.close();
+        try {
+            channel.close();
+        } finally {
+            if (owner) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Waits once, escalating from spinning to yielding to short parks. While parking it periodically
+     * checks that the peer process is still alive, since a crashed peer never advances its sequence.
+     */
+    private int idle(int idleCount) throws IOException {
+        if (idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            if (idleCount % LIVENESS_CHECK_INTERVAL == 0) {
+                long peerPid = (long) LONGS.getAcquire(map, peerPidOffset);
+                if (peerPid != 0 && !isAlive(peerPid)) {
+                    throw new IOException("Shared memory peer process " + peerPid + " is gone");
+                }
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idleCount + 1;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+}
@@ -0,0 +1,155 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@link MessageTransport} that exchanges {@link FrameCodec} frames over a pair of byte streams,
+ * typically those of a connected {@link Socket} or {@link SocketChannel}. Both directions are buffered and every message is
+ * written with a single flush, so a hop costs one system call per side.
+ *
+ * @author priyanshu
+ */
+public final class StreamTransport implements MessageTransport {
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final FrameCodec codec;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+
+    /**
+     * Creates a transport over the given streams.
+     *
+     * @param in    The stream messages are read from.
+     * @param out   The stream messages are written to.
+     * @param codec The codec of this connection.
+     */
+    public StreamTransport(InputStream in, OutputStream out, FrameCodec codec) {
+        this.in = new DataInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+        this.out = new BufferedOutputStream(out, STREAM_BUFFER_SIZE);
+        this.codec = codec;
+    }
+
+    /**
+     * Creates a {@link com.company.player.util.ProtocolMode#FULL} transport over a connected socket.
+     *
+     * @param socket The connected socket.
+     * @return The transport.
+     * @throws IOException If the socket streams cannot be obtained.
+     */
+    public static StreamTransport of(Socket socket) throws IOException {
+        return of(socket, new FrameCodec());
+    }
+
+    /**
+     * Creates a transport over a connected socket and disables Nagle's algorithm,
+     * since every hop is a small request waiting for its reply.
+     *
+     * @param socket The connected socket.
+     * @param codec  The codec of this connection.
+     * @return The transport.
+     * @throws IOException If the socket streams cannot be obtained.
+     */
+    public static StreamTransport of(Socket socket, FrameCodec codec) throws IOException {
+        return of(socket, codec, true);
+    }
+
+    /**
+     * Creates a transport over a connected socket with an explicit choice of Nagle's algorithm.
+     * Pipelining callers that coalesce writes themselves may leave it enabled.
+     *
+     * @param socket     The connected socket.
+     * @param codec      The codec of this connection.
+     * @param tcpNoDelay {@code true} to disable Nagle's algorithm.
+     * @return The transport.
+     * @throws IOException If the socket streams cannot be obtained.
+     */
+    public static StreamTransport of(Socket socket, FrameCodec codec, boolean tcpNoDelay) throws IOException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        return new StreamTransport(socket.getInputStream(), socket.getOutputStream(), codec);
+    }
+
+    /**
+     * Creates a transport over a connected, blocking socket channel, e.g. a Unix domain socket,
+     * for which no {@link Socket} adapter exists. Closing the transport closes the channel.
+     *
+     * @param channel The connected channel.
+     * @param codec   The codec of this connection.
+     * @return The transport.
+     */
+    public static StreamTransport of(SocketChannel channel, FrameCodec codec) {
+        return new StreamTransport(Channels.newInputStream(channel), Channels.newOutputStream(channel), codec);
+    }
+
+    /**
+     * Returns the codec of this connection, e.g. to inspect the rebuilt conversation.
+     *
+     * @return The codec.
+     */
+    public FrameCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void send(Player player) throws IOException {
+        write(player);
+        out.flush();
+    }
+
+    @Override
+    public void write(Player player) throws IOException {
+        ByteBuffer frame = codec.encode(player);
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public boolean hasPendingInput() throws IOException {
+        return in.available() > 0;
+    }
+
+    @Override
+    public boolean receive(Player target) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return false; // Peer closed the connection between two frames
+        }
+        FrameCodec.checkLength(length);
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+        }
+        in.readFully(readBuffer.array(), 0, length);
+        readBuffer.clear().limit(length);
+        codec.decode(readBuffer, target);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            codec.close();
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.util.Constants;
+import com.company.player.util.Logger;
+import com.company.player.util.Options;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Describes how the two separate process nodes find each other and opens the
+ * {@link MessageTransport} of the selected {@link TransportType}: the server side
+ * {@linkplain #accept accepts} one peer and the initiator side {@linkplain #connect connects} to it.
+ * <p>
+ * In a sharded deployment several servers listen on different endpoints, and the initiator side connects to
+ * the one its session key is placed on by the {@link ShardRing}.
+ * <p>
+ * Configurations are read from the command line with {@link #from(Options)} or assembled with a
+ * {@link #builder()}, which defaults every setting that is not given. Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class TransportConfig {
+
+    private final TransportType type;
+    private final String host;
+    private final int port;
+    private final boolean tcpNoDelay;
+    private final Path udsPath;
+    private final Path shmFile;
+    private final int shmSlots;
+    private final int shmSlotSize;
+    private final Path readyFile;
+    private final ShardRing shards;
+    private final String sessionKey;
+    private final DatagramSettings datagram;
+
+    private TransportConfig(Builder builder) {
+        if (builder.shards != null && builder.type != TransportType.TCP) {
+            throw new IllegalArgumentException("only " + TransportType.TCP + " servers can be sharded, not " + builder.type);
+        }
+        this.type = builder.type;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.udsPath = builder.udsPath;
+        this.shmFile = builder.shmFile;
+        this.shmSlots = builder.shmSlots;
+        this.shmSlotSize = builder.shmSlotSize;
+        this.readyFile = builder.readyFile;
+        this.shards = builder.shards;
+        this.sessionKey = builder.sessionKey;
+        this.datagram = builder.datagram;
+    }
+
+    /**
+     * Returns a builder that starts from the original configuration: TCP on
+     * {@link Constants#HOST}:{@link Constants#PORT}, the default UDS and SHM locations, no ready file, no
+     * shards and the PID as session key.
+     *
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the original configuration: TCP on {@link Constants#HOST}:{@link Constants#PORT}.
+     *
+     * @return The default configuration.
+     */
+    public static TransportConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Reads the configuration from the command line: {@code --transport=tcp|uds|shm|udp}, {@code --host},
+     * {@code --port}, {@code --tcp-nodelay}, {@code --uds-path}, {@code --shm-file}, {@code --shm-slots}, {@code --shm-slot-size},
+     * {@code --ready-file}, {@code --shards=<host:port,...>}, {@code --shard-virtual-nodes=<n>},
+     * {@code --session-key=<key>}, which defaults to the PID, and the options of {@link DatagramSettings#from(Options)}.
+     *
+     * @param options The command line options.
+     * @return The configuration, with defaults for absent options.
+     */
+    public static TransportConfig from(Options options) {
+        return builder()
+                .type(options.getEnum("transport", TransportType.TCP))
+                .host(options.get("host", Constants.HOST))
+                .port(options.getInt("port", Constants.PORT))
+                .tcpNoDelay(options.getBoolean("tcp-nodelay", true))
+                .udsPath(Paths.get(options.get("uds-path", Constants.UDS_PATH)))
+                .shmFile(Paths.get(options.get("shm-file", Constants.SHM_FILE)))
+                .shmSlots(options.getInt("shm-slots", Constants.SHM_SLOTS))
+                .shmSlotSize(options.getInt("shm-slot-size", Constants.SHM_SLOT_SIZE))
+                .readyFile(options.has("ready-file") ? Paths.get(options.get("ready-file", null)) : null)
+                .shards(options.has("shards")
+                        ? ShardRing.parse(options.get("shards", null), options.getInt("shard-virtual-nodes", Constants.SHARD_VIRTUAL_NODES))
+                        : null)
+                .sessionKey(options.get("session-key", Long.toString(ProcessHandle.current().pid())))
+                .datagram(DatagramSettings.from(options))
+                .build();
+    }
+
+    /**
+     * Returns a builder that starts from this configuration.
+     *
+     * @return A new builder.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.type = type;
+        builder.host = host;
+        builder.port = port;
+        builder.tcpNoDelay = tcpNoDelay;
+        builder.udsPath = udsPath;
+        builder.shmFile = shmFile;
+        builder.shmSlots = shmSlots;
+        builder.shmSlotSize = shmSlotSize;
+        builder.readyFile = readyFile;
+        builder.shards = shards;
+        builder.sessionKey = sessionKey;
+        builder.datagram = datagram;
+        return builder;
+    }
+
+    /**
+     * Returns the configuration a session connects through: that of the shard its key is placed on in a
+     * sharded deployment, this one otherwise.
+     *
+     * @param key The session key.
+     * @return The configuration of the session's server.
+     */
+    public TransportConfig forSession(CharSequence key) {
+        return shards == null ? this : forShard(shards.shardFor(key));
+    }
+
+    /**
+     * Returns this configuration with the server endpoint of a shard and without the shard ring.
+     *
+     * @param shard The shard.
+     * @return The configuration of the shard's server.
+     */
+    public TransportConfig forShard(Shard shard) {
+        return toBuilder().host(shard.getHost()).port(shard.getPort()).shards(null).build();
+    }
+
+    /**
+     * Waits for the initiator and returns the server side of the link. As soon as the initiator can connect,
+     * before waiting for it, the server {@linkplain #signalReady() signals} that it is ready.
+     *
+     * @param codec The codec of the connection.
+     * @return The transport.
+     * @throws IOException If the link cannot be set up.
+     */
+    public MessageTransport accept(FrameCodec codec) throws IOException {
+        switch (type) {
+            case SHM:
+                SharedMemoryTransport transport = SharedMemoryTransport.create(shmFile, shmSlots, shmSlotSize, codec);
+                signalReady();
+                return transport;
+            case UDS:
+                return acceptUnixDomain(codec);
+            case UDP:
+                return acceptDatagram(codec);
+            case TCP:
+            default:
+                try (ServerSocket serverSocket = new ServerSocket(port)) {
+                    signalReady();
+                    return StreamTransport.of(serverSocket.accept(), codec, tcpNoDelay);
+                }
+        }
+    }
+
+    /**
+     * Connects to a waiting server and returns the initiator side of the link.
+     *
+     * @param codec The codec of the connection.
+     * @return The transport.
+     * @throws IOException If no server is available.
+     */
+    public MessageTransport connect(FrameCodec codec) throws IOException {
+        if (shards != null) {
+            return placed().connect(codec);
+        }
+        switch (type) {
+            case SHM:
+                return SharedMemoryTransport.attach(shmFile, codec);
+            case UDS:
+                SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(udsPath));
+                return StreamTransport.of(channel, codec);
+            case UDP:
+                return DatagramTransport.connect(new InetSocketAddress(host, port), codec, datagram);
+            case TCP:
+            default:
+                Socket socket = new Socket(host, port);
+                try {
+                    return StreamTransport.of(socket, codec, tcpNoDelay);
+                } catch (IOException e) {
+                    socket.close();
+                    throw e;
+                }
+        }
+    }
+
+    /**
+     * Connects to a waiting multi-session server and opens a connection that carries many streams.
+     *
+     * @return The transport.
+     * @throws IOException If no server is available.
+     * @throws IllegalStateException If the link is not {@link TransportType#TCP}, the only one multiplexed.
+     */
+    public MultiplexedTransport connectMultiplexed() throws IOException {
+        if (type != TransportType.TCP) {
+            throw new IllegalStateException("only " + TransportType.TCP + " connections can be multiplexed, not " + type);
+        }
+        if (shards != null) {
+            return placed().connectMultiplexed();
+        }
+        Socket socket = new Socket(host, port);
+        try {
+            return MultiplexedTransport.of(socket, tcpNoDelay);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the configuration of the shard this process's session key is placed on.
+     */
+    private TransportConfig placed() {
+        TransportConfig placed = forSession(sessionKey);
+        Logger.log("Session " + sessionKey + " placed on shard " + placed.host + ":" + placed.port);
+        return placed;
+    }
+
+    /**
+     * Tells a waiting launcher that the server side is ready, by creating the ready file with the PID of this
+     * process. The file is written under a temporary name and then renamed, so it never appears half written.
+     * Does nothing if no ready file is configured.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void signalReady() throws IOException {
+        if (readyFile == null) {
+            return;
+        }
+        Path partial = readyFile.resolveSibling(readyFile.getFileName() + ".partial");
+        Files.writeString(partial, Long.toString(ProcessHandle.current().pid()));
+        Files.move(partial, readyFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Binds the socket file, accepts one peer and removes the file again, so neither a stale file
+     * nor a second initiator can get in the way. A file left behind by a crashed server is replaced.
+     */
+    private MessageTransport acceptUnixDomain(FrameCodec codec) throws IOException {
+        Files.deleteIfExists(udsPath);
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            serverChannel.bind(UnixDomainSocketAddress.of(udsPath));
+            signalReady();
+            return StreamTransport.of(serverChannel.accept(), codec);
+        } finally {
+            Files.deleteIfExists(udsPath);
+        }
+    }
+
+    /**
+     * Binds the port and waits for the hello of one initiator; later hellos of other initiators go unanswered.
+     */
+    private MessageTransport acceptDatagram(FrameCodec codec) throws IOException {
+        DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress(port));
+        try {
+            signalReady();
+            return DatagramTransport.accept(channel, codec, datagram);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The kind of link.
+     */
+    public TransportType getType() {
+        return type;
+    }
+
+    /**
+     * @return {@code true} if Nagle's algorithm is disabled on TCP connections.
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * @return The server port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return The key that identifies this process's session and places it on a shard.
+     */
+    public String getSessionKey() {
+        return sessionKey;
+    }
+
+    /**
+     * @return The servers of a sharded deployment, or {@code null}.
+     */
+    public ShardRing getShards() {
+        return shards;
+    }
+
+    /**
+     * Collects the settings of a {@link TransportConfig}; every setting not given keeps its default, see
+     * {@link TransportConfig#builder()}.
+     */
+    public static final class Builder {
+
+        private TransportType type = TransportType.TCP;
+        private String host = Constants.HOST;
+        private int port = Constants.PORT;
+        private boolean tcpNoDelay = true;
+        private Path udsPath = Paths.get(Constants.UDS_PATH);
+        private Path shmFile = Paths.get(Constants.SHM_FILE);
+        private int shmSlots = Constants.SHM_SLOTS;
+        private int shmSlotSize = Constants.SHM_SLOT_SIZE;
+        private Path readyFile;
+        private ShardRing shards;
+        private String sessionKey = Long.toString(ProcessHandle.current().pid());
+        private DatagramSettings datagram = DatagramSettings.defaults();
+
+        private Builder() {
+        }
+
+        /**
+         * @param type The kind of link; must be {@link TransportType#TCP} if shards are given.
+         * @return This builder.
+         */
+        public Builder type(TransportType type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * @param host The server host ({@link TransportType#TCP} and {@link TransportType#UDP}).
+         * @return This builder.
+         */
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port The server port ({@link TransportType#TCP} and {@link TransportType#UDP}).
+         * @return This builder.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param tcpNoDelay Whether Nagle's algorithm is disabled ({@link TransportType#TCP}).
+         * @return This builder.
+         */
+        public Builder tcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        /**
+         * @param udsPath The socket file the server binds to ({@link TransportType#UDS}).
+         * @return This builder.
+         */
+        public Builder udsPath(Path udsPath) {
+            this.udsPath = udsPath;
+            return this;
+        }
+
+        /**
+         * @param shmFile The file both processes map ({@link TransportType#SHM}).
+         * @return This builder.
+         */
+        public Builder shmFile(Path shmFile) {
+            this.shmFile = shmFile;
+            return this;
+        }
+
+        /**
+         * @param shmSlots The number of slots per direction, a power of two ({@link TransportType#SHM}).
+         * @return This builder.
+         */
+        public Builder shmSlots(int shmSlots) {
+            this.shmSlots = shmSlots;
+            return this;
+        }
+
+        /**
+         * @param shmSlotSize The size of a slot in bytes, which bounds the frame size ({@link TransportType#SHM}).
+         * @return This builder.
+         */
+        public Builder shmSlotSize(int shmSlotSize) {
+            this.shmSlotSize = shmSlotSize;
+            return this;
+        }
+
+        /**
+         * @param readyFile The file the server creates once the initiator can connect, or {@code null}.
+         * @return This builder.
+         */
+        public Builder readyFile(Path readyFile) {
+            this.readyFile = readyFile;
+            return this;
+        }
+
+        /**
+         * @param shards The servers the initiator side chooses from, or {@code null} for host and port.
+         * @return This builder.
+         */
+        public Builder shards(ShardRing shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * @param sessionKey The key that places this process's sessions on a shard.
+         * @return This builder.
+         */
+        public Builder sessionKey(String sessionKey) {
+            this.sessionKey = sessionKey;
+            return this;
+        }
+
+        /**
+         * @param datagram How lost datagrams are recovered ({@link TransportType#UDP}).
+         * @return This builder.
+         */
+        public Builder datagram(DatagramSettings datagram) {
+            this.datagram = datagram;
+            return this;
+        }
+
+        /**
+         * @return The configuration.
+         * @throws IllegalArgumentException If shards are given for another link than {@link TransportType#TCP}.
+         */
+        public TransportConfig build() {
+            return new TransportConfig(this);
+        }
+    }
+}
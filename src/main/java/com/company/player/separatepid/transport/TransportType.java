@@ -0,0 +1,29 @@
+package com.company.player.separatepid.transport;
+
+/**
+ * The links a separate process session can run over.
+ *
+ * @author priyanshu
+ */
+public enum TransportType {
+
+    /**
+     * A TCP connection on {@code host:port}; works across machines.
+     */
+    TCP,
+
+    /**
+     * A Unix domain socket bound to a file path; same machine only, no port needed.
+     */
+    UDS,
+
+    /**
+     * A memory-mapped file shared by two processes on the same machine.
+     */
+    SHM,
+
+    /**
+     * UDP datagrams on {@code host:port} with sequencing and retransmission; no connection or stream buffering.
+     */
+    UDP
+}
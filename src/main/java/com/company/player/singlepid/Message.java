@@ -0,0 +1,154 @@
+package com.company.player.singlepid;
+
+import com.company.player.util.TextBuffer;
+
+/**
+ * A message handed from one {@link Player} to another over their queues. Besides the text it can
+ * carry the sender's conversation checksum, which {@link com.company.player.util.ProtocolMode#DELTA}
+ * mode attaches periodically so the receiver can verify the conversation it rebuilt, and the
+ * {@link System#nanoTime()} it was sent at when metrics are enabled.
+ * <p>
+ * Messages created by the factories are never changed. A player sends its replies in messages it
+ * {@linkplain #reusable() owns and rewrites}, which is safe because the players take turns: a message is
+ * only rewritten after the peer has answered it, and so has finished reading it.
+ *
+ * @author priyanshu
+ */
+public final class Message {
+
+    private final TextBuffer text;
+    private final Player sender;
+    private boolean hasChecksum;
+    private int checksum;
+    private long sentAtNanos;
+
+    private Message(TextBuffer text, Player sender, boolean hasChecksum, int checksum, long sentAtNanos) {
+        this.text = text;
+        this.sender = sender;
+        this.hasChecksum = hasChecksum;
+        this.checksum = checksum;
+        this.sentAtNanos = sentAtNanos;
+    }
+
+    /**
+     * Creates a message without a checksum.
+     *
+     * @param text The message text.
+     * @return The message.
+     */
+    public static Message of(String text) {
+        return of(text, 0L);
+    }
+
+    /**
+     * Creates a message without a checksum that records when it was sent.
+     *
+     * @param text        The message text.
+     * @param sentAtNanos The {@link System#nanoTime()} at sending, {@code 0} if not measured.
+     * @return The message.
+     */
+    public static Message of(String text, long sentAtNanos) {
+        return new Message(new TextBuffer(text), null, false, 0, sentAtNanos);
+    }
+
+    /**
+     * Creates a message carrying the sender's conversation checksum.
+     *
+     * @param text     The message text.
+     * @param checksum The checksum of the sender's conversation after appending {@code text}.
+     * @return The message.
+     */
+    public static Message withChecksum(String text, int checksum) {
+        return withChecksum(text, checksum, 0L);
+    }
+
+    /**
+     * Creates a message carrying the sender's conversation checksum that records when it was sent.
+     *
+     * @param text        The message text.
+     * @param checksum    The checksum of the sender's conversation after appending {@code text}.
+     * @param sentAtNanos The {@link System#nanoTime()} at sending, {@code 0} if not measured.
+     * @return The message.
+     */
+    public static Message withChecksum(String text, int checksum, long sentAtNanos) {
+        return new Message(new TextBuffer(text), null, true, checksum, sentAtNanos);
+    }
+
+    /**
+     * Creates an empty message for a player to fill and send again and again.
+     *
+     * @param sender The player owning the message.
+     * @return The message.
+     */
+    static Message reusable(Player sender) {
+        return new Message(new TextBuffer(), sender, false, 0, 0L);
+    }
+
+    /**
+     * Gives the owner of a {@linkplain #reusable() reusable} message access to its text.
+     *
+     * @return The text to rewrite.
+     */
+    TextBuffer text() {
+        return text;
+    }
+
+    /**
+     * Sets the metadata of a {@linkplain #reusable() reusable} message before it is sent.
+     *
+     * @param hasChecksum Whether a checksum is attached.
+     * @param checksum    The checksum of the sender's conversation, if attached.
+     * @param sentAtNanos The {@link System#nanoTime()} at sending, {@code 0} if not measured.
+     */
+    void stamp(boolean hasChecksum, int checksum, long sentAtNanos) {
+        this.hasChecksum = hasChecksum;
+        this.checksum = checksum;
+        this.sentAtNanos = sentAtNanos;
+    }
+
+    /**
+     * Retrieves the message text: the whole conversation in full mode, the appended suffix in delta mode.
+     * Call {@code toString()} on it to keep the text beyond the turn it was received in.
+     *
+     * @return The message text.
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Retrieves the player that sent the message, which a player in a {@link Topology} replies to.
+     *
+     * @return The sender, or {@code null} for a message created by a factory.
+     */
+    public Player getSender() {
+        return sender;
+    }
+
+    /**
+     * Tells whether a checksum is attached.
+     *
+     * @return {@code true} if {@link #getChecksum()} is meaningful.
+     */
+    public boolean hasChecksum() {
+        return hasChecksum;
+    }
+
+    /**
+     * Retrieves the attached checksum.
+     *
+     * @return The checksum of the sender's conversation.
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Retrieves the time the message was sent.
+     *
+     * @return The sender's {@link System#nanoTime()} at sending, or {@code 0} if not measured.
+     */
+    public long getSentAtNanos() {
+        return sentAtNanos;
+    }
+}
@@ -0,0 +1,159 @@
+package com.company.player.singlepid;
+
+import com.company.player.util.ProtocolMode;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many independent player pairs concurrently in one process. Every pair is wired like the
+ * single process mode (an initiator and a receiver connected back-to-back) and each player runs as
+ * its own task on the given executor, which is meant to start a virtual thread per task.
+ * <p>
+ * The players block on their queues, so an executor with fewer threads than players would stall.
+ * {@link QueueType#LINKED} blocks through a {@link java.util.concurrent.locks.ReentrantLock} and
+ * {@link SpscRingBuffer} through {@link java.util.concurrent.locks.LockSupport}, neither of which pins
+ * a virtual thread to its carrier; {@link WaitStrategy#BUSY_SPIN} is rejected because a spinning
+ * virtual thread never releases its carrier.
+ *
+ * @author priyanshu
+ */
+public final class PairsSimulation {
+
+    private static final String INITIAL_MESSAGE = "[Hello!]";
+
+    private final int pairs;
+    private final int maxMessages;
+    private final QueueType queueType;
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final ProtocolMode protocolMode;
+
+    /**
+     * Configures a simulation.
+     *
+     * @param pairs        The number of concurrent player pairs.
+     * @param maxMessages  The number of messages each player sends.
+     * @param queueType    The queue the players receive on.
+     * @param capacity     The capacity of bounded queues.
+     * @param waitStrategy How bounded queues wait.
+     * @param protocolMode How replies are transmitted.
+     */
+    public PairsSimulation(int pairs, int maxMessages, QueueType queueType, int capacity,
+                           WaitStrategy waitStrategy, ProtocolMode protocolMode) {
+        if (pairs <= 0) {
+            throw new IllegalArgumentException("pairs must be positive: " + pairs);
+        }
+        if (queueType == QueueType.SPSC && waitStrategy == WaitStrategy.BUSY_SPIN) {
+            throw new IllegalArgumentException("busy-spin would monopolise the carrier threads; use yield or park");
+        }
+        this.pairs = pairs;
+        this.maxMessages = maxMessages;
+        this.queueType = queueType;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.protocolMode = protocolMode;
+    }
+
+    /**
+     * Starts every pair and waits until all of them reached the stop condition.
+     *
+     * @param executor The executor running the players; it must be able to run all players at once.
+     * @return The aggregate result.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public Result run(ExecutorService executor) throws InterruptedException {
+        long[] completionNanos = new long[pairs];
+        CountDownLatch done = new CountDownLatch(pairs);
+        long start = System.nanoTime();
+        for (int i = 0; i < pairs; i++) {
+            startPair(i, executor, completionNanos, done);
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(completionNanos);
+        return new Result(pairs, 2L * pairs * maxMessages, elapsed, completionNanos);
+    }
+
+    private void startPair(int index, ExecutorService executor, long[] completionNanos, CountDownLatch done) {
+        Player initiator = new Player("initiator-" + index, maxMessages, queueType.create(capacity, waitStrategy));
+        Player receiver = new Player("receiver-" + index, maxMessages, queueType.create(capacity, waitStrategy));
+        initiator.setOutgoingQueue(receiver.getIncomingQueue());
+        receiver.setOutgoingQueue(initiator.getIncomingQueue());
+        initiator.setProtocolMode(protocolMode);
+        receiver.setProtocolMode(protocolMode);
+        initiator.setSession("pair-" + index);
+        receiver.setSession("pair-" + index);
+
+        long pairStart = System.nanoTime();
+        AtomicInteger running = new AtomicInteger(2);
+        Runnable finish = () -> {
+            if (running.decrementAndGet() == 0) {
+                completionNanos[index] = System.nanoTime() - pairStart;
+                done.countDown();
+            }
+        };
+        executor.execute(() -> {
+            try {
+                initiator.run();
+            } finally {
+                finish.run();
+            }
+        });
+        executor.execute(() -> {
+            try {
+                receiver.run();
+            } finally {
+                finish.run();
+            }
+        });
+        initiator.sendMessage(INITIAL_MESSAGE);
+    }
+
+    /**
+     * The outcome of a simulation: aggregate throughput and the distribution of per-pair completion times.
+     */
+    public static final class Result {
+        private final int pairs;
+        private final long messages;
+        private final long elapsedNanos;
+        private final long[] sortedCompletionNanos;
+
+        Result(int pairs, long messages, long elapsedNanos, long[] sortedCompletionNanos) {
+            this.pairs = pairs;
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedCompletionNanos = sortedCompletionNanos;
+        }
+
+        /**
+         * @return The number of messages exchanged by all pairs per second.
+         */
+        public double messagesPerSecond() {
+            return messages * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns a percentile of the per-pair completion time, measured from the start of a pair
+         * until both of its players stopped.
+         *
+         * @param percentile The percentile between 0 and 100.
+         * @return The completion time in nanoseconds.
+         */
+        public long completionPercentileNanos(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedCompletionNanos.length) - 1;
+            return sortedCompletionNanos[Math.max(0, Math.min(index, sortedCompletionNanos.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d pairs exchanged %d messages in %.1f ms: %.0f messages/s, %.0f pairs/s; "
+                            + "pair completion p50=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms",
+                    pairs, messages, elapsedNanos / 1e6, messagesPerSecond(), pairs * 1e9 / elapsedNanos,
+                    completionPercentileNanos(50) / 1e6, completionPercentileNanos(99) / 1e6,
+                    completionPercentileNanos(99.9) / 1e6, completionPercentileNanos(100) / 1e6);
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package com.company.player.singlepid;
 
+import com.company.player.jfr.MessageReceivedEvent;
+import com.company.player.jfr.MessageSentEvent;
+import com.company.player.jfr.PlayerEvents;
+import com.company.player.jfr.ReplyEvent;
+import com.company.player.journal.Journal;
+import com.company.player.util.ConversationBuffer;
+import com.company.player.util.LogLevel;
 import com.company.player.util.Logger;
+import com.company.player.util.ProtocolMode;
+import com.company.player.util.SessionMetrics;
+import com.company.player.util.TextBuffer;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
+import static com.company.player.util.Constants.CHECKSUM_INTERVAL;
 import static com.company.player.util.Constants.MAX_MESSAGES;
 
 /**
@@ -15,25 +28,92 @@ import static com.company.player.util.Constants.MAX_MESSAGES;
  * This class implements the {@link Runnable} interface, allowing each player to run
  * independently in its own thread.
  * <p>
+ * In {@link ProtocolMode#DELTA} mode the player only hands over the suffix it appends and keeps the
+ * conversation in its own {@link ConversationBuffer}; every {@code checksumInterval}-th message carries
+ * the sender's checksum so the receiver can verify its copy.
+ * <p>
+ * Replies are written into two reusable outgoing messages per link, counter digits included, so a turn
+ * does not allocate once their buffers have grown to the longest message.
+ * <p>
+ * A pair is wired with {@link #setOutgoingQueue}. In larger {@link Topology topologies} a player replies to
+ * the sender of each message instead, and {@link #step()} lets a {@link PlayerScheduler} drive many players
+ * from a few threads.
+ * <p>
+ * With {@link SessionMetrics} enabled, every message carries its send time. The receiver records the
+ * hop latency, and the round trip from its own message to the reply.
+ * <p>
+ * With a {@link Journal} set, every message the player sends is appended to it before it is handed over.
+ * <p>
+ * With {@link PlayerEvents} enabled, the player emits flight recorder events for every message it receives,
+ * with its queueing time, for the reply it generates and for handing the reply over.
+ * <p>
  * Note: This class has only been used for the single process requirement.
  *
  * @author priyanshu
  */
 public class Player implements Runnable, Serializable {
     private final String name;
-    private final BlockingQueue<String> incomingMessages;
-    private BlockingQueue<String> outgoingMessages;
+    private final String sendingPrefix;
+    private final String sendingDeltaPrefix;
+    private final BlockingQueue<Message> incomingMessages;
+    private BlockingQueue<Message> outgoingMessages;
+    private final int maxMessages;
     private int messageCounter = 0;
+    private ProtocolMode protocolMode = ProtocolMode.FULL;
+    private int checksumInterval = CHECKSUM_INTERVAL;
+    private final ConversationBuffer conversation = new ConversationBuffer();
+    private SessionMetrics metrics;
+    private long lastSentNanos;
+    private int index;
+    private int[] repliesBySender = new int[1];
+    private int replyBudget;
+    private Message[] outgoing = new Message[2];
+    private byte[] nextOutgoing = new byte[1];
+    private String session;
+    private transient Journal journal;
+    private short journalId;
 
     /**
      * Constructs a new Player with the specified name and initializes the incoming
-     * message queue.
+     * message queue. The session length defaults to {@link com.company.player.util.Constants#MAX_MESSAGES}.
      *
      * @param name The name of the player
      */
     public Player(String name) {
+        this(name, MAX_MESSAGES);
+    }
+
+    /**
+     * Constructs a new Player with the specified name and session length, and initializes
+     * the incoming message queue.
+     *
+     * @param name        The name of the player
+     * @param maxMessages The number of messages this player sends before it stops
+     */
+    public Player(String name, int maxMessages) {
+        this(name, maxMessages, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Constructs a new Player with the specified name, session length and incoming message queue.
+     * Any {@link BlockingQueue} can be used, e.g. a {@link SpscRingBuffer} for lock-free hand-offs.
+     *
+     * @param name             The name of the player
+     * @param maxMessages      The number of messages this player sends before it stops
+     * @param incomingMessages The queue on which this player receives messages
+     */
+    public Player(String name, int maxMessages, BlockingQueue<Message> incomingMessages) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive: " + maxMessages);
+        }
         this.name = name;
-        this.incomingMessages = new LinkedBlockingQueue<>();
+        this.sendingPrefix = name + " sending: ";
+        this.sendingDeltaPrefix = name + " sending delta: ";
+        this.maxMessages = maxMessages;
+        this.replyBudget = maxMessages;
+        this.incomingMessages = incomingMessages;
+        this.metrics = new SessionMetrics(name, false);
+        this.session = name;
     }
 
     /**
@@ -41,7 +121,7 @@ public class Player implements Runnable, Serializable {
      *
      * @return The incoming message queue
      */
-    public BlockingQueue<String> getIncomingQueue() {
+    public BlockingQueue<Message> getIncomingQueue() {
         return incomingMessages;
     }
 
@@ -50,21 +130,113 @@ public class Player implements Runnable, Serializable {
      *
      * @param outgoingMessages The queue used for outgoing messages
      */
-    public void setOutgoingQueue(BlockingQueue<String> outgoingMessages) {
+    public void setOutgoingQueue(BlockingQueue<Message> outgoingMessages) {
         this.outgoingMessages = outgoingMessages;
     }
 
+    /**
+     * Selects how replies are transmitted. Both players of a session must use the same mode,
+     * and the mode must be set before the player starts.
+     *
+     * @param protocolMode The protocol mode
+     */
+    public void setProtocolMode(ProtocolMode protocolMode) {
+        this.protocolMode = protocolMode;
+    }
+
+    /**
+     * Sets how often a delta message carries the conversation checksum.
+     *
+     * @param checksumInterval Attach the checksum to every n-th message; must be positive
+     */
+    public void setChecksumInterval(int checksumInterval) {
+        if (checksumInterval <= 0) {
+            throw new IllegalArgumentException("checksumInterval must be positive: " + checksumInterval);
+        }
+        this.checksumInterval = checksumInterval;
+    }
+
+    /**
+     * Sets the metrics this player records into; must be set before the player starts.
+     *
+     * @param metrics The player's metrics
+     */
+    public void setMetrics(SessionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Names the session this player takes part in, which tags its flight recorder events; defaults to the
+     * player's name. Must be set before the player starts.
+     *
+     * @param session The session
+     */
+    public void setSession(String session) {
+        this.session = session;
+    }
+
+    /**
+     * Records every message this player sends into a journal, which both players of a pair may share;
+     * must be set before the player starts.
+     *
+     * @param journal   The journal, or {@code null} to record nothing
+     * @param journalId The id the player's messages are recorded under
+     */
+    public void setJournal(Journal journal, short journalId) {
+        this.journal = journal;
+        this.journalId = journalId;
+    }
+
+    /**
+     * Gets this player's copy of the conversation. It is only maintained in {@link ProtocolMode#DELTA} mode
+     * and must only be read once the player has stopped.
+     *
+     * @return The conversation buffer
+     */
+    public ConversationBuffer getConversation() {
+        return conversation;
+    }
+
     /**
      * Sends a message to another player using the outgoing message queue.
+     * In delta mode the text is appended to this player's conversation and only the text is sent.
      *
      * @param message The message to be sent
      */
     public void sendMessage(String message) {
-        try {
-            outgoingMessages.put(message);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        Message outgoing = nextOutgoing(0);
+        outgoing.text().setTo(message);
+        send(outgoing, outgoingMessages);
+    }
+
+    /**
+     * Opens a conversation with a player of the same topology by sending it a message directly.
+     *
+     * @param peer    The player to send to
+     * @param message The message to be sent
+     */
+    void sendMessage(Player peer, String message) {
+        Message outgoing = nextOutgoing(peer.index);
+        outgoing.text().setTo(message);
+        send(outgoing, peer.incomingMessages);
+    }
+
+    /**
+     * Makes this player one of {@code players} players of a topology. Without an outgoing queue it then
+     * replies to whoever sent a message, and it stops after answering {@code maxMessages} messages from each
+     * of its {@code inDegree} senders; later messages from a sender it is done with are dropped.
+     * Must be called before the player starts.
+     *
+     * @param index    This player's position in the topology
+     * @param players  The number of players in the topology
+     * @param inDegree The number of players that send to this player
+     */
+    void joinTopology(int index, int players, int inDegree) {
+        this.index = index;
+        this.repliesBySender = new int[players];
+        this.replyBudget = maxMessages * inDegree;
+        this.outgoing = new Message[2 * players];
+        this.nextOutgoing = new byte[players];
     }
 
     /**
@@ -74,16 +246,182 @@ public class Player implements Runnable, Serializable {
      */
     @Override
     public void run() {
-        while (messageCounter < MAX_MESSAGES) {
+        while (!isDone()) {
             try {
-                String message = incomingMessages.take(); // Waits for an incoming message
-                String reply = message + " [reply" + messageCounter + "]";
-                Logger.logWithPid(name + " sending: " + reply);
-                sendMessage(reply);
-                messageCounter++;
+                MessageReceivedEvent event = PlayerEvents.beginReceive();
+                handle(incomingMessages.take(), event); // Waits for an incoming message
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Processes at most one waiting message without blocking, so that a worker thread can drive many
+     * players in turn instead of dedicating a thread to each.
+     *
+     * @return {@code true} if a message was processed, {@code false} if none was waiting
+     */
+    public boolean step() {
+        MessageReceivedEvent event = PlayerEvents.beginReceive();
+        Message message = incomingMessages.poll();
+        if (message == null) {
+            return false;
+        }
+        handle(message, event);
+        return true;
+    }
+
+    /**
+     * Tells whether this player has sent all its replies.
+     *
+     * @return {@code true} once the stop condition is reached
+     */
+    public boolean isDone() {
+        return messageCounter >= replyBudget;
+    }
+
+    /**
+     * Returns the number of replies this player has sent.
+     *
+     * @return The reply count
+     */
+    public int getMessageCount() {
+        return messageCounter;
+    }
+
+    /**
+     * Replies to a received message: on the outgoing queue if one is set, to the sender otherwise.
+     *
+     * @param message       The received message
+     * @param receivedEvent The event timing the wait for the message, or {@code null}
+     */
+    private void handle(Message message, MessageReceivedEvent receivedEvent) {
+        Player sender = message.getSender();
+        int senderIndex = sender == null ? 0 : sender.index;
+        if (repliesBySender[senderIndex] >= maxMessages) {
+            return; // The last message of a conversation this player is done with
+        }
+        record(message);
+        if (receivedEvent != null) {
+            long queued = message.getSentAtNanos() == 0 ? 0 : System.nanoTime() - message.getSentAtNanos();
+            receivedEvent.finish(session, name, repliesBySender[senderIndex], message.getText().length(), queued);
+        }
+        ReplyEvent replyEvent = PlayerEvents.beginReply();
+        BlockingQueue<Message> destination = outgoingMessages != null ? outgoingMessages : sender.incomingMessages;
+        Message outgoing = nextOutgoing(outgoingMessages != null ? 0 : senderIndex);
+        TextBuffer reply = outgoing.text();
+        int counter = repliesBySender[senderIndex]++;
+        if (protocolMode == ProtocolMode.DELTA) {
+            receiveDelta(message);
+            reply.clear().appendReplySuffix(counter);
+            trace(sendingDeltaPrefix, reply);
+        } else {
+            reply.setTo(message.getText()).appendReplySuffix(counter);
+            trace(sendingPrefix, reply);
+        }
+        messageCounter++;
+        if (replyEvent != null) {
+            replyEvent.finish(session, name, messageCounter, reply.length());
+        }
+        send(outgoing, destination);
+    }
+
+    /**
+     * Returns the next of the two outgoing messages this player alternates between on a link. In a
+     * ping-pong the message sent on the link two turns ago has been answered, so the peer no longer reads it.
+     *
+     * @param link The link: the receiver's topology index, or {@code 0} for the outgoing queue.
+     * @return The message to rewrite and send.
+     */
+    private Message nextOutgoing(int link) {
+        int slot = 2 * link + nextOutgoing[link];
+        nextOutgoing[link] ^= 1;
+        Message message = outgoing[slot];
+        if (message == null) {
+            message = Message.reusable(this);
+            outgoing[slot] = message;
+        }
+        return message;
+    }
+
+    /**
+     * Stamps a message with the checksum (delta mode) and send time and puts it on the destination queue.
+     * In delta mode the text is appended to this player's conversation first. A journal records the
+     * message before the receiver can answer it, so the journal keeps the order of the conversation.
+     *
+     * @param message     The message whose text has been written
+     * @param destination The queue of the receiving player
+     */
+    private void send(Message message, BlockingQueue<Message> destination) {
+        MessageSentEvent event = PlayerEvents.beginSend();
+        long sentAt = metrics.isEnabled() || event != null ? System.nanoTime() : 0L;
+        if (protocolMode == ProtocolMode.DELTA) {
+            conversation.append(message.text());
+            boolean withChecksum = conversation.appendedCount() % checksumInterval == 0;
+            message.stamp(withChecksum, withChecksum ? conversation.checksum() : 0, sentAt);
+        } else {
+            message.stamp(false, 0, sentAt);
+        }
+        lastSentNanos = sentAt;
+        metrics.messageSent();
+        if (journal != null) {
+            try {
+                journal.append(journalId, messageCounter, message.text());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int length = message.text().length();
+        try {
+            destination.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (event != null) {
+            event.finish(session, name, messageCounter, length);
+        }
+    }
+
+    /**
+     * Logs the reply; the text is only materialized when the trace is enabled.
+     */
+    private static void trace(String prefix, TextBuffer reply) {
+        if (Logger.isEnabled(LogLevel.DEBUG)) {
+            Logger.logWithPid(prefix, reply.toString());
+        }
+    }
+
+    /**
+     * Records the hop latency of a received message and the round trip of the message it answers.
+     *
+     * @param message The received message
+     */
+    private void record(Message message) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        metrics.messageReceived();
+        if (message.getSentAtNanos() != 0) {
+            metrics.recordHopLatency(now - message.getSentAtNanos());
+        }
+        if (lastSentNanos != 0) {
+            metrics.recordRoundTrip(now - lastSentNanos);
+        }
+    }
+
+    /**
+     * Appends a received suffix to this player's conversation and verifies the attached checksum, if any.
+     *
+     * @param message The received delta message
+     * @throws IllegalStateException If the conversations of the two players diverged
+     */
+    private void receiveDelta(Message message) {
+        conversation.append(message.getText());
+        if (message.hasChecksum() && message.getChecksum() != conversation.checksum()) {
+            throw new IllegalStateException(name + " detected a conversation checksum mismatch after "
+                    + conversation.appendedCount() + " messages");
+        }
+    }
+}
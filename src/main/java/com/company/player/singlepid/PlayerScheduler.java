@@ -0,0 +1,82 @@
+package com.company.player.singlepid;
+
+/**
+ * Runs many players on a bounded pool of worker threads instead of one thread per player. The players
+ * are split into contiguous blocks, one per worker, and each worker {@linkplain Player#step() steps} the
+ * players of its block in turn until all of them are done.
+ * <p>
+ * Topologies number neighbouring players consecutively, so most hand-offs stay within one block: the
+ * message is written and read by the same thread, through the same core's cache, without waking anyone.
+ * Only the messages crossing a block boundary travel between cores. The JVM cannot pin threads to cores,
+ * so one worker per available processor is the closest placement it offers.
+ * <p>
+ * A worker that found nothing to do in a whole round waits according to its {@link WaitStrategy}; players
+ * never block in their queues here, so nothing unparks a parked worker before its park times out.
+ *
+ * @author priyanshu
+ */
+public final class PlayerScheduler {
+
+    private final int workers;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param workers      The maximum number of worker threads.
+     * @param waitStrategy How an idle worker waits.
+     */
+    public PlayerScheduler(int workers, WaitStrategy waitStrategy) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        this.workers = workers;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Runs the players until every one of them is done. The players must not be running on any other thread.
+     *
+     * @param players The players; their conversations should already have been opened.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the workers.
+     */
+    public void run(Player[] players) throws InterruptedException {
+        int count = Math.min(workers, players.length);
+        Thread[] threads = new Thread[count];
+        for (int w = 0; w < count; w++) {
+            int from = (int) ((long) w * players.length / count);
+            int to = (int) ((long) (w + 1) * players.length / count);
+            threads[w] = new Thread(() -> drive(players, from, to), "player-worker-" + w);
+            threads[w].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * The worker loop: steps every unfinished player of the block, draining its queue, until all are done.
+     */
+    private void drive(Player[] players, int from, int to) {
+        int idleCount = 0;
+        while (true) {
+            boolean progress = false;
+            boolean done = true;
+            for (int i = from; i < to; i++) {
+                Player player = players[i];
+                while (!player.isDone() && player.step()) {
+                    progress = true;
+                }
+                done &= player.isDone();
+            }
+            if (done) {
+                return;
+            }
+            if (progress) {
+                idleCount = 0;
+            } else {
+                waitStrategy.idle(idleCount++);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.company.player.singlepid;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The kinds of queues a {@link Player} can receive its messages on.
+ *
+ * @author priyanshu
+ */
+public enum QueueType {
+
+    /**
+     * An unbounded {@link LinkedBlockingQueue}; allocates a node and may park/unpark on every hand-off.
+     */
+    LINKED {
+        @Override
+        public <E> BlockingQueue<E> create(int capacity, WaitStrategy waitStrategy) {
+            return new LinkedBlockingQueue<>();
+        }
+    },
+
+    /**
+     * A preallocated, lock-free {@link SpscRingBuffer}.
+     */
+    SPSC {
+        @Override
+        public <E> BlockingQueue<E> create(int capacity, WaitStrategy waitStrategy) {
+            return new SpscRingBuffer<>(capacity, waitStrategy);
+        }
+    };
+
+    /**
+     * Creates a new queue of this type.
+     *
+     * @param capacity     The capacity of bounded queues; ignored by unbounded ones.
+     * @param waitStrategy How a bounded queue waits when empty or full; ignored by {@link #LINKED}.
+     * @param <E>          The element type.
+     * @return The new queue.
+     */
+    public abstract <E> BlockingQueue<E> create(int capacity, WaitStrategy waitStrategy);
+}
@@ -0,0 +1,281 @@
+package com.company.player.singlepid;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, single-producer/single-consumer ring buffer that can be used wherever the
+ * players expect a {@link BlockingQueue}. Slots are preallocated once, so a hand-off neither allocates
+ * a node nor takes a lock; waiting on an empty or full buffer is delegated to a {@link WaitStrategy}.
+ * <p>
+ * Only one thread may offer and only one thread may poll at any point in time. Handing either role over
+ * to another thread is allowed as long as the hand-over itself is ordered, which is the case for the
+ * player conversation: the initial message is put by the main thread before the peer has replied.
+ * <p>
+ * Note: The capacity is rounded up to the next power of two.
+ *
+ * @param <E> The type of elements held in this buffer.
+ * @author priyanshu
+ */
+public final class SpscRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Object[] buffer;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Index of the next slot to read, written by the consumer only.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Index of the next slot to write, written by the producer only.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Producer-side copy of {@link #head}; may lag behind, which only makes the buffer look fuller.
+     */
+    private long cachedHead;
+
+    /**
+     * Consumer-side copy of {@link #tail}; may lag behind, which only makes the buffer look emptier.
+     */
+    private long cachedTail;
+
+    private volatile Thread parkedConsumer;
+    private volatile Thread parkedProducer;
+
+    /**
+     * Creates a ring buffer with at least the requested capacity.
+     *
+     * @param capacity     The minimum number of elements the buffer can hold.
+     * @param waitStrategy How blocked producers and consumers wait.
+     */
+    public SpscRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+    }
+
+    /**
+     * Inserts the element if a slot is free. Producer side only.
+     *
+     * @param e The element to add.
+     * @return {@code true} if the element was added, {@code false} if the buffer is full.
+     */
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e, "element");
+        long currentTail = tail.getPlain();
+        if (currentTail - cachedHead >= buffer.length) {
+            cachedHead = head.getAcquire();
+            if (currentTail - cachedHead >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) currentTail & mask] = e;
+        publish(tail, currentTail + 1);
+        unpark(parkedConsumer);
+        return true;
+    }
+
+    /**
+     * Removes and returns the oldest element if there is one. Consumer side only.
+     *
+     * @return The oldest element, or {@code null} if the buffer is empty.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long currentHead = head.getPlain();
+        if (currentHead >= cachedTail) {
+            cachedTail = tail.getAcquire();
+            if (currentHead >= cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) currentHead & mask;
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        publish(head, currentHead + 1);
+        unpark(parkedProducer);
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long currentHead = head.getPlain();
+        if (currentHead >= tail.getAcquire()) {
+            return null;
+        }
+        return (E) buffer[(int) currentHead & mask];
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        int idleCount = 0;
+        while (!offer(e)) {
+            idleCount = awaitProducer(idleCount);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idleCount = 0;
+        while (!offer(e)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            idleCount = awaitProducer(idleCount);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int idleCount = 0;
+        E e;
+        while ((e = poll()) == null) {
+            idleCount = awaitConsumer(idleCount);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idleCount = 0;
+        E e;
+        while ((e = poll()) == null) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            idleCount = awaitConsumer(idleCount);
+        }
+        return e;
+    }
+
+    @Override
+    public int size() {
+        long size = tail.getAcquire() - head.getAcquire();
+        return (int) Math.max(0, Math.min(size, buffer.length));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c, "collection");
+        if (c == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null) {
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Returns a weakly consistent snapshot of the buffered elements, intended for diagnostics only.
+     * The iterator does not support removal.
+     *
+     * @return An iterator over the elements present when this method was called.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long from = head.getAcquire();
+        long to = tail.getAcquire();
+        for (long i = from; i < to; i++) {
+            Object e = buffer[(int) i & mask];
+            if (e != null) {
+                snapshot.add((E) e);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private int awaitProducer(int idleCount) throws InterruptedException {
+        if (waitStrategy.parks()) {
+            parkedProducer = Thread.currentThread();
+            // Re-check after registering, the consumer may have freed a slot before it could see us
+            if (tail.getPlain() - head.get() >= buffer.length) {
+                idle(idleCount);
+            }
+            parkedProducer = null;
+        } else {
+            idle(idleCount);
+        }
+        return idleCount + 1;
+    }
+
+    private int awaitConsumer(int idleCount) throws InterruptedException {
+        if (waitStrategy.parks()) {
+            parkedConsumer = Thread.currentThread();
+            // Re-check after registering, the producer may have published before it could see us
+            if (head.getPlain() >= tail.get()) {
+                idle(idleCount);
+            }
+            parkedConsumer = null;
+        } else {
+            idle(idleCount);
+        }
+        return idleCount + 1;
+    }
+
+    /**
+     * Advances an index. A release store is enough for the spinning strategies; when the other side
+     * may park, a volatile store orders the index before the waiter check so no wake-up is lost.
+     */
+    private void publish(AtomicLong index, long value) {
+        if (waitStrategy.parks()) {
+            index.set(value);
+        } else {
+            index.setRelease(value);
+        }
+    }
+
+    private void idle(int idleCount) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        waitStrategy.idle(idleCount);
+    }
+
+    private static void unpark(Thread waiter) {
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
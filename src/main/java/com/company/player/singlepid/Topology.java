@@ -0,0 +1,108 @@
+package com.company.player.singlepid;
+
+/**
+ * The layouts in which a {@link TopologySimulation} connects its players. Each layout wires the players'
+ * routes and opens the initial conversations; from then on every player answers each message it receives.
+ *
+ * @author priyanshu
+ */
+public enum Topology {
+
+    /**
+     * Every player replies to its successor, the last one to the first. The first player starts a single
+     * message travelling round the ring, so only one player is busy at a time.
+     */
+    RING {
+        @Override
+        void wire(Player[] players) {
+            for (int i = 0; i < players.length; i++) {
+                players[i].joinTopology(i, players.length, 1);
+                players[i].setOutgoingQueue(players[(i + 1) % players.length].getIncomingQueue());
+            }
+        }
+
+        @Override
+        void start(Player[] players, String initialMessage) {
+            players[0].sendMessage(initialMessage);
+        }
+
+        @Override
+        boolean hasSingleProducerQueues() {
+            return true;
+        }
+    },
+
+    /**
+     * The first player is the hub and starts a ping-pong conversation with each of the others.
+     */
+    STAR {
+        @Override
+        void wire(Player[] players) {
+            players[0].joinTopology(0, players.length, players.length - 1);
+            for (int i = 1; i < players.length; i++) {
+                players[i].joinTopology(i, players.length, 1);
+            }
+        }
+
+        @Override
+        void start(Player[] players, String initialMessage) {
+            for (int i = 1; i < players.length; i++) {
+                players[0].sendMessage(players[i], initialMessage);
+            }
+        }
+
+        @Override
+        boolean hasSingleProducerQueues() {
+            return false;
+        }
+    },
+
+    /**
+     * Every pair of players holds its own ping-pong conversation, started by the player with the lower index.
+     */
+    ALL_TO_ALL {
+        @Override
+        void wire(Player[] players) {
+            for (int i = 0; i < players.length; i++) {
+                players[i].joinTopology(i, players.length, players.length - 1);
+            }
+        }
+
+        @Override
+        void start(Player[] players, String initialMessage) {
+            for (int i = 0; i < players.length; i++) {
+                for (int j = i + 1; j < players.length; j++) {
+                    players[i].sendMessage(players[j], initialMessage);
+                }
+            }
+        }
+
+        @Override
+        boolean hasSingleProducerQueues() {
+            return false;
+        }
+    };
+
+    /**
+     * Assigns the players their positions and routes. Must be called before any player starts.
+     *
+     * @param players The players, at least two.
+     */
+    abstract void wire(Player[] players);
+
+    /**
+     * Sends the messages that open the conversations.
+     *
+     * @param players        The wired players.
+     * @param initialMessage The text of the opening messages.
+     */
+    abstract void start(Player[] players, String initialMessage);
+
+    /**
+     * Tells whether every player receives from a single other player, which a {@link QueueType#SPSC}
+     * queue requires.
+     *
+     * @return {@code true} if each incoming queue has one producer.
+     */
+    abstract boolean hasSingleProducerQueues();
+}
@@ -0,0 +1,121 @@
+package com.company.player.singlepid;
+
+/**
+ * Runs one {@link Topology} of players in one process on a {@link PlayerScheduler}. Every conversation is
+ * a full mode ping-pong in which each side answers {@code maxMessages} messages; in a ring the single
+ * message travelling round counts as one conversation per player.
+ * <p>
+ * Running the same topology with a growing number of players or workers shows how the throughput scales
+ * with parallelism and with the cost of hand-offs between cores.
+ *
+ * @author priyanshu
+ */
+public final class TopologySimulation {
+
+    private static final String INITIAL_MESSAGE = "[Hello!]";
+
+    private final Topology topology;
+    private final int players;
+    private final int maxMessages;
+    private final QueueType queueType;
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final int workers;
+
+    /**
+     * Configures a simulation.
+     *
+     * @param topology     How the players are connected.
+     * @param players      The number of players, at least two.
+     * @param maxMessages  The number of messages each player answers per conversation.
+     * @param queueType    The queue the players receive on; {@link QueueType#SPSC} only where each queue has one producer.
+     * @param capacity     The capacity of bounded queues.
+     * @param waitStrategy How idle workers wait.
+     * @param workers      The number of worker threads.
+     */
+    public TopologySimulation(Topology topology, int players, int maxMessages, QueueType queueType, int capacity,
+                              WaitStrategy waitStrategy, int workers) {
+        if (players < 2) {
+            throw new IllegalArgumentException("a topology needs at least two players: " + players);
+        }
+        if (queueType == QueueType.SPSC && !topology.hasSingleProducerQueues()) {
+            throw new IllegalArgumentException(topology + " players receive from several players; use --queue=linked");
+        }
+        if (waitStrategy == WaitStrategy.BUSY_SPIN && workers > Runtime.getRuntime().availableProcessors()) {
+            throw new IllegalArgumentException("busy-spin needs a core per worker; use yield or park");
+        }
+        this.topology = topology;
+        this.players = players;
+        this.maxMessages = maxMessages;
+        this.queueType = queueType;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.workers = workers;
+    }
+
+    /**
+     * Builds and wires the players, opens the conversations and runs the players until all are done.
+     *
+     * @return The result.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public Result run() throws InterruptedException {
+        // The scheduler never blocks in a queue, so a parking queue would only pay for unparks
+        WaitStrategy queueWait = waitStrategy == WaitStrategy.PARK ? WaitStrategy.YIELD : waitStrategy;
+        Player[] wired = new Player[players];
+        for (int i = 0; i < players; i++) {
+            wired[i] = new Player(topology + "-" + i, maxMessages, queueType.create(capacity, queueWait));
+        }
+        topology.wire(wired);
+
+        long start = System.nanoTime();
+        topology.start(wired, INITIAL_MESSAGE);
+        new PlayerScheduler(workers, waitStrategy).run(wired);
+        long elapsed = System.nanoTime() - start;
+
+        long messages = 0;
+        for (Player player : wired) {
+            messages += player.getMessageCount();
+        }
+        return new Result(topology, players, Math.min(workers, players), messages, elapsed);
+    }
+
+    /**
+     * The outcome of a simulation: the number of replies and the throughput.
+     */
+    public static final class Result {
+        private final Topology topology;
+        private final int players;
+        private final int workers;
+        private final long messages;
+        private final long elapsedNanos;
+
+        Result(Topology topology, int players, int workers, long messages, long elapsedNanos) {
+            this.topology = topology;
+            this.players = players;
+            this.workers = workers;
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The number of replies sent by all players per second.
+         */
+        public double messagesPerSecond() {
+            return messages * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return The number of worker threads that ran the players.
+         */
+        public int getWorkers() {
+            return workers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s of %d players on %d workers: %d messages in %.1f ms, %.0f messages/s",
+                    topology, players, workers, messages, elapsedNanos / 1e6, messagesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.company.player.singlepid;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how a thread waits while a {@link SpscRingBuffer} is empty (consumer) or full (producer).
+ * The strategies trade CPU usage for hand-off latency:
+ * <ul>
+ *     <li>{@link #BUSY_SPIN} keeps the core hot and reacts within nanoseconds, burning a full core while idle.
+ *     It needs a core per spinning thread; on an oversubscribed machine it starves the very thread it waits for.</li>
+ *     <li>{@link #YIELD} spins briefly and then gives the core away with {@link Thread#yield()}.</li>
+ *     <li>{@link #PARK} spins briefly and then parks; the other side unparks the waiter as soon as it makes progress.</li>
+ * </ul>
+ *
+ * @author priyanshu
+ */
+public enum WaitStrategy {
+
+    BUSY_SPIN {
+        @Override
+        void idle(int idleCount) {
+            Thread.onSpinWait();
+        }
+    },
+
+    YIELD {
+        @Override
+        void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    PARK {
+        @Override
+        void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                // Bounded as a safety net; the other side unparks the waiter as soon as it makes progress
+                LockSupport.parkNanos(MAX_PARK_NANOS);
+            }
+        }
+    };
+
+    /**
+     * Number of idle rounds spent spinning before yielding or parking.
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * Upper bound of a single park.
+     */
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    /**
+     * Waits once. Called repeatedly while the awaited condition does not hold.
+     *
+     * @param idleCount How many times the caller already idled for the current condition.
+     */
+    abstract void idle(int idleCount);
+
+    /**
+     * Tells whether this strategy may park, in which case the other side has to unpark the waiter.
+     *
+     * @return {@code true} for {@link #PARK}.
+     */
+    boolean parks() {
+        return this == PARK;
+    }
+}
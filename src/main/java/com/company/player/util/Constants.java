@@ -17,11 +17,126 @@ public final class Constants {
      */
     public static final int MAX_MESSAGES = 10;
 
+    /**
+     * Default number of slots of a bounded in-process message queue.
+     */
+    public static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default number of player pairs run concurrently by the pairs simulation.
+     */
+    public static final int SIMULATED_PAIRS = 10_000;
+
+    /**
+     * Default queue capacity of a simulated pair; a ping-pong never has more than one message in flight.
+     */
+    public static final int PAIR_QUEUE_CAPACITY = 4;
+
+    /**
+     * Default number of sessions a load generation run without a duration runs.
+     */
+    public static final long LOAD_SESSIONS = 1000;
+
+    /**
+     * Default number of sessions the load generator runs at once.
+     */
+    public static final int LOAD_CONCURRENCY = 16;
+
+    /**
+     * Default period in seconds of the load generator's progress reports.
+     */
+    public static final long LOAD_REPORT_INTERVAL_SECONDS = 10;
+
+    /**
+     * Default number of players in a single process topology.
+     */
+    public static final int TOPOLOGY_PLAYERS = 8;
+
+    /**
+     * Default number of sessions the session engine runs in mode 9.
+     */
+    public static final int ENGINE_SESSIONS = 100;
+
+    /**
+     * Default time in milliseconds the launcher waits for the server process to become ready.
+     */
+    public static final long READY_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Default size in bytes of a journal segment file.
+     */
+    public static final int JOURNAL_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Default number of journal records appended between two flushes to disk.
+     */
+    public static final int JOURNAL_FLUSH_RECORDS = 1024;
+
+    /**
+     * Default number of delta messages between two conversation checksums.
+     */
+    public static final int CHECKSUM_INTERVAL = 64;
+
+    /**
+     * Number of records the asynchronous logger buffers before callers have to wait for the writer.
+     */
+    public static final int LOG_BUFFER_CAPACITY = 1024;
+
+    /**
+     * Default period in milliseconds of the metrics reports written to a file.
+     */
+    public static final long METRICS_INTERVAL_MILLIS = 1000;
+
     /**
      * Port number used for establishing the server-initiator connection.
      */
     public static final int PORT = 8080;
 
+    /**
+     * Maximum number of pending connections queued by the multi-session server.
+     */
+    public static final int ACCEPT_BACKLOG = 1024;
+
+    /**
+     * Default path of the Unix domain socket transport.
+     */
+    public static final String UDS_PATH = System.getProperty("java.io.tmpdir") + "/player-session.sock";
+
+    /**
+     * Default file mapped by both processes of the shared memory transport.
+     */
+    public static final String SHM_FILE = System.getProperty("java.io.tmpdir") + "/player-session.shm";
+
+    /**
+     * Default number of slots per direction of the shared memory transport.
+     */
+    public static final int SHM_SLOTS = 8;
+
+    /**
+     * Default slot size in bytes of the shared memory transport; a frame must fit into one slot.
+     */
+    public static final int SHM_SLOT_SIZE = 64 * 1024;
+
+    /**
+     * Default time in milliseconds the UDP transport waits for an acknowledgement before it retransmits.
+     */
+    public static final long UDP_RETRANSMIT_MILLIS = 10;
+
+    /**
+     * Default number of datagrams the UDP transport sends ahead of the peer's acknowledgements.
+     */
+    public static final int UDP_WINDOW = 64;
+
+    /**
+     * Time in milliseconds after which a UDP peer that has sent nothing is considered gone.
+     */
+    public static final long UDP_PEER_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Default number of points each shard of a sharded deployment has on the hash ring.
+     */
+    public static final int SHARD_VIRTUAL_NODES = 160;
+
     /**
      * Host address for the server connection.
      */
@@ -37,6 +152,16 @@ public final class Constants {
      */
     public static final String PLAYER_2 = "Server";
 
+    /**
+     * Wire id of the initiator side player.
+     */
+    public static final short PLAYER_1_ID = 1;
+
+    /**
+     * Wire id of the server side player.
+     */
+    public static final short PLAYER_2_ID = 2;
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
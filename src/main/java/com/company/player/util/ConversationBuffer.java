@@ -0,0 +1,107 @@
+package com.company.player.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One side's copy of a conversation in {@link ProtocolMode#DELTA} mode. Every transmitted or received
+ * suffix is appended here, and a CRC32 over the UTF-8 encoding of the whole conversation is updated
+ * incrementally, so appending costs time proportional to the suffix only.
+ * <p>
+ * Both players of a session hold an instance; their checksums are equal whenever they have seen the
+ * same suffixes, which lets the peers verify integrity without resending the conversation.
+ * <p>
+ * Note: This class is not thread-safe; each player owns its buffer.
+ *
+ * @author priyanshu
+ */
+public final class ConversationBuffer {
+
+    private final StringBuilder text = new StringBuilder();
+    private final CRC32 crc = new CRC32();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private long appended;
+
+    /**
+     * Appends a suffix to the conversation and folds it into the checksum.
+     *
+     * @param suffix The text appended by the latest message.
+     */
+    public void append(CharSequence suffix) {
+        CharBuffer chars;
+        if (suffix instanceof TextBuffer) {
+            // Reuse the text's own view instead of wrapping it
+            ((TextBuffer) suffix).appendTo(text);
+            chars = ((TextBuffer) suffix).asCharBuffer();
+        } else {
+            text.append(suffix);
+            chars = CharBuffer.wrap(suffix);
+        }
+        appended++;
+        encoder.reset();
+        CoderResult result;
+        do {
+            scratch.clear();
+            result = encoder.encode(chars, scratch, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(scratch);
+            }
+            scratch.flip();
+            crc.update(scratch);
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Forgets the conversation so the buffer can be reused for a new session.
+     */
+    public void clear() {
+        text.setLength(0);
+        crc.reset();
+        appended = 0;
+    }
+
+    /**
+     * Returns the checksum of the whole conversation.
+     *
+     * @return The CRC32 of the UTF-8 encoded conversation.
+     */
+    public int checksum() {
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the number of suffixes appended so far.
+     *
+     * @return The number of appended messages.
+     */
+    public long appendedCount() {
+        return appended;
+    }
+
+    /**
+     * Returns the length of the conversation.
+     *
+     * @return The number of characters in the conversation.
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Materializes the whole conversation. This copies the text, so it is meant for the end of a session.
+     *
+     * @return The conversation as a {@link String}.
+     */
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.company.player.util;
+
+/**
+ * The severities understood by {@link Logger}, from the most to the least verbose.
+ * A record is written if its level is at least the configured threshold.
+ *
+ * @author priyanshu
+ */
+public enum LogLevel {
+
+    /**
+     * The per-message trace of a conversation.
+     */
+    DEBUG,
+
+    /**
+     * Progress of the application: start-up, session end, results.
+     */
+    INFO,
+
+    /**
+     * Recoverable problems, e.g. a failed session or a resource that could not be closed.
+     */
+    WARN,
+
+    /**
+     * Failures that end the run.
+     */
+    ERROR,
+
+    /**
+     * Threshold only: writes nothing.
+     */
+    OFF;
+
+    /**
+     * Tells whether a record of this level passes the given threshold.
+     *
+     * @param threshold The configured threshold.
+     * @return {@code true} if the record is written.
+     */
+    boolean passes(LogLevel threshold) {
+        return this != OFF && compareTo(threshold) >= 0;
+    }
+}
@@ -1,10 +1,30 @@
 package com.company.player.util;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Utility Logger class for logging messages to the console. This class provides a
  * centralized way to log messages, making it easier to manage logging throughout the application.
- * Currently, it logs messages to the standard output but can be extended to include different
- * logging mechanisms such as logging to a file or integrating with logging frameworks in the future.
+ * <p>
+ * Logging is asynchronous: a call only checks the {@link LogLevel}, claims a slot in a bounded ring
+ * buffer and stores references to its arguments. A background writer thread concatenates the record,
+ * writes it to the standard output or a file and flushes once per batch, so console I/O no longer
+ * paces the conversation. Records below the threshold return before any work is done, and the
+ * two-argument variants let callers skip the string concatenation altogether.
+ * <p>
+ * The ring buffer accepts records from any number of threads. When it is full, callers wait for the
+ * writer instead of dropping records. Pending records are written by a shutdown hook, including on
+ * {@link System#exit(int)}.
  * <p>
  * Note: This class is designed with static methods for ease of use without requiring instantiation.
  *
@@ -12,23 +32,268 @@ package com.company.player.util;
  */
 public class Logger {
 
+    private static final String PID_PREFIX = "PID {" + ProcessHandle.current().pid() + "} ";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final int BUFFER_CAPACITY = Constants.LOG_BUFFER_CAPACITY;
+    private static final int MASK = BUFFER_CAPACITY - 1;
+    private static final int FLUSH_BATCH = 256;
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+    private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Slot {@code i} is free for the record with sequence {@code s} when it holds {@code s}, and holds
+     * {@code s + 1} once that record has been published.
+     */
+    private static final AtomicLongArray sequences = new AtomicLongArray(BUFFER_CAPACITY);
+    private static final String[] texts = new String[BUFFER_CAPACITY];
+    private static final Object[] values = new Object[BUFFER_CAPACITY];
+    private static final boolean[] withPid = new boolean[BUFFER_CAPACITY];
+
+    /**
+     * Sequence of the next record to claim, shared by all logging threads.
+     */
+    private static final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Sequence of the next record to write; only advanced by the writer.
+     */
+    private static long head;
+
+    /**
+     * Number of records the writer has written and flushed.
+     */
+    private static final AtomicLong flushed = new AtomicLong();
+
+    private static volatile LogLevel level = LogLevel.DEBUG;
+    private static volatile Writer pendingSink;
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < BUFFER_CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+        writer = new Thread(Logger::drain, "logger-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::flush, "logger-flush"));
+    }
+
     /**
-     * Logs a message to the console.
+     * Logs a message to the console at {@link LogLevel#INFO}.
      *
      * @param message The message to be logged.
      */
     public static void log(String message) {
-        System.out.println(message);
+        log(LogLevel.INFO, message);
     }
 
     /**
-     * Logs a message to the console along with the PID
+     * Logs a message to the console at the given level.
      *
+     * @param level   The severity of the message.
      * @param message The message to be logged.
      */
-    public static void logWithPid(String message){
-        long pid = ProcessHandle.current().pid();
-        System.out.println("PID {"+pid+"} "+message);
+    public static void log(LogLevel level, String message) {
+        if (level.passes(Logger.level)) {
+            enqueue(message, null, false);
+        }
+    }
+
+    /**
+     * Logs a message to the console along with the PID at {@link LogLevel#DEBUG}.
+     *
+     * @param message The message to be logged.
+     */
+    public static void logWithPid(String message) {
+        if (LogLevel.DEBUG.passes(level)) {
+            enqueue(message, null, true);
+        }
+    }
+
+    /**
+     * Logs {@code prefix + value} along with the PID at {@link LogLevel#DEBUG}. The concatenation happens
+     * on the writer thread, so a disabled or busy caller does not allocate.
+     *
+     * @param prefix The constant part of the message.
+     * @param value  The variable part; must be immutable, e.g. a {@link String}, as it is read later.
+     */
+    public static void logWithPid(String prefix, Object value) {
+        if (LogLevel.DEBUG.passes(level)) {
+            enqueue(prefix, value, true);
+        }
+    }
+
+    /**
+     * Tells whether records of the given level are currently written, for callers that have to
+     * do work before they can log.
+     *
+     * @param level The level of the record.
+     * @return {@code true} if such a record would be written.
+     */
+    public static boolean isEnabled(LogLevel level) {
+        return level.passes(Logger.level);
+    }
+
+    /**
+     * Sets the threshold below which records are discarded.
+     *
+     * @param level The least severe level that is still written.
+     */
+    public static void setLevel(LogLevel level) {
+        Logger.level = level;
+    }
+
+    /**
+     * Enables or disables the per-message trace written by {@link #logWithPid(String)}.
+     * Benchmarks switch it off so that logging does not dominate the measurement.
+     *
+     * @param enabled {@code true} to print every exchanged message, {@code false} to drop them.
+     */
+    public static void setMessageLoggingEnabled(boolean enabled) {
+        setLevel(enabled ? LogLevel.DEBUG : LogLevel.INFO);
+    }
+
+    /**
+     * Writes all subsequent records to the given file instead of the console. The file is appended to.
+     * Records logged before this call are written to the previous sink.
+     *
+     * @param file The log file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static void setFile(Path file) throws IOException {
+        Writer sink = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        flush();
+        pendingSink = sink;
+        LockSupport.unpark(writer);
+        while (pendingSink != null) {
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Blocks until every record logged before this call has been written and flushed, or a few
+     * seconds have passed.
+     */
+    public static void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (flushed.get() < target && System.nanoTime() - deadline < 0) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Claims the next slot, waiting for the writer if the buffer is full, and publishes the record.
+     */
+    private static void enqueue(String text, Object value, boolean pid) {
+        long sequence = tail.get();
+        int index;
+        while (true) {
+            index = (int) sequence & MASK;
+            long available = sequences.getAcquire(index) - sequence;
+            if (available == 0) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                // Full: the writer has not freed this slot yet
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+            sequence = tail.get();
+        }
+        texts[index] = text;
+        values[index] = value;
+        withPid[index] = pid;
+        sequences.setRelease(index, sequence + 1);
+        if ((sequence & (FLUSH_BATCH - 1)) == FLUSH_BATCH - 1) {
+            // Wake the writer once per batch rather than per record; it also wakes up by itself
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * The writer loop: writes published records in order and flushes after a batch or when idle.
+     * The writer sleeps for short periods and is woken early once a batch is waiting, so neither the
+     * callers nor the writer pay a system call per record.
+     */
+    private static void drain() {
+        Writer console = new BufferedWriter(new OutputStreamWriter(System.out), WRITER_BUFFER_SIZE);
+        Writer sink = console;
+        int unflushed = 0;
+        while (true) {
+            Writer replacement = pendingSink;
+            if (replacement != null) {
+                flush(sink);
+                if (sink != console) {
+                    close(sink);
+                }
+                sink = replacement;
+                pendingSink = null;
+            }
+            int index = (int) head & MASK;
+            if (sequences.getAcquire(index) == head + 1) {
+                write(sink, index);
+                texts[index] = null;
+                values[index] = null;
+                sequences.setRelease(index, head + BUFFER_CAPACITY);
+                head++;
+                if (++unflushed >= FLUSH_BATCH) {
+                    flush(sink);
+                    unflushed = 0;
+                }
+                continue;
+            }
+            if (unflushed > 0) {
+                flush(sink);
+                unflushed = 0;
+            }
+            LockSupport.parkNanos(WRITER_PARK_NANOS);
+        }
+    }
+
+    private static void write(Writer sink, int index) {
+        try {
+            if (withPid[index]) {
+                sink.write(PID_PREFIX);
+            }
+            sink.write(String.valueOf(texts[index]));
+            Object value = values[index];
+            if (value != null) {
+                sink.write(String.valueOf(value));
+            }
+            sink.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+            // Nowhere left to report to but standard error; the record is dropped so that callers never block
+            System.err.println("Logger failed to write: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // E.g. a logged value whose toString() throws; the writer thread must survive it, or producers block
+            System.err.println("Logger failed to format a record: " + e);
+        }
+    }
+
+    /**
+     * Flushes the sink and marks every record written so far as flushed.
+     */
+    private static void flush(Writer sink) {
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            System.err.println("Logger failed to flush: " + e.getMessage());
+        }
+        flushed.set(head);
+    }
+
+    private static void close(Writer sink) {
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Logger failed to close its file: " + e.getMessage());
+        }
     }
 
     /**
@@ -0,0 +1,88 @@
+package com.company.player.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the {@link SessionMetrics} of a session. If {@link MetricsSettings#getFile()} is set, a daemon
+ * thread appends a report to the file every {@link MetricsSettings#getIntervalMillis()} milliseconds.
+ * {@link #close()} writes the final report to the file and the {@link Logger}.
+ * <p>
+ * A reporter for disabled settings does nothing.
+ *
+ * @author priyanshu
+ */
+public final class MetricsReporter implements Closeable {
+
+    private final MetricsSettings settings;
+    private final SessionMetrics[] metrics;
+    private final ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    /**
+     * Creates a reporter and starts the periodic reports.
+     *
+     * @param settings Whether and where to report.
+     * @param metrics  The metrics of the players of the session.
+     */
+    public MetricsReporter(MetricsSettings settings, SessionMetrics... metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        if (settings.isEnabled() && settings.getFile() != null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::writeInterval, settings.getIntervalMillis(),
+                    settings.getIntervalMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Stops the periodic reports and writes the final one. Further calls do nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed || !settings.isEnabled()) {
+            return;
+        }
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            write("final");
+        }
+        for (SessionMetrics metric : metrics) {
+            Logger.log(metric.report());
+        }
+    }
+
+    private synchronized void writeInterval() {
+        if (!closed) {
+            write("interval");
+        }
+    }
+
+    private void write(String phase) {
+        StringBuilder lines = new StringBuilder();
+        String now = Instant.now().toString();
+        for (SessionMetrics metric : metrics) {
+            lines.append(now).append(' ').append(phase).append(' ').append(metric.report()).append(System.lineSeparator());
+        }
+        try {
+            Files.write(settings.getFile(), lines.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Logger.log(LogLevel.WARN, "Could not write metrics to " + settings.getFile() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.company.player.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Whether the players measure their conversation and where the measurements are reported.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author priyanshu
+ */
+public final class MetricsSettings {
+
+    private final boolean enabled;
+    private final Path file;
+    private final long intervalMillis;
+    private final long launchedAt;
+
+    /**
+     * Creates metrics settings.
+     *
+     * @param enabled        Whether latencies and counters are recorded.
+     * @param file           The file reports are appended to, or {@code null} to report at session end only.
+     * @param intervalMillis The period of the reports written to {@code file}.
+     * @param launchedAt     The wall clock time in epoch nanoseconds at which a launcher started the session's
+     *                       processes, or {@code 0} if they were started by hand.
+     */
+    public MetricsSettings(boolean enabled, Path file, long intervalMillis, long launchedAt) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        }
+        this.enabled = enabled;
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.launchedAt = launchedAt;
+    }
+
+    /**
+     * Returns settings that record nothing.
+     *
+     * @return The disabled settings.
+     */
+    public static MetricsSettings disabled() {
+        return new MetricsSettings(false, null, Constants.METRICS_INTERVAL_MILLIS, 0L);
+    }
+
+    /**
+     * Reads the settings from the command line: {@code --metrics=true|false}, {@code --metrics-file=<path>}
+     * (implies {@code --metrics=true}), {@code --metrics-interval=<millis>} and {@code --launched-at=<epoch nanos>},
+     * which the launcher passes to the processes it starts.
+     *
+     * @param options The command line options.
+     * @return The settings, with defaults for absent options.
+     */
+    public static MetricsSettings from(Options options) {
+        Path file = options.has("metrics-file") ? Paths.get(options.get("metrics-file", null)) : null;
+        return new MetricsSettings(
+                options.getBoolean("metrics", file != null),
+                file,
+                options.getLong("metrics-interval", Constants.METRICS_INTERVAL_MILLIS),
+                options.getLong("launched-at", 0L));
+    }
+
+    /**
+     * @return Whether latencies and counters are recorded.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The report file, or {@code null}.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The period of the file reports in milliseconds.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @return The wall clock time in epoch nanoseconds at which the session's processes were launched, or {@code 0}.
+     */
+    public long getLaunchedAt() {
+        return launchedAt;
+    }
+}
@@ -0,0 +1,169 @@
+package com.company.player.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the optional {@code --key=value} arguments that follow the mode argument on the command line.
+ * A bare {@code --flag} is stored as {@code true}. Lookups fall back to the supplied default when an
+ * option was not given, so every option stays optional and the plain {@code 1}/{@code 2} invocations
+ * keep their behaviour.
+ *
+ * @author priyanshu
+ */
+public final class Options {
+
+    private final Map<String, String> values;
+
+    private Options(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Parses the command line. The first argument is the mode and is skipped.
+     *
+     * @param args The raw command line arguments.
+     * @return The parsed options.
+     * @throws IllegalArgumentException If an argument does not start with {@code --}.
+     */
+    public static Options parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || arg.length() == 2) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return new Options(values);
+    }
+
+    /**
+     * Tells whether an option was given.
+     *
+     * @param key The option name without the leading dashes.
+     * @return {@code true} if the option is present.
+     */
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Returns a string option.
+     *
+     * @param key          The option name without the leading dashes.
+     * @param defaultValue The value used when the option is absent.
+     * @return The option value.
+     */
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Returns an integer option.
+     *
+     * @param key          The option name without the leading dashes.
+     * @param defaultValue The value used when the option is absent.
+     * @return The option value.
+     * @throws IllegalArgumentException If the value is not an integer.
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + key + " expects an integer but got: " + value);
+        }
+    }
+
+    /**
+     * Returns a long option.
+     *
+     * @param key          The option name without the leading dashes.
+     * @param defaultValue The value used when the option is absent.
+     * @return The option value.
+     * @throws IllegalArgumentException If the value is not a number.
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + key + " expects a number but got: " + value);
+        }
+    }
+
+    /**
+     * Returns a comma separated list of integers, e.g. {@code --workers=1,2,4}.
+     *
+     * @param key           The option name without the leading dashes.
+     * @param defaultValues The values used when the option is absent.
+     * @return The option values.
+     * @throws IllegalArgumentException If an element is not an integer.
+     */
+    public int[] getIntList(String key, int... defaultValues) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValues;
+        }
+        String[] elements = value.split(",");
+        int[] result = new int[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            try {
+                result[i] = Integer.parseInt(elements[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--" + key + " expects comma separated integers but got: " + value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a boolean option. A bare {@code --flag} counts as {@code true}.
+     *
+     * @param key          The option name without the leading dashes.
+     * @param defaultValue The value used when the option is absent.
+     * @return The option value.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Returns an enum option. Values are matched case-insensitively and dashes stand for underscores,
+     * so {@code --wait=busy-spin} selects {@code BUSY_SPIN}.
+     *
+     * @param key          The option name without the leading dashes.
+     * @param defaultValue The value used when the option is absent.
+     * @param <E>          The enum type.
+     * @return The option value.
+     * @throws IllegalArgumentException If the value names no constant of the enum.
+     */
+    public <E extends Enum<E>> E getEnum(String key, E defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        String constant = value.replace('-', '_').toUpperCase(Locale.ROOT);
+        for (E candidate : defaultValue.getDeclaringClass().getEnumConstants()) {
+            if (candidate.name().equals(constant)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("--" + key + " does not accept: " + value);
+    }
+}
@@ -0,0 +1,21 @@
+package com.company.player.util;
+
+/**
+ * How the players transmit their replies.
+ *
+ * @author priyanshu
+ */
+public enum ProtocolMode {
+
+    /**
+     * Every reply carries the whole conversation so far. Simple, but the bytes sent per hop
+     * grow with the session, so a session costs O(n&sup2;).
+     */
+    FULL,
+
+    /**
+     * Every reply carries only the suffix it appends. Both sides rebuild the conversation in their own
+     * {@link ConversationBuffer} and compare checksums periodically, so a session costs O(n).
+     */
+    DELTA
+}
@@ -0,0 +1,136 @@
+package com.company.player.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The measurements one player takes during a conversation: how long a message travelled from the
+ * sender to this player (hop latency), how long this player waited for the reply to its own message
+ * (round trip), and how many messages it sent and received.
+ * <p>
+ * Latencies go into {@link LatencyHistogram}s and the counters are {@link LongAdder}s, so recording
+ * neither allocates nor contends with a reporter reading concurrently. A disabled instance ignores
+ * every call, which keeps the call sites free of conditionals.
+ *
+ * @author priyanshu
+ */
+public final class SessionMetrics {
+
+    private final String name;
+    private final boolean enabled;
+    private final long startNanos = System.nanoTime();
+    private final LatencyHistogram hopLatency = new LatencyHistogram();
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+
+    /**
+     * Creates the metrics of one player.
+     *
+     * @param name    The name used in reports.
+     * @param enabled Whether anything is recorded.
+     */
+    public SessionMetrics(String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the wall clock time in nanoseconds since the epoch, at the clock's resolution
+     * (typically microseconds). Unlike {@link System#nanoTime()} it is comparable between processes on
+     * the same machine, which is what a hop latency across processes needs.
+     *
+     * @return The current wall clock time.
+     */
+    public static long wallClockNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * @return Whether anything is recorded; callers skip taking timestamps otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts a sent message.
+     */
+    public void messageSent() {
+        if (enabled) {
+            sent.increment();
+        }
+    }
+
+    /**
+     * Counts a received message.
+     */
+    public void messageReceived() {
+        if (enabled) {
+            received.increment();
+        }
+    }
+
+    /**
+     * Records the time between the peer sending a message and this player receiving it.
+     *
+     * @param nanos The hop latency in nanoseconds.
+     */
+    public void recordHopLatency(long nanos) {
+        if (enabled) {
+            hopLatency.record(nanos);
+        }
+    }
+
+    /**
+     * Records the time between this player sending a message and receiving the reply to it.
+     *
+     * @param nanos The round-trip time in nanoseconds.
+     */
+    public void recordRoundTrip(long nanos) {
+        if (enabled) {
+            roundTrip.record(nanos);
+        }
+    }
+
+    /**
+     * @return The number of messages sent so far.
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return The number of messages received so far.
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return The hop latencies recorded so far.
+     */
+    public LatencyHistogram getHopLatency() {
+        return hopLatency;
+    }
+
+    /**
+     * @return The round-trip times recorded so far.
+     */
+    public LatencyHistogram getRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * Formats the counters, the message rate since creation and both histograms.
+     *
+     * @return A one-line report.
+     */
+    public String report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long receivedCount = received.sum();
+        return String.format("%s sent=%d received=%d rate=%.0f msg/s hop[%s] rtt[%s]", name, sent.sum(),
+                receivedCount, receivedCount / seconds, hopLatency, roundTrip);
+    }
+}
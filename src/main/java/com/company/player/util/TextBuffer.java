@@ -0,0 +1,308 @@
+package com.company.player.util;
+
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * A reusable, growable message text. A player keeps one instance for its whole session and rewrites it
+ * on every turn: the reply suffix, counter digits included, is appended in place and UTF-8 payloads are
+ * decoded straight into the backing array, so once the array has grown to the longest message a turn
+ * allocates nothing.
+ * <p>
+ * A {@link String} is only materialized when {@link #toString()} is called, e.g. by a log statement that
+ * is enabled, and is cached until the text changes.
+ * <p>
+ * Note: This class is not thread-safe; the text belongs to one player at a time.
+ *
+ * @author priyanshu
+ */
+public final class TextBuffer implements CharSequence, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final char[] REPLY_PREFIX = " [reply".toCharArray();
+    private static final int MAX_INT_DIGITS = 11;
+
+    private char[] chars;
+    private int length;
+    private transient String materialized;
+    private transient CharBuffer view;
+
+    /**
+     * Creates an empty text.
+     */
+    public TextBuffer() {
+        this.chars = new char[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a text holding a copy of the given characters.
+     *
+     * @param initial The initial text.
+     */
+    public TextBuffer(CharSequence initial) {
+        this.chars = new char[Math.max(INITIAL_CAPACITY, initial.length())];
+        append(initial);
+    }
+
+    /**
+     * Replaces the text with a copy of the given characters.
+     *
+     * @param text The new text; {@code null} clears the text.
+     * @return This text.
+     */
+    public TextBuffer setTo(CharSequence text) {
+        clear();
+        return text == null ? this : append(text);
+    }
+
+    /**
+     * Appends a copy of the given characters.
+     *
+     * @param text The text to append.
+     * @return This text.
+     */
+    public TextBuffer append(CharSequence text) {
+        int count = text.length();
+        ensureCapacity(length + count);
+        if (text instanceof TextBuffer) {
+            System.arraycopy(((TextBuffer) text).chars, 0, chars, length, count);
+        } else if (text instanceof String) {
+            ((String) text).getChars(0, count, chars, length);
+        } else {
+            for (int i = 0; i < count; i++) {
+                chars[length + i] = text.charAt(i);
+            }
+        }
+        length += count;
+        materialized = null;
+        return this;
+    }
+
+    /**
+     * Appends the suffix of a reply, {@code " [reply<counter>]"}, writing the digits directly instead of
+     * going through {@link Integer#toString(int)}.
+     *
+     * @param counter The message counter of the replying player.
+     * @return This text.
+     */
+    public TextBuffer appendReplySuffix(int counter) {
+        ensureCapacity(length + REPLY_PREFIX.length + MAX_INT_DIGITS + 1);
+        System.arraycopy(REPLY_PREFIX, 0, chars, length, REPLY_PREFIX.length);
+        length += REPLY_PREFIX.length;
+        appendDigits(counter);
+        chars[length++] = ']';
+        materialized = null;
+        return this;
+    }
+
+    /**
+     * Drops all but the last {@code count} characters, e.g. to cap the size of an ever-growing message.
+     *
+     * @param count The number of trailing characters to keep.
+     * @return This text.
+     */
+    public TextBuffer retainLast(int count) {
+        if (count < length) {
+            System.arraycopy(chars, length - count, chars, 0, count);
+            length = count;
+            materialized = null;
+        }
+        return this;
+    }
+
+    /**
+     * Empties the text, keeping the backing array for reuse.
+     *
+     * @return This text.
+     */
+    public TextBuffer clear() {
+        length = 0;
+        materialized = null;
+        return this;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the text to the target. ASCII text, the common case, is copied byte
+     * by byte; anything else goes through the given encoder.
+     *
+     * @param target  The buffer to write to.
+     * @param encoder A UTF-8 encoder that replaces malformed input; it is reset before use.
+     * @throws BufferOverflowException If the target is too small; its position is then undefined.
+     */
+    public void encodeUtf8(ByteBuffer target, CharsetEncoder encoder) {
+        if (target.remaining() < length) {
+            throw new BufferOverflowException(); // UTF-8 needs at least one byte per char
+        }
+        int start = target.position();
+        int ascii = 0;
+        if (target.hasArray()) {
+            byte[] bytes = target.array();
+            int offset = target.arrayOffset() + start;
+            while (ascii < length && chars[ascii] < 0x80) {
+                bytes[offset + ascii] = (byte) chars[ascii];
+                ascii++;
+            }
+        } else {
+            while (ascii < length && chars[ascii] < 0x80) {
+                target.put(start + ascii, (byte) chars[ascii]);
+                ascii++;
+            }
+        }
+        target.position(start + ascii);
+        if (ascii == length) {
+            return;
+        }
+        CharBuffer rest = view();
+        rest.limit(length).position(ascii);
+        encoder.reset();
+        CoderResult result = encoder.encode(rest, target, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(target);
+        }
+        if (result.isOverflow()) {
+            throw new BufferOverflowException();
+        }
+        if (result.isError()) {
+            // Unreachable with REPLACE actions, kept so that a changed action cannot go unnoticed
+            throw new IllegalStateException(new CharacterCodingException());
+        }
+    }
+
+    /**
+     * Replaces the text with the UTF-8 decoded remaining bytes of the source, which is consumed.
+     * ASCII input is widened byte by byte; anything else goes through the given decoder.
+     *
+     * @param source  The bytes to decode.
+     * @param decoder A UTF-8 decoder that replaces malformed input; it is reset before use.
+     */
+    public void decodeUtf8(ByteBuffer source, CharsetDecoder decoder) {
+        int count = source.remaining();
+        clear();
+        ensureCapacity(count); // UTF-8 never yields more chars than bytes
+        int start = source.position();
+        if (source.hasArray()) {
+            byte[] bytes = source.array();
+            int offset = source.arrayOffset() + start;
+            while (length < count && bytes[offset + length] >= 0) {
+                chars[length] = (char) bytes[offset + length];
+                length++;
+            }
+        } else {
+            byte b;
+            while (length < count && (b = source.get(start + length)) >= 0) {
+                chars[length++] = (char) b;
+            }
+        }
+        source.position(start + length);
+        if (length == count) {
+            return;
+        }
+        CharBuffer out = view();
+        out.limit(chars.length).position(length);
+        decoder.reset();
+        CoderResult result = decoder.decode(source, out, true);
+        if (result.isUnderflow()) {
+            decoder.flush(out);
+        }
+        length = out.position();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Returns a view of the characters for APIs that take a {@link CharBuffer}. The view is reused and
+     * only valid until the text changes.
+     *
+     * @return The view, positioned at the start and limited to the length of the text.
+     */
+    public CharBuffer asCharBuffer() {
+        CharBuffer buffer = view();
+        buffer.limit(length).position(0);
+        return buffer;
+    }
+
+    /**
+     * Appends the text to a builder without materializing it.
+     *
+     * @param builder The builder to append to.
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append(chars, 0, length);
+    }
+
+    /**
+     * Materializes the text, once per change.
+     *
+     * @return The text as a {@link String}.
+     */
+    @Override
+    public String toString() {
+        String text = materialized;
+        if (text == null) {
+            text = new String(chars, 0, length);
+            materialized = text;
+        }
+        return text;
+    }
+
+    private void appendDigits(int value) {
+        if (value < 0) {
+            chars[length++] = '-';
+            if (value == Integer.MIN_VALUE) {
+                String digits = Integer.toString(value).substring(1);
+                digits.getChars(0, digits.length(), chars, length);
+                length += digits.length();
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = length + digits;
+        for (int i = end - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            char[] grown = new char[Math.max(capacity, chars.length * 2)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+
+    private CharBuffer view() {
+        if (view == null || view.array() != chars) {
+            view = CharBuffer.wrap(chars);
+        }
+        return view;
+    }
+}
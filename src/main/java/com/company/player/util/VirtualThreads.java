@@ -0,0 +1,76 @@
+package com.company.player.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates thread-per-task executors backed by virtual threads when the running JVM supports them.
+ * The project is compiled for Java 17, so the Java 21 API is looked up reflectively; on older runtimes
+ * the executors fall back to platform threads, which limits how many tasks can block at once.
+ * <p>
+ * Note: This class is designed with static methods for ease of use without requiring instantiation.
+ *
+ * @author priyanshu
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookup();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private VirtualThreads() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Tells whether the running JVM provides virtual threads.
+     *
+     * @return {@code true} on Java 21 or later.
+     */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new thread for every task: a virtual thread if available,
+     * a platform thread otherwise.
+     *
+     * @return The executor; shut it down once all tasks are submitted.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot create a virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Creates an executor that runs at most {@code platformThreads} tasks at once when it has to fall back to
+     * platform threads: a virtual thread per task if available, a fixed pool of platform threads otherwise.
+     * Tasks beyond the pool wait in its queue rather than each holding a blocked thread.
+     *
+     * @param platformThreads The size of the fallback pool.
+     * @return The executor; shut it down once all tasks are submitted.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(int platformThreads) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            return newThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(platformThreads);
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.DatagramSocket;
+import java.net.ProtocolException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs {@link DatagramTransport} sessions over loopback against an echoing server thread and checks that
+ * every message arrives once and in order, also when both sides drop datagrams on purpose.
+ *
+ * @author priyanshu
+ */
+@Timeout(60)
+class DatagramTransportTest {
+
+    private final AtomicReference<Throwable> serverFailure = new AtomicReference<>();
+    private Thread server;
+    private Path readyFile;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void joinServer() throws InterruptedException {
+        if (server != null) {
+            server.join(TimeUnit.SECONDS.toMillis(20));
+            if (server.isAlive()) {
+                server.interrupt(); // Closes the channel of a server still waiting for its initiator
+                server.join();
+                fail("server did not finish its session");
+            }
+        }
+        assertNull(serverFailure.get(), () -> "server failed: " + serverFailure.get());
+    }
+
+    @Test
+    void pingPongSurvivesLoss() throws IOException {
+        TransportConfig config = config(new DatagramSettings(5, 8, 30));
+        startEchoServer(config);
+        DatagramTransport link = connect(config);
+        Player reply = new Player();
+        for (int i = 0; i < 200; i++) {
+            Player sent = player(i);
+            link.send(sent);
+            assertTrue(link.receive(reply), "server closed the link");
+            assertEquals(i, reply.getMessageCount().get());
+            assertEquals(sent.getMessage(), reply.getMessage());
+        }
+        assertTrue(link.getRetransmitted() > 0, "30% loss without a retransmission");
+        link.close();
+    }
+
+    @Test
+    void pipelinedFramesArriveInOrderDespiteLoss() throws IOException {
+        TransportConfig config = config(new DatagramSettings(5, 4, 20));
+        startEchoServer(config);
+        DatagramTransport link = connect(config);
+        int messages = 100;
+        for (int i = 0; i < messages; i++) {
+            link.write(player(i));
+            if (i % 5 == 4) {
+                link.flush(); // Five frames share a datagram; the window of four fills up and drains
+            }
+        }
+        Player reply = new Player();
+        for (int i = 0; i < messages; i++) {
+            assertTrue(link.receive(reply), "server closed the link");
+            assertEquals(i, reply.getMessageCount().get());
+        }
+        link.close();
+    }
+
+    @Test
+    void connectingWithoutAServerFails() throws IOException {
+        TransportConfig config = config(new DatagramSettings(5, 8, 0));
+        assertThrows(ConnectException.class, () -> config.connect(new FrameCodec()));
+    }
+
+    @Test
+    void rejectsAFrameLargerThanADatagram() throws IOException {
+        TransportConfig config = config(DatagramSettings.defaults());
+        startEchoServer(config);
+        DatagramTransport link = connect(config);
+        Player large = player(0);
+        large.setMessage("x".repeat(DatagramTransport.MAX_DATAGRAM_SIZE));
+        assertThrows(ProtocolException.class, () -> link.send(large));
+        link.close();
+    }
+
+    /**
+     * Connects once the server thread has bound its port. A hello sent before that would be answered by an
+     * ICMP error that may end a later handshake after the server has already taken this initiator.
+     */
+    private DatagramTransport connect(TransportConfig config) throws IOException {
+        while (!Files.exists(readyFile)) {
+            if (!server.isAlive()) {
+                fail("server ended before it was ready");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return (DatagramTransport) config.connect(new FrameCodec());
+    }
+
+    /**
+     * Starts a thread that accepts one initiator and echoes its messages until it closes the link.
+     */
+    private void startEchoServer(TransportConfig config) {
+        server = new Thread(() -> {
+            try (MessageTransport accepted = config.accept(new FrameCodec())) {
+                Player incoming = new Player();
+                while (accepted.receive(incoming)) {
+                    accepted.send(incoming);
+                }
+            } catch (Throwable t) {
+                serverFailure.set(t);
+            }
+        }, "datagram-echo-server");
+        server.start();
+    }
+
+    private TransportConfig config(DatagramSettings settings) throws IOException {
+        readyFile = directory.resolve("ready");
+        return TransportConfig.builder()
+                .type(TransportType.UDP)
+                .host("127.0.0.1")
+                .port(freePort())
+                .readyFile(readyFile)
+                .datagram(settings)
+                .build();
+    }
+
+    private static Player player(int count) {
+        Player player = new Player();
+        player.setId((short) 1);
+        player.getMessageCount().set(count);
+        player.setMessage("Hello! [reply" + count + "]");
+        return player;
+    }
+
+    private static int freePort() throws IOException {
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+import com.company.player.util.ProtocolMode;
+import org.junit.jupiter.api.Test;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips {@link FrameCodec} frames in every protocol variant and checks that malformed frames are
+ * rejected with a {@link ProtocolException}.
+ *
+ * @author priyanshu
+ */
+class FrameCodecTest {
+
+    private static final int FLAGS_OFFSET = FrameCodec.LENGTH_FIELD_SIZE;
+    private static final int CHECKSUM_OFFSET = FrameCodec.LENGTH_FIELD_SIZE + FrameCodec.HEADER_SIZE;
+
+    @Test
+    void roundTripsAFullFrame() throws ProtocolException {
+        Player sent = player(7, "Hello! [reply0] é€😀");
+        ByteBuffer frame = copy(new FrameCodec().encode(sent));
+        Player received = new Player();
+        assertTrue(new FrameCodec().decodeFrame(frame, received));
+        assertEquals(7, received.getMessageCount().get());
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getMessage(), received.getMessage());
+        assertEquals(0, received.getTimestamp());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void roundTripsTimestamps() throws ProtocolException {
+        FrameCodec encoder = new FrameCodec();
+        encoder.setTimestamps(true);
+        Player received = new Player();
+        new FrameCodec().decodeFrame(copy(encoder.encode(player(1, "Hello!"))), received);
+        assertNotEquals(0, received.getTimestamp());
+    }
+
+    @Test
+    void roundTripsDeltaFramesWithChecksums() throws ProtocolException {
+        FrameCodec encoder = new FrameCodec(ProtocolMode.DELTA, 2);
+        FrameCodec decoder = new FrameCodec(ProtocolMode.DELTA, 2);
+        Player received = new Player();
+        for (int i = 0; i < 10; i++) {
+            Player sent = player(i, " [reply" + i + "]");
+            decoder.decodeFrame(copy(encoder.encode(sent)), received);
+            assertEquals(sent.getMessage(), received.getMessage());
+        }
+        assertEquals(encoder.getConversation().toString(), decoder.getConversation().toString());
+    }
+
+    @Test
+    void roundTripsCompressedPayloads() throws ProtocolException {
+        FrameCodec encoder = new FrameCodec();
+        encoder.setCompression(new CompressionSettings(16, 1), new CompressionStats());
+        Player sent = player(3, "Hello! [reply0] [reply1] [reply2] [reply3] [reply4] [reply5] [reply6] [reply7]");
+        ByteBuffer frame = copy(encoder.encode(sent));
+        assertTrue((frame.get(FLAGS_OFFSET) & FrameCodec.FLAG_COMPRESSED) != 0);
+        Player received = new Player();
+        new FrameCodec().decodeFrame(frame, received);
+        assertEquals(sent.getMessage(), received.getMessage());
+    }
+
+    @Test
+    void waitsForTheRestOfAPartialFrame() throws ProtocolException {
+        ByteBuffer frame = copy(new FrameCodec().encode(player(1, "Hello!")));
+        ByteBuffer partial = frame.duplicate().limit(frame.limit() - 1);
+        assertFalse(new FrameCodec().decodeFrame(partial, new Player()));
+        assertEquals(0, partial.position());
+    }
+
+    @Test
+    void rejectsInvalidLengths() {
+        assertThrows(ProtocolException.class, () -> FrameCodec.checkLength(-1));
+        assertThrows(ProtocolException.class, () -> FrameCodec.checkLength(FrameCodec.HEADER_SIZE - 1));
+        assertThrows(ProtocolException.class, () -> FrameCodec.checkLength(FrameCodec.MAX_FRAME_LENGTH + 1));
+        ByteBuffer negative = ByteBuffer.allocate(16).putInt(0, Integer.MIN_VALUE);
+        assertThrows(ProtocolException.class, () -> FrameCodec.frameSizeAt(negative));
+        assertThrows(ProtocolException.class, () -> new FrameCodec().decodeFrame(negative, new Player()));
+    }
+
+    @Test
+    void rejectsUnknownFlags() throws ProtocolException {
+        ByteBuffer frame = copy(new FrameCodec().encode(player(1, "Hello!")));
+        frame.put(FLAGS_OFFSET, (byte) 0x40);
+        assertThrows(ProtocolException.class, () -> new FrameCodec().decodeFrame(frame, new Player()));
+    }
+
+    @Test
+    void rejectsFramesOfAnotherProtocolMode() throws ProtocolException {
+        ByteBuffer delta = copy(new FrameCodec(ProtocolMode.DELTA, 1).encode(player(1, "Hello!")));
+        assertThrows(ProtocolException.class, () -> new FrameCodec().decodeFrame(delta, new Player()));
+        ByteBuffer full = copy(new FrameCodec().encode(player(1, "Hello!")));
+        assertThrows(ProtocolException.class, () -> new FrameCodec(ProtocolMode.DELTA, 1).decodeFrame(full, new Player()));
+    }
+
+    @Test
+    void rejectsAChecksumMismatch() throws ProtocolException {
+        ByteBuffer frame = copy(new FrameCodec(ProtocolMode.DELTA, 1).encode(player(1, "Hello!")));
+        frame.put(CHECKSUM_OFFSET, (byte) ~frame.get(CHECKSUM_OFFSET));
+        assertThrows(ProtocolException.class, () -> new FrameCodec(ProtocolMode.DELTA, 1).decodeFrame(frame, new Player()));
+    }
+
+    @Test
+    void rejectsABodyShorterThanItsHeader() {
+        ByteBuffer body = ByteBuffer.allocate(FrameCodec.HEADER_SIZE - 1);
+        assertThrows(ProtocolException.class, () -> new FrameCodec().decode(body, new Player()));
+    }
+
+    private static Player player(int count, String message) {
+        Player player = new Player();
+        player.setId((short) 1);
+        player.getMessageCount().set(count);
+        player.setMessage(message);
+        return player;
+    }
+
+    /**
+     * The codec reuses its encode buffer, so every frame a test keeps is copied.
+     */
+    private static ByteBuffer copy(ByteBuffer frame) {
+        ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+        copy.put(frame).flip();
+        return copy;
+    }
+}
@@ -0,0 +1,93 @@
+package com.company.player.separatepid.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the placement promises of {@link ShardRing}: balanced ownership and minimal movement when shards
+ * join or leave.
+ *
+ * @author priyanshu
+ */
+class ShardRingTest {
+
+    private static final int KEYS = 20_000;
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final List<Shard> SHARDS = List.of(
+            new Shard("localhost", 5001), new Shard("localhost", 5002),
+            new Shard("localhost", 5003), new Shard("localhost", 5004));
+
+    @Test
+    void ownershipSumsToOneAndIsBalanced() {
+        for (int count = 1; count <= SHARDS.size(); count++) {
+            ShardRing ring = new ShardRing(SHARDS.subList(0, count), VIRTUAL_NODES);
+            Map<Shard, Double> shares = ring.ownership();
+            assertEquals(1.0, shares.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+            for (double share : shares.values()) {
+                assertTrue(share > 0.5 / count && share < 1.5 / count, "unbalanced share " + share + " of " + count);
+            }
+        }
+    }
+
+    @Test
+    void addingAShardMovesOnlyKeysToIt() {
+        ShardRing ring = new ShardRing(SHARDS.subList(0, 3), VIRTUAL_NODES);
+        Shard added = SHARDS.get(3);
+        ShardRing grown = ring.withShard(added);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "session-" + i;
+            Shard before = ring.shardFor(key);
+            Shard after = grown.shardFor(key);
+            if (!before.equals(after)) {
+                assertEquals(added, after, "key " + key + " moved between two old shards");
+                moved++;
+            }
+        }
+        double share = (double) moved / KEYS;
+        assertTrue(share > 0.5 / 4 && share < 1.5 / 4, "moved share " + share);
+    }
+
+    @Test
+    void removingAShardMovesOnlyItsKeys() {
+        ShardRing ring = new ShardRing(SHARDS, VIRTUAL_NODES);
+        Shard removed = SHARDS.get(1);
+        ShardRing shrunk = ring.withoutShard(removed);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "session-" + i;
+            Shard before = ring.shardFor(key);
+            if (before.equals(removed)) {
+                moved++;
+            } else {
+                assertEquals(before, shrunk.shardFor(key), "key " + key + " of a remaining shard moved");
+            }
+        }
+        double share = (double) moved / KEYS;
+        assertTrue(share > 0.5 / 4 && share < 1.5 / 4, "moved share " + share);
+    }
+
+    @Test
+    void placementIsIndependentOfTheInstance() {
+        ShardRing first = ShardRing.parse("5001,5002,5003", VIRTUAL_NODES);
+        ShardRing second = new ShardRing(SHARDS.subList(0, 3), VIRTUAL_NODES);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.shardFor("key" + i), second.shardFor("key" + i));
+        }
+    }
+
+    @Test
+    void rejectsInvalidRings() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(), VIRTUAL_NODES));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(SHARDS.get(0), SHARDS.get(0)), VIRTUAL_NODES));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(SHARDS, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(SHARDS, VIRTUAL_NODES).withoutShard(new Shard("localhost", 6000)));
+    }
+}
@@ -0,0 +1,128 @@
+package com.company.player.separatepid.transport;
+
+import com.company.player.separatepid.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exchanges frames between both sides of a {@link SharedMemoryTransport} in one thread and checks that
+ * {@link SharedMemoryTransport#attach} rejects files whose header does not describe rings that fit into them.
+ *
+ * @author priyanshu
+ */
+class SharedMemoryTransportTest {
+
+    /**
+     * The header fields of the file, written in big-endian order like every non-sequence field.
+     */
+    private static final int SLOT_COUNT_OFFSET = 24;
+    private static final int SLOT_SIZE_OFFSET = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void exchangesFramesAcrossWrapArounds() throws IOException {
+        Path file = directory.resolve("rings");
+        try (SharedMemoryTransport server = SharedMemoryTransport.create(file, 4, 256, new FrameCodec());
+             SharedMemoryTransport initiator = SharedMemoryTransport.attach(file, new FrameCodec())) {
+            Player received = new Player();
+            for (int i = 0; i < 50; i++) {
+                initiator.send(player(i));
+                assertTrue(server.receive(received));
+                assertEquals(i, received.getMessageCount().get());
+                server.send(player(i + 1));
+                assertTrue(initiator.receive(received));
+                assertEquals(i + 1, received.getMessageCount().get());
+            }
+        }
+    }
+
+    @Test
+    void deliversWhatThePeerSentBeforeItClosed() throws IOException {
+        Path file = directory.resolve("rings");
+        try (SharedMemoryTransport server = SharedMemoryTransport.create(file, 4, 256, new FrameCodec())) {
+            SharedMemoryTransport initiator = SharedMemoryTransport.attach(file, new FrameCodec());
+            initiator.send(player(1));
+            initiator.send(player(2));
+            initiator.close();
+            Player received = new Player();
+            assertTrue(server.receive(received));
+            assertEquals(1, received.getMessageCount().get());
+            assertTrue(server.receive(received));
+            assertEquals(2, received.getMessageCount().get());
+            assertFalse(server.receive(received));
+        }
+    }
+
+    @Test
+    void rejectsASlotCountThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SharedMemoryTransport.create(directory.resolve("rings"), 6, 256, new FrameCodec()));
+    }
+
+    @Test
+    void rejectsAnInvalidSlotCount() throws IOException {
+        assertAttachRejects(SLOT_COUNT_OFFSET, 0);
+        assertAttachRejects(SLOT_COUNT_OFFSET, 3);
+        assertAttachRejects(SLOT_COUNT_OFFSET, -8);
+    }
+
+    @Test
+    void rejectsAnInvalidSlotSize() throws IOException {
+        assertAttachRejects(SLOT_SIZE_OFFSET, 0);
+        assertAttachRejects(SLOT_SIZE_OFFSET, -64);
+        assertAttachRejects(SLOT_SIZE_OFFSET, 100);
+    }
+
+    @Test
+    void rejectsRingsLargerThanTheFile() throws IOException {
+        assertAttachRejects(SLOT_COUNT_OFFSET, 1 << 20);
+        Path file = directory.resolve("truncated");
+        SharedMemoryTransport server = SharedMemoryTransport.create(file, 4, 256, new FrameCodec());
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 1);
+            }
+            assertThrows(ProtocolException.class, () -> SharedMemoryTransport.attach(file, new FrameCodec()));
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Creates rings, overwrites one header field and expects the initiator to refuse the file.
+     */
+    private void assertAttachRejects(int offset, int value) throws IOException {
+        Path file = directory.resolve("corrupt");
+        SharedMemoryTransport server = SharedMemoryTransport.create(file, 4, 256, new FrameCodec());
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), offset);
+            }
+            assertThrows(ProtocolException.class, () -> SharedMemoryTransport.attach(file, new FrameCodec()));
+        } finally {
+            server.close();
+        }
+    }
+
+    private static Player player(int count) {
+        Player player = new Player();
+        player.setId((short) 1);
+        player.getMessageCount().set(count);
+        player.setMessage("Hello! [reply" + count + "]");
+        return player;
+    }
+}
@@ -0,0 +1,104 @@
+package com.company.player.singlepid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the full and empty handling of {@link SpscRingBuffer}, its order across many wrap-arounds and the
+ * hand-off between a producer and a consumer thread.
+ *
+ * @author priyanshu
+ */
+class SpscRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(5, WaitStrategy.BUSY_SPIN);
+        assertEquals(8, buffer.remainingCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(0, WaitStrategy.BUSY_SPIN));
+    }
+
+    @Test
+    void emptyBufferYieldsNothing() throws InterruptedException {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4, WaitStrategy.BUSY_SPIN);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        assertNull(buffer.peek());
+        assertNull(buffer.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void fullBufferRejectsUntilASlotIsFreed() throws InterruptedException {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4, WaitStrategy.BUSY_SPIN);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(0, buffer.remainingCapacity());
+        assertFalse(buffer.offer(4));
+        assertFalse(buffer.offer(4, 1, TimeUnit.MILLISECONDS));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertEquals(List.of(1, 2, 3, 4), new ArrayList<>(buffer));
+    }
+
+    @Test
+    void keepsOrderAcrossWrapArounds() {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4, WaitStrategy.BUSY_SPIN);
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 1000; round++) {
+            // Fill to a varying level so head and tail cross the end of the array at every offset
+            int batch = 1 + round % 4;
+            for (int i = 0; i < batch; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            for (int i = 0; i < batch; i++) {
+                assertEquals(expected++, buffer.poll());
+            }
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    void rejectsNullElements() {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4, WaitStrategy.BUSY_SPIN);
+        assertThrows(NullPointerException.class, () -> buffer.offer(null));
+    }
+
+    @Test
+    void handsOffInOrderBetweenThreads() throws InterruptedException {
+        // Busy spinning is left out: on a single core it only hands over at the end of a time slice
+        for (WaitStrategy waitStrategy : new WaitStrategy[]{WaitStrategy.YIELD, WaitStrategy.PARK}) {
+            SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(8, waitStrategy);
+            int count = 10_000;
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        buffer.put(i);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            producer.start();
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, buffer.take(), waitStrategy + " reordered the elements");
+            }
+            producer.join();
+            assertNull(failure.get());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+}